@@ -0,0 +1,110 @@
+package third.party.communication.whatsapp.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic, realistic inputs for the benchmarks: the same seed gives the same data on every run.
+ */
+final class BenchmarkData {
+
+    static final String[] STATUSES = {"Success", "Success", "Success", "Success", "Invalid Number", "Chat Not Ready",
+            "Send Unconfirmed", "Skipped (Cached)", "Delete Success", "Media Upload Fail"};
+    static final String[] MESSAGES = {"Hello! Your order #4521 has been shipped and will arrive tomorrow.",
+            "Reminder: your appointment is on Monday at 10:30 AM.\nReply STOP to opt out.",
+            "Diwali offer: 20% off on all items this week only", "Hi", ""};
+    private static final String[] FIRST_NAMES = {"Asha", "Ravi", "Nitin", "Priya", "Mehta", "Anil", "Sunita", "Karan"};
+    private static final String[] LAST_NAMES = {"Sharma", "Dwivedi", "Iyer", "Khan", "Patel", "Singh", "Rao", "Das"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * A pasted numbers list as the /run-script form receives it: one entry per line, in the usual
+     * formats, with about 5% duplicates and 1% junk.
+     */
+    static String numbersInput(int lines) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder(lines * 16);
+        long previous = 9876543210L;
+        for (int i = 0; i < lines; i++) {
+            long national = random.nextInt(100) < 5 ? previous : 6_000_000_000L + random.nextLong(4_000_000_000L);
+            previous = national;
+            String digits = Long.toString(national);
+            switch (random.nextInt(100)) {
+                case 0 -> sb.append("12ab").append(i);
+                case 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 -> sb.append("+91 ").append(digits, 0, 5).append('-').append(digits, 5, 10);
+                case 11, 12, 13, 14, 15, 16, 17, 18, 19, 20 -> sb.append(digits, 0, 5).append(' ').append(digits, 5, 10);
+                case 21, 22, 23, 24, 25 -> sb.append('0').append(digits);
+                case 26, 27, 28, 29, 30, 31, 32, 33, 34, 35 -> sb.append("91").append(digits);
+                default -> sb.append(digits);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * history.log lines, oldest first, a few seconds apart.
+     */
+    static List<String> historyLines(int lines) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> result = new ArrayList<>(lines);
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 9, 0);
+        StringBuilder sb = new StringBuilder(128);
+        for (int i = 0; i < lines; i++) {
+            time = time.plusSeconds(1 + random.nextInt(10));
+            sb.setLength(0);
+            new HistoryRecord(0, number(random), STATUSES[random.nextInt(STATUSES.length)],
+                    HistoryRecord.summarize(MESSAGES[random.nextInt(MESSAGES.length)])).appendTo(sb);
+            // appendTo formats the epoch; replace it with the generated time
+            result.add(time.format(HistoryRecord.TIMESTAMP_FORMAT) + sb.substring(sb.indexOf(HistoryRecord.SEPARATOR)));
+        }
+        return result;
+    }
+
+    /**
+     * A Google Contacts export with one or two phone numbers per row, some quoted names and blank rows.
+     */
+    static String contactsCsv(int lines) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder(lines * 96);
+        sb.append("First Name,Middle Name,Last Name,Nickname,Organization Name,Notes,Labels,")
+                .append("Phone 1 - Label,Phone 1 - Value,Phone 2 - Label,Phone 2 - Value\n");
+        for (int i = 0; i < lines; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 3) {
+                sb.append(",,,,,,,,,,\n");
+                continue;
+            }
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            if (kind < 10) {
+                sb.append('"').append(first).append(", Jr.\"");
+            } else {
+                sb.append(first);
+            }
+            sb.append(",,").append(last).append(",,");
+            sb.append(kind < 20 ? "\"Acme \"\"Traders\"\"\"" : "").append(",,* myContacts,Mobile,");
+            sb.append("+91 ").append(6_000_000_000L + random.nextLong(4_000_000_000L));
+            if (kind < 30) {
+                sb.append(" ::: ").append(6_000_000_000L + random.nextLong(4_000_000_000L));
+            }
+            sb.append(',');
+            if (kind < 50) {
+                sb.append("Work,").append(random.nextInt(900) + 100).append('-').append(random.nextInt(900) + 100)
+                        .append('-').append(random.nextInt(9000) + 1000);
+            } else {
+                sb.append(',');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String number(SplittableRandom random) {
+        return Long.toString(916_000_000_000L + random.nextLong(4_000_000_000L));
+    }
+}
@@ -0,0 +1,71 @@
+package third.party.communication.whatsapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import third.party.communication.whatsapp.dto.Contact;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading contacts.csv for /contacts: the raw CSV parse, and a full load with the search index
+ * (what the first request after the file changes pays).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactCsvBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int lines;
+
+    private String csv;
+    private Path csvFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        csv = BenchmarkData.contactsCsv(lines);
+        csvFile = Files.createTempFile("contacts-bench", ".csv");
+        Files.writeString(csvFile, csv, StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public void parseCsv(Blackhole bh) throws IOException {
+        try (CsvParser parser = new CsvParser(new StringReader(csv))) {
+            List<String> record;
+            while ((record = parser.nextRecord()) != null) {
+                bh.consume(record);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Contact> loadContacts() throws IOException {
+        // A new repository has no snapshot, so every call reads and indexes the file
+        return new ContactRepository(csvFile).findAll();
+    }
+}
@@ -0,0 +1,96 @@
+package third.party.communication.whatsapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What WhatsappService.logStatus costs: summarizing and formatting a history entry, and the
+ * whole path through {@link HistoryWriter} until the entries are on disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryLogBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int lines;
+
+    private String[] numbers;
+    private String[] statuses;
+    private String[] messages;
+
+    /**
+     * A fresh writer and log file per invocation, so every batch pays for opening the file.
+     */
+    @State(Scope.Thread)
+    public static class Log {
+        Path file;
+        HistoryWriter writer;
+
+        @Setup(Level.Invocation)
+        public void open() throws IOException {
+            file = Files.createTempFile("history-bench", ".log");
+            writer = new HistoryWriter(file, HistoryWriter.FsyncPolicy.NONE, 1000, 0, false);
+            writer.start();
+        }
+
+        @TearDown(Level.Invocation)
+        public void delete() throws IOException {
+            writer.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        numbers = new String[lines];
+        statuses = new String[lines];
+        messages = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            numbers[i] = BenchmarkData.number(random);
+            statuses[i] = BenchmarkData.STATUSES[random.nextInt(BenchmarkData.STATUSES.length)];
+            messages[i] = BenchmarkData.MESSAGES[random.nextInt(BenchmarkData.MESSAGES.length)];
+        }
+    }
+
+    @Benchmark
+    public void formatEntries(Blackhole bh) {
+        StringBuilder sb = new StringBuilder(128);
+        for (int i = 0; i < lines; i++) {
+            sb.setLength(0);
+            HistoryRecord.of(numbers[i], statuses[i], messages[i]).appendTo(sb);
+            bh.consume(sb.length());
+        }
+    }
+
+    @Benchmark
+    public void appendAndFlush(Log log) {
+        for (int i = 0; i < lines; i++) {
+            log.writer.append(HistoryRecord.of(numbers[i], statuses[i], messages[i]));
+        }
+        // Waits until the writer thread has written everything out
+        log.writer.shutdown();
+    }
+}
@@ -0,0 +1,75 @@
+package third.party.communication.whatsapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading history.log for /history: parsing single lines, the newest page, and a filtered query
+ * that has to scan the whole file because its number only appears in the oldest line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryQueryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int lines;
+
+    private List<String> historyLines;
+    private Path logFile;
+    private HistoryQueryService queryService;
+    private HistoryQueryService.Filter oldestNumber;
+
+    @Setup
+    public void setUp() throws IOException {
+        historyLines = BenchmarkData.historyLines(lines);
+        logFile = Files.createTempFile("history-bench", ".log");
+        Files.write(logFile, historyLines, StandardCharsets.UTF_8);
+        queryService = new HistoryQueryService(logFile, null, new NumberNormalizer("91"));
+        String number = HistoryQueryService.parseLine(historyLines.get(0)).getNumber();
+        oldestNumber = new HistoryQueryService.Filter(number, null, null, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void parseLines(Blackhole bh) {
+        for (String line : historyLines) {
+            bh.consume(HistoryQueryService.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    public HistoryQueryService.Page newestPage() throws IOException {
+        return queryService.query(HistoryQueryService.Filter.NONE, null, 50);
+    }
+
+    @Benchmark
+    public HistoryQueryService.Page fullScanForNumber() throws IOException {
+        return queryService.query(oldestNumber, null, 50);
+    }
+}
@@ -0,0 +1,45 @@
+package third.party.communication.whatsapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting, validating and de-duplicating a pasted numbers list, as /run-script and
+ * /delete-last-message do before queuing a job.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NumberNormalizerBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int lines;
+
+    private NumberNormalizer normalizer;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        normalizer = new NumberNormalizer("91");
+        input = BenchmarkData.numbersInput(lines);
+    }
+
+    @Benchmark
+    public NumberNormalizer.Result normalize() {
+        return normalizer.normalize(input, null);
+    }
+}
@@ -1,6 +1,9 @@
 package third.party.communication.whatsapp.controller; // Adjust package name if needed
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -8,6 +11,15 @@ import third.party.communication.whatsapp.dto.Contact;
 import third.party.communication.whatsapp.dto.DefaultResponse;
 import third.party.communication.whatsapp.dto.HistoryEntry;
 import third.party.communication.whatsapp.dto.SendRequest; // Expects numbers as String
+import third.party.communication.whatsapp.service.ContactRepository;
+import third.party.communication.whatsapp.service.HistoryQueryService;
+import third.party.communication.whatsapp.service.Job;
+import third.party.communication.whatsapp.service.JobService;
+import third.party.communication.whatsapp.service.MediaStore;
+import third.party.communication.whatsapp.service.NumberNormalizer;
+import third.party.communication.whatsapp.service.RunJournal;
+import third.party.communication.whatsapp.service.RunJournalService;
+import third.party.communication.whatsapp.service.RunSpec;
 import third.party.communication.whatsapp.service.WhatsappService;
 
 import org.slf4j.Logger;
@@ -19,30 +31,49 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
-import java.util.Arrays; // Import Arrays
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:3000") // Allow requests from your React app
 public class ApiController {
 
     private static final Logger logger = LoggerFactory.getLogger(ApiController.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_HISTORY_PAGE_SIZE = 5000;
+    private static final int DEFAULT_CONTACT_SEARCH_LIMIT = 20;
+    private static final int MAX_CONTACT_SEARCH_LIMIT = 200;
     private final WhatsappService whatsappService;
+    private final JobService jobService;
+    private final HistoryQueryService historyQueryService;
+    private final ContactRepository contactRepository;
+    private final NumberNormalizer numberNormalizer;
+    private final MediaStore mediaStore;
+    private final RunJournalService runJournalService;
+
+    @Value("${whatsapp.history.page-size:500}")
+    private int defaultHistoryPageSize;
+    @Value("${whatsapp.schedule.urgent-max-numbers:10}")
+    private int urgentMaxNumbers;
 
     // --- File Paths ---
     private final Path MSG_FILE = Paths.get(System.getProperty("user.dir"), "message.txt");
     private final Path NUMS_FILE = Paths.get(System.getProperty("user.dir"), "numbers.txt");
-    private final Path HISTORY_LOG_FILE = Paths.get(System.getProperty("user.dir"), "history.log");
-    private final Path CONTACTS_CSV_FILE = Paths.get(System.getProperty("user.dir"), "contacts.csv");
 
     @Autowired
-    public ApiController(WhatsappService whatsappService) {
+    public ApiController(WhatsappService whatsappService, JobService jobService, HistoryQueryService historyQueryService,
+                         ContactRepository contactRepository, NumberNormalizer numberNormalizer, MediaStore mediaStore,
+                         RunJournalService runJournalService) {
         this.whatsappService = whatsappService;
+        this.jobService = jobService;
+        this.historyQueryService = historyQueryService;
+        this.contactRepository = contactRepository;
+        this.numberNormalizer = numberNormalizer;
+        this.mediaStore = mediaStore;
+        this.runJournalService = runJournalService;
     }
 
     /**
@@ -69,59 +100,57 @@ public class ApiController {
     @GetMapping("/get-contacts")
     public ResponseEntity<List<Contact>> getContacts() {
         logger.info("Received GET request for /get-contacts");
-        List<Contact> contacts = new ArrayList<>();
-        if (!Files.exists(CONTACTS_CSV_FILE)) {
-            logger.warn("Contacts file not found: {}", CONTACTS_CSV_FILE.toAbsolutePath());
-            return ResponseEntity.ok(contacts); // Return empty list
-        }
-        try (Stream<String> lines = Files.lines(CONTACTS_CSV_FILE, StandardCharsets.UTF_8)) {
-            contacts = lines
-                    .skip(1) // Skip header if present
-                    .map(line -> line.split(",")) // Split by comma
-                    .filter(parts -> parts.length >= 2 && !parts[0].trim().isEmpty() && !parts[1].trim().isEmpty())
-                    .map(parts -> new Contact(parts[0].trim(), Collections.singletonList(parts[1].trim())))
-                    .collect(Collectors.toList());
-            logger.info("Successfully read {} contacts from {}", contacts.size(), CONTACTS_CSV_FILE.getFileName());
-            return ResponseEntity.ok(contacts);
+        try {
+            return ResponseEntity.ok(contactRepository.findAll());
         } catch (IOException e) {
-            logger.error("Error reading contacts file {}: {}", CONTACTS_CSV_FILE.toAbsolutePath(), e.getMessage(), e);
+            logger.error("Error reading contacts file: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
-        } catch (Exception e) {
-            logger.error("Unexpected error processing contacts file {}: {}", CONTACTS_CSV_FILE.toAbsolutePath(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Typeahead over contacts: names, name words and phone numbers starting with 'q'.
+     */
+    @GetMapping("/contacts/search")
+    public ResponseEntity<List<Contact>> searchContacts(@RequestParam String q,
+                                                        @RequestParam(required = false) Integer limit) {
+        int size = limit == null ? DEFAULT_CONTACT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_CONTACT_SEARCH_LIMIT));
+        try {
+            return ResponseEntity.ok(contactRepository.search(q, size));
+        } catch (IOException e) {
+            logger.error("Error searching contacts: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
         }
     }
 
     /**
-     * API Endpoint to get message history from the log file.
+     * API Endpoint to get message history from the log file, newest first.
+     * Pages are read from the end of the file; pass the X-Next-Cursor header back as 'cursor' for older entries.
      */
     @GetMapping("/get-history")
-    public ResponseEntity<List<HistoryEntry>> getHistory() {
+    @CrossOrigin(origins = "http://localhost:3000", exposedHeaders = NEXT_CURSOR_HEADER)
+    public ResponseEntity<List<HistoryEntry>> getHistory(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String number,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         logger.info("Received GET request for /get-history");
-        if (!Files.exists(HISTORY_LOG_FILE)) {
-            logger.warn("History file not found: {}", HISTORY_LOG_FILE);
-            return ResponseEntity.ok(Collections.emptyList());
-        }
+        int pageSize = limit == null ? defaultHistoryPageSize : Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
         try {
-            List<String> lines = Files.readAllLines(HISTORY_LOG_FILE, StandardCharsets.UTF_8);
-            Collections.reverse(lines); // Show newest first
-            List<HistoryEntry> history = lines.stream()
-                    .map(String::trim)
-                    .filter(line -> !line.isEmpty())
-                    .map(line -> {
-                        String[] parts = line.split(" \\| ", 4);
-                        if (parts.length == 4) {
-                            return new HistoryEntry(parts[0], parts[1], parts[2], parts[3]);
-                        } else {
-                            logger.warn("Skipping malformed history line: {}", line);
-                            return null;
-                        }
-                    })
-                    .filter(java.util.Objects::nonNull)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(history);
+            HistoryQueryService.Page page = historyQueryService.query(
+                    new HistoryQueryService.Filter(number, status, from, to), cursor, pageSize);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(page.entries());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid /get-history request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Collections.emptyList());
         } catch (IOException e) {
-            logger.error("Error reading history log file '{}': {}", HISTORY_LOG_FILE, e.getMessage());
+            logger.error("Error reading history log file: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
         }
     }
@@ -132,35 +161,51 @@ public class ApiController {
      */
     /**
      * API Endpoint to start the message sending script asynchronously.
-     * Receives numbers as a String, splits into List before calling service.
+     * Receives numbers as a String; NumberNormalizer turns them into unique E.164 numbers before the job is queued.
+     * An URGENT send of a few numbers goes out between the recipients of running NORMAL and BULK jobs.
      */
     @PostMapping("/run-script")
-    public ResponseEntity<Map<String, String>> runScript(@RequestBody SendRequest request) { // SendRequest expects String numbers
+    public ResponseEntity<Map<String, Object>> runScript(@RequestBody SendRequest request, HttpServletRequest httpRequest) { // SendRequest expects String numbers
         logger.info("Received POST request for /run-script");
         String msgContent = request.getMessage();
         String numsContent = request.getNumbers(); // <-- Receive as String
 
-        // --- FIX: Split the numbers string here ---
-        List<String> numbersList = null;
-        if (numsContent != null && !numsContent.trim().isEmpty()) {
-            numbersList = Arrays.stream(numsContent.split("\\r?\\n")) // Split by newline
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty() && s.matches("[0-9]+")) // Keep only non-empty digit strings
-                    .collect(Collectors.toList());
+        NumberNormalizer.Result normalized;
+        Job.Priority priority;
+        try {
+            normalized = numberNormalizer.normalize(numsContent, request.getCountryCode());
+            priority = JobController.priority(request.getPriority(), Job.Priority.NORMAL);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
         }
-        // ------------------------------------------
+        List<String> numbersList = normalized.numbers();
 
         // Basic validation
         if (msgContent == null || msgContent.trim().isEmpty()) {
             logger.warn("Received invalid request for /run-script: Message empty.");
             return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "Message field cannot be empty."));
         }
-        // --- FIX: Check the split list ---
-        if (numbersList == null || numbersList.isEmpty()) {
+        if (numbersList.isEmpty()) {
             logger.warn("Received invalid request for /run-script: No valid numbers found in input.");
-            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "No valid phone numbers entered."));
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "No valid phone numbers entered.",
+                    "rejected", normalized.rejected()));
+        }
+        if (priority == Job.Priority.URGENT && numbersList.size() > urgentMaxNumbers) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message",
+                    "Urgent sends are limited to " + urgentMaxNumbers + " numbers; use NORMAL or BULK for more."));
+        }
+
+        List<MediaStore.MediaItem> media;
+        try {
+            media = mediaStore.findAll(request.getMediaIds());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Received invalid request for /run-script: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Could not read media for /run-script: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Could not read the attached media."));
         }
-        // ---------------------------------
 
         // Save message back to file
         try {
@@ -170,52 +215,73 @@ public class ApiController {
             logger.warn("Could not save message text to file before starting script: {}", e.getMessage());
         }
 
-        // Start the Selenium logic in a new thread
-        // --- FIX: Pass the created numbersList ---
-        logger.info("Triggering async Selenium send logic for {} numbers...", numbersList.size());
-        whatsappService.runSeleniumLogic(msgContent, numbersList); // Pass the List<String>
-        // ----------------------------------------
+        // Queue the Selenium logic as a job
+        logger.info("Queueing Selenium send job for {} numbers...", numbersList.size());
+        final List<String> numbers = numbersList;
+        RunJournal journal;
+        try {
+            journal = runJournalService.create(RunSpec.send(RunSpec.Kind.SEND, msgContent, request.getMediaIds()), numbers);
+        } catch (IOException e) {
+            logger.error("Could not create run journal for /run-script: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Could not record the run."));
+        }
+        Job job;
+        try {
+            job = jobService.submit(Job.Type.SEND, numbers.size(), priority, JobController.submitter(httpRequest),
+                    j -> whatsappService.runSeleniumLogic(j, msgContent, numbers, media, journal));
+        } catch (RejectedExecutionException e) {
+            journal.finish(true);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("status", "error", "message", "Too many jobs queued. Try again later."));
+        }
 
         // Respond immediately
-        return ResponseEntity.ok(Map.of("status", "success", "message", "Script started! Check application logs for progress."));
+        return ResponseEntity.ok(jobStarted("Script started! Track progress at /jobs/" + job.getId(), job, normalized));
     }
 
     /**
      * API ENDPOINT FOR DELETION
-     * Receives numbers as a String, splits into List before calling service.
+     * Receives numbers as a String; normalized and de-duplicated like /run-script.
      */
     @PostMapping("/delete-last-message")
-    public ResponseEntity<Map<String, String>> deleteLastMessage(@RequestBody SendRequest request) { // SendRequest expects String numbers
+    public ResponseEntity<Map<String, Object>> deleteLastMessage(@RequestBody SendRequest request, HttpServletRequest httpRequest) { // SendRequest expects String numbers
         logger.info("Received POST request for /delete-last-message");
         String numsContent = request.getNumbers(); // <-- Receive as String
 
-        // --- FIX: Split the numbers string here ---
-        List<String> numbersList = null;
-        if (numsContent != null && !numsContent.trim().isEmpty()) {
-            numbersList = Arrays.stream(numsContent.split("\\r?\\n")) // Split by newline
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty() && s.matches("[0-9]+")) // Keep only non-empty digit strings
-                    .collect(Collectors.toList());
+        NumberNormalizer.Result normalized;
+        try {
+            normalized = numberNormalizer.normalize(numsContent, request.getCountryCode());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
         }
-        // ------------------------------------------
-
-        // --- FIX: Check the split list ---
-        if (numbersList == null || numbersList.isEmpty()) {
+        List<String> numbersList = normalized.numbers();
+        if (numbersList.isEmpty()) {
             logger.warn("Received invalid request for /delete-last-message: No valid numbers found in input.");
-            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "No valid phone numbers entered for deletion."));
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "No valid phone numbers entered for deletion.",
+                    "rejected", normalized.rejected()));
         }
-        // ---------------------------------
 
         try {
-            // Start the Selenium delete logic in a new thread
-            // --- FIX: Pass the created numbersList ---
-            logger.info("Triggering async Selenium delete logic for {} numbers...", numbersList.size());
-            whatsappService.runSeleniumDeleteLogic(numbersList); // Pass the List<String>
-            // ----------------------------------------
+            // Queue the Selenium delete logic as a job
+            logger.info("Queueing Selenium delete job for {} numbers...", numbersList.size());
+            final List<String> numbers = numbersList;
+            RunJournal journal = runJournalService.create(RunSpec.delete(), numbers);
+            Job job;
+            try {
+                job = jobService.submit(Job.Type.DELETE, numbers.size(), Job.Priority.NORMAL, JobController.submitter(httpRequest),
+                        j -> whatsappService.runSeleniumDeleteLogic(j, numbers, journal));
+            } catch (RejectedExecutionException e) {
+                journal.finish(true);
+                throw e;
+            }
 
             // Respond immediately
-            return ResponseEntity.ok(Map.of("status", "success", "message", "Delete script started! Check application logs for progress."));
+            return ResponseEntity.ok(jobStarted("Delete script started! Track progress at /jobs/" + job.getId(), job, normalized));
 
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("status", "error", "message", "Too many jobs queued. Try again later."));
         } catch (Exception e) {
             logger.error("Error initiating /delete-last-message: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -224,6 +290,19 @@ public class ApiController {
     }
 
 
+    /**
+     * Success body for a queued job, with what the number normalizer dropped.
+     */
+    private static Map<String, Object> jobStarted(String message, Job job, NumberNormalizer.Result normalized) {
+        if (!normalized.rejected().isEmpty() || normalized.duplicates() > 0) {
+            logger.info("Job {}: {} numbers queued, {} rejected, {} duplicates removed.", job.getId(),
+                    normalized.numbers().size(), normalized.rejected().size(), normalized.duplicates());
+        }
+        return Map.of("status", "success", "message", message, "jobId", job.getId(),
+                "accepted", normalized.numbers().size(), "duplicates", normalized.duplicates(),
+                "rejected", normalized.rejected());
+    }
+
     /**
      * Helper Method to read files
      */
@@ -0,0 +1,175 @@
+package third.party.communication.whatsapp.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import third.party.communication.whatsapp.service.CampaignIngestService;
+import third.party.communication.whatsapp.service.Job;
+import third.party.communication.whatsapp.service.JobService;
+import third.party.communication.whatsapp.service.MediaStore;
+import third.party.communication.whatsapp.service.MessageTemplate;
+import third.party.communication.whatsapp.service.NumberNormalizer;
+import third.party.communication.whatsapp.service.RecipientFeed;
+import third.party.communication.whatsapp.service.RunJournal;
+import third.party.communication.whatsapp.service.RunJournalService;
+import third.party.communication.whatsapp.service.RunSpec;
+import third.party.communication.whatsapp.service.WhatsappService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bulk campaigns whose recipients are uploaded as CSV or NDJSON instead of a numbers string.
+ * The message may use {{variable}} placeholders filled from each recipient's columns or fields.
+ * Sending starts as soon as the first recipients are read, and reading waits while the send
+ * buffer is full, so the response comes once all but the last few hundred recipients are queued.
+ * Campaigns run as BULK unless ?priority=NORMAL, and only inside the bulk send window if one is set.
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/campaigns")
+public class CampaignController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CampaignController.class);
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final CampaignIngestService ingestService;
+    private final WhatsappService whatsappService;
+    private final JobService jobService;
+    private final NumberNormalizer numberNormalizer;
+    private final MediaStore mediaStore;
+    private final RunJournalService runJournalService;
+
+    @Autowired
+    public CampaignController(CampaignIngestService ingestService, WhatsappService whatsappService, JobService jobService,
+                              NumberNormalizer numberNormalizer, MediaStore mediaStore, RunJournalService runJournalService) {
+        this.ingestService = ingestService;
+        this.whatsappService = whatsappService;
+        this.jobService = jobService;
+        this.numberNormalizer = numberNormalizer;
+        this.mediaStore = mediaStore;
+        this.runJournalService = runJournalService;
+    }
+
+    /**
+     * Recipients as the raw request body (text/csv or application/x-ndjson), read while it arrives.
+     */
+    @PostMapping(value = "/stream", consumes = {"text/csv", NDJSON})
+    public ResponseEntity<Map<String, Object>> stream(@RequestParam String message,
+                                                      @RequestParam(required = false) String countryCode,
+                                                      @RequestParam(required = false) List<String> mediaIds,
+                                                      @RequestParam(required = false) String priority,
+                                                      @RequestHeader("Content-Type") String contentType,
+                                                      InputStream body, HttpServletRequest request) {
+        logger.info("Received POST request for /campaigns/stream ({})", contentType);
+        CampaignIngestService.Format format = contentType.toLowerCase(Locale.ROOT).startsWith(NDJSON)
+                ? CampaignIngestService.Format.NDJSON : CampaignIngestService.Format.CSV;
+        return start(message, countryCode, mediaIds, priority, request, body, format);
+    }
+
+    /**
+     * Recipients as a multipart file ("recipients"); .ndjson/.jsonl files or an NDJSON part type are read as NDJSON.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> upload(@RequestParam String message,
+                                                      @RequestParam(required = false) String countryCode,
+                                                      @RequestParam(required = false) List<String> mediaIds,
+                                                      @RequestParam(required = false) String priority,
+                                                      @RequestParam("recipients") MultipartFile recipients,
+                                                      HttpServletRequest request) {
+        logger.info("Received POST request for /campaigns ({}, {} bytes)", recipients.getOriginalFilename(), recipients.getSize());
+        String name = String.valueOf(recipients.getOriginalFilename()).toLowerCase(Locale.ROOT);
+        boolean ndjson = name.endsWith(".ndjson") || name.endsWith(".jsonl")
+                || String.valueOf(recipients.getContentType()).startsWith(NDJSON);
+        try (InputStream in = recipients.getInputStream()) {
+            return start(message, countryCode, mediaIds, priority, request, in,
+                    ndjson ? CampaignIngestService.Format.NDJSON : CampaignIngestService.Format.CSV);
+        } catch (IOException e) {
+            logger.error("Could not read uploaded recipients: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Could not read the uploaded recipients."));
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> start(String message, String countryCode, List<String> mediaIds,
+                                                      String priorityName, HttpServletRequest request,
+                                                      InputStream in, CampaignIngestService.Format format) {
+        if (message == null || message.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "Message field cannot be empty."));
+        }
+        Job.Priority priority;
+        List<MediaStore.MediaItem> media;
+        RunJournal journal;
+        try {
+            priority = JobController.priority(priorityName, Job.Priority.BULK);
+            if (priority == Job.Priority.URGENT) {
+                throw new IllegalArgumentException("Campaigns cannot be URGENT; use /run-script for a few numbers.");
+            }
+            numberNormalizer.resolveCountryCode(countryCode);
+            media = mediaStore.findAll(mediaIds);
+            journal = runJournalService.create(RunSpec.send(RunSpec.Kind.CAMPAIGN, message, mediaIds), List.of());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Could not start a campaign: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Could not read the attached media or record the run."));
+        }
+
+        MessageTemplate template = MessageTemplate.parse(message);
+        RecipientFeed feed = ingestService.newFeed();
+        Job job;
+        try {
+            job = jobService.submit(Job.Type.SEND, 0, priority, JobController.submitter(request),
+                    j -> whatsappService.runStreamingSend(j, template, feed, media, journal));
+        } catch (RejectedExecutionException e) {
+            journal.finish(true);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("status", "error", "message", "Too many jobs queued. Try again later."));
+        }
+
+        CampaignIngestService.Summary summary;
+        try {
+            summary = ingestService.ingest(job, feed, journal, in, format, countryCode);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            jobService.cancel(job.getId());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("status", "error", "message", "Upload interrupted; job " + job.getId() + " cancelled."));
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("jobId", job.getId());
+        body.put("accepted", summary.accepted());
+        body.put("duplicates", summary.duplicates());
+        body.put("skipped", summary.skipped());
+        body.put("rejectedCount", summary.rejectedCount());
+        body.put("rejected", summary.rejected());
+        if (summary.accepted() == 0) {
+            logger.warn("Campaign job {} received no valid recipients.", job.getId());
+            body.put("status", "error");
+            body.put("message", summary.error() != null ? summary.error() : "No valid phone numbers in the upload.");
+            return ResponseEntity.badRequest().body(body);
+        }
+        body.put("status", "success");
+        body.put("message", "Campaign started! Track progress at /jobs/" + job.getId());
+        if (summary.error() != null) {
+            // Recipients read before the error are already being sent
+            body.put("warning", summary.error());
+        }
+        logger.info("Campaign job {}: {} recipients queued, {} rejected, {} duplicates, {} skipped.", job.getId(),
+                summary.accepted(), summary.rejectedCount(), summary.duplicates(), summary.skipped());
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,65 @@
+package third.party.communication.whatsapp.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import third.party.communication.whatsapp.dto.HistoryEntry;
+import third.party.communication.whatsapp.service.HistoryRecord;
+import third.party.communication.whatsapp.service.Job;
+import third.party.communication.whatsapp.service.ProgressBroadcaster;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class EventController {
+
+    private final ProgressBroadcaster progressBroadcaster;
+
+    @Autowired
+    public EventController(ProgressBroadcaster progressBroadcaster) {
+        this.progressBroadcaster = progressBroadcaster;
+    }
+
+    /**
+     * Server-Sent Events stream of live updates:
+     * {@code outcome} (a new history entry, shaped like /get-history),
+     * {@code progress} (a job's counters, shaped like /jobs/{id}) and
+     * {@code dropped} (outcomes skipped because the client fell behind; re-read /get-history).
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents() {
+        // No timeout: the stream lives until the client goes away or a send to it fails
+        SseEmitter emitter = new SseEmitter(0L);
+        Optional<ProgressBroadcaster.Subscription> subscription = progressBroadcaster.subscribe(new ProgressBroadcaster.Sink() {
+            @Override
+            public void outcome(HistoryRecord record) throws IOException {
+                emitter.send(SseEmitter.event().name("outcome").data(new HistoryEntry(record.formattedTimestamp(),
+                        record.number(), record.status(), record.summary()), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void progress(Job job) throws IOException {
+                emitter.send(SseEmitter.event().name("progress").id(job.getId())
+                        .data(JobController.toResponse(job), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void dropped(long count) throws IOException {
+                emitter.send(SseEmitter.event().name("dropped").data(Map.of("outcomes", count), MediaType.APPLICATION_JSON));
+            }
+        });
+        if (subscription.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        emitter.onCompletion(subscription.get()::close);
+        emitter.onTimeout(subscription.get()::close);
+        emitter.onError(e -> subscription.get().close());
+        return ResponseEntity.ok(emitter);
+    }
+}
@@ -0,0 +1,65 @@
+package third.party.communication.whatsapp.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import third.party.communication.whatsapp.dto.InvalidNumberResponse;
+import third.party.communication.whatsapp.service.InvalidNumberCache;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/invalid-numbers")
+public class InvalidNumberController {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidNumberController.class);
+    private final InvalidNumberCache invalidNumberCache;
+
+    @Autowired
+    public InvalidNumberController(InvalidNumberCache invalidNumberCache) {
+        this.invalidNumberCache = invalidNumberCache;
+    }
+
+    /**
+     * Numbers that sends currently skip, least recently used first.
+     */
+    @GetMapping
+    public ResponseEntity<List<InvalidNumberResponse>> list() {
+        return ResponseEntity.ok(invalidNumberCache.list().stream().map(InvalidNumberController::toResponse).toList());
+    }
+
+    @GetMapping("/{number}")
+    public ResponseEntity<InvalidNumberResponse> get(@PathVariable String number) {
+        InvalidNumberCache.Entry entry = invalidNumberCache.peek(number);
+        return entry == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(toResponse(entry));
+    }
+
+    /**
+     * Lets a number be tried again on the next send.
+     */
+    @DeleteMapping("/{number}")
+    public ResponseEntity<Void> remove(@PathVariable String number) {
+        logger.info("Received DELETE request for /invalid-numbers/{}", number);
+        return invalidNumberCache.remove(number) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Purges the whole cache, or only entries with the given status (e.g. "Chat Not Ready").
+     */
+    @DeleteMapping
+    public ResponseEntity<Map<String, Integer>> purge(@RequestParam(required = false) String status) {
+        logger.info("Received DELETE request for /invalid-numbers (status={})", status);
+        int removed = invalidNumberCache.purge(status);
+        invalidNumberCache.save();
+        return ResponseEntity.ok(Map.of("removed", removed));
+    }
+
+    private static InvalidNumberResponse toResponse(InvalidNumberCache.Entry entry) {
+        return new InvalidNumberResponse(entry.number(), entry.status(), entry.markedAtMillis(),
+                entry.expiresAtMillis(), entry.hits());
+    }
+}
@@ -0,0 +1,80 @@
+package third.party.communication.whatsapp.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import third.party.communication.whatsapp.dto.JobStatusResponse;
+import third.party.communication.whatsapp.service.Job;
+import third.party.communication.whatsapp.service.JobService;
+
+import java.util.Locale;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/jobs")
+public class JobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobController.class);
+    private static final String SUBMITTER_HEADER = "X-Submitter";
+    private final JobService jobService;
+
+    @Autowired
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Progress of a send or delete job.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatusResponse> getJob(@PathVariable String id) {
+        return jobService.find(id)
+                .map(job -> ResponseEntity.ok(toResponse(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancels a job. Running jobs stop before their next number.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<JobStatusResponse> cancelJob(@PathVariable String id) {
+        logger.info("Received DELETE request for /jobs/{}", id);
+        return jobService.cancel(id)
+                .map(job -> ResponseEntity.accepted().body(toResponse(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    static JobStatusResponse toResponse(Job job) {
+        return new JobStatusResponse(job.getId(), job.getType().name(), job.getPriority().name(), job.getSubmitter(), job.getStatus().name(),
+                job.getTotal(), job.getProcessed(), job.getSucceeded(), job.getFailed(),
+                job.getThroughputPerMinute(), job.getSubmittedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+
+    /**
+     * Who a job is for, so sessions are shared fairly between callers: the X-Submitter header,
+     * otherwise the caller's address.
+     */
+    static String submitter(HttpServletRequest request) {
+        String header = request.getHeader(SUBMITTER_HEADER);
+        return header != null && !header.isBlank() ? header.trim() : request.getRemoteAddr();
+    }
+
+    /**
+     * Parses a priority name; {@code fallback} when none is given.
+     *
+     * @throws IllegalArgumentException for an unknown name
+     */
+    static Job.Priority priority(String value, Job.Priority fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Job.Priority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown priority '" + value + "'; use URGENT, NORMAL or BULK.");
+        }
+    }
+}
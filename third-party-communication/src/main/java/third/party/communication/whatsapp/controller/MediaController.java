@@ -0,0 +1,63 @@
+package third.party.communication.whatsapp.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import third.party.communication.whatsapp.dto.MediaResponse;
+import third.party.communication.whatsapp.service.MediaStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/media")
+public class MediaController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaController.class);
+    private final MediaStore mediaStore;
+
+    @Autowired
+    public MediaController(MediaStore mediaStore) {
+        this.mediaStore = mediaStore;
+    }
+
+    /**
+     * Uploads campaign attachments (multipart field "files"). Each file is validated and prepared once;
+     * send the returned ids as mediaIds to /run-script.
+     */
+    @PostMapping
+    public ResponseEntity<?> upload(@RequestParam("files") List<MultipartFile> files) {
+        logger.info("Received POST request for /media with {} files", files.size());
+        List<MediaResponse> stored = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            try (InputStream in = file.getInputStream()) {
+                stored.add(toResponse(mediaStore.store(file.getOriginalFilename(), file.getContentType(), in)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+            } catch (IOException e) {
+                logger.error("Could not store upload {}: {}", file.getOriginalFilename(), e.getMessage(), e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("status", "error", "message", "Could not store " + file.getOriginalFilename()));
+            }
+        }
+        return ResponseEntity.ok(stored);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<MediaResponse> get(@PathVariable String id) throws IOException {
+        return mediaStore.find(id).map(item -> ResponseEntity.ok(toResponse(item)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static MediaResponse toResponse(MediaStore.MediaItem item) {
+        return new MediaResponse(item.id(), item.kind().name(), item.fileName(), item.sizeBytes());
+    }
+}
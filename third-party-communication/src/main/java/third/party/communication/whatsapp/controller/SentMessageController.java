@@ -0,0 +1,107 @@
+package third.party.communication.whatsapp.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import third.party.communication.whatsapp.dto.SentMessageResponse;
+import third.party.communication.whatsapp.service.Job;
+import third.party.communication.whatsapp.service.JobService;
+import third.party.communication.whatsapp.service.RunJournal;
+import third.party.communication.whatsapp.service.RunJournalService;
+import third.party.communication.whatsapp.service.RunSpec;
+import third.party.communication.whatsapp.service.SentMessageStore;
+import third.party.communication.whatsapp.service.WhatsappService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Messages recorded at send time, and deletion by campaign (send job) or by message id.
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/sent-messages")
+public class SentMessageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SentMessageController.class);
+    private final SentMessageStore sentMessageStore;
+    private final WhatsappService whatsappService;
+    private final JobService jobService;
+    private final RunJournalService runJournalService;
+
+    @Autowired
+    public SentMessageController(SentMessageStore sentMessageStore, WhatsappService whatsappService, JobService jobService,
+                                 RunJournalService runJournalService) {
+        this.sentMessageStore = sentMessageStore;
+        this.whatsappService = whatsappService;
+        this.jobService = jobService;
+        this.runJournalService = runJournalService;
+    }
+
+    /**
+     * Deletable messages of one send job (?jobId=) or to one number (?number=).
+     */
+    @GetMapping
+    public ResponseEntity<List<SentMessageResponse>> list(@RequestParam(required = false) String jobId,
+                                                          @RequestParam(required = false) String number) {
+        if ((jobId == null) == (number == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<SentMessageStore.SentMessage> messages = jobId != null ? sentMessageStore.forJob(jobId) : sentMessageStore.forNumber(number);
+        return ResponseEntity.ok(messages.stream().map(SentMessageController::toResponse).toList());
+    }
+
+    /**
+     * Deletes everything a send job sent, for everyone.
+     */
+    @DeleteMapping
+    public ResponseEntity<Map<String, Object>> deleteCampaign(@RequestParam String jobId, HttpServletRequest request) {
+        logger.info("Received DELETE request for /sent-messages (jobId={})", jobId);
+        return startDelete(jobId, sentMessageStore.forJob(jobId), request);
+    }
+
+    @DeleteMapping("/{messageId}")
+    public ResponseEntity<Map<String, Object>> deleteMessage(@PathVariable String messageId, HttpServletRequest request) {
+        logger.info("Received DELETE request for /sent-messages/{}", messageId);
+        SentMessageStore.SentMessage message = sentMessageStore.find(messageId);
+        return startDelete(messageId, message == null ? List.of() : List.of(message), request);
+    }
+
+    private ResponseEntity<Map<String, Object>> startDelete(String target, List<SentMessageStore.SentMessage> messages,
+                                                            HttpServletRequest request) {
+        if (messages.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("status", "error", "message", "No deletable messages found."));
+        }
+        int chats = (int) messages.stream().map(SentMessageStore.SentMessage::number).distinct().count();
+        RunJournal journal;
+        try {
+            journal = runJournalService.create(RunSpec.deleteSent(target), List.of());
+        } catch (IOException e) {
+            logger.error("Could not create run journal for a delete: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Could not record the run."));
+        }
+        try {
+            Job job = jobService.submit(Job.Type.DELETE, chats, Job.Priority.NORMAL, JobController.submitter(request),
+                    j -> whatsappService.runSeleniumDeleteSentLogic(j, messages, journal));
+            return ResponseEntity.accepted().body(Map.of("status", "success",
+                    "message", "Delete script started! Track progress at /jobs/" + job.getId(),
+                    "jobId", job.getId(), "messages", messages.size(), "chats", chats));
+        } catch (RejectedExecutionException e) {
+            journal.finish(true);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("status", "error", "message", "Too many jobs queued. Try again later."));
+        }
+    }
+
+    private static SentMessageResponse toResponse(SentMessageStore.SentMessage message) {
+        return new SentMessageResponse(message.messageId(), message.jobId(), message.number(), message.sentAtMillis());
+    }
+}
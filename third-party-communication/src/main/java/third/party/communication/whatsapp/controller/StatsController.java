@@ -0,0 +1,27 @@
+package third.party.communication.whatsapp.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import third.party.communication.whatsapp.dto.DeliveryStatsResponse;
+import third.party.communication.whatsapp.service.DeliveryStatsService;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class StatsController {
+
+    private final DeliveryStatsService deliveryStatsService;
+
+    @Autowired
+    public StatsController(DeliveryStatsService deliveryStatsService) {
+        this.deliveryStatsService = deliveryStatsService;
+    }
+
+    /**
+     * Delivery counts per status (all time, today, per hour) and, if asked, the last status of one number.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<DeliveryStatsResponse> getStats(@RequestParam(required = false) String number) {
+        return ResponseEntity.ok(deliveryStatsService.snapshot(number));
+    }
+}
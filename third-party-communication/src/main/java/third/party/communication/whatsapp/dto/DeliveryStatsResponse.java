@@ -0,0 +1,17 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class DeliveryStatsResponse {
+    private Map<String, Long> totals;
+    private Map<String, Long> today;
+    private List<StatsBucket> hourly;
+    private int trackedNumbers;
+    private NumberStatus lastStatus; // only when a number was asked for
+}
@@ -0,0 +1,14 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class InvalidNumberResponse {
+    private String number;
+    private String status;
+    private long markedAt;
+    private long expiresAt;
+    private int skipped;
+}
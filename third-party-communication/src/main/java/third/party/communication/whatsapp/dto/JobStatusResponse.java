@@ -0,0 +1,22 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class JobStatusResponse {
+    private String id;
+    private String type;
+    private String priority;
+    private String submitter;
+    private String status;
+    private int total;
+    private int processed;
+    private int success;
+    private int failed;
+    private double throughputPerMinute;
+    private long submittedAt;
+    private long startedAt;
+    private long finishedAt;
+}
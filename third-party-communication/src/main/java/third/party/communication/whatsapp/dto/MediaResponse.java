@@ -0,0 +1,13 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class MediaResponse {
+    private String id;       // pass in SendRequest.mediaIds
+    private String kind;     // IMAGE, VIDEO or DOCUMENT
+    private String fileName; // as stored, e.g. photo.jpg after recompression
+    private long size;
+}
@@ -0,0 +1,12 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class NumberStatus {
+    private String number;
+    private String status;
+    private String timestamp;
+}
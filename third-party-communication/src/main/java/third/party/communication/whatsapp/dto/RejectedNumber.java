@@ -0,0 +1,11 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RejectedNumber {
+    private String input;
+    private String reason;
+}
@@ -10,4 +10,7 @@ import java.util.List; // <-- Import List
 public class SendRequest {
     private String message;
     private String numbers; // <<< MUST BE List<String>
+    private String countryCode; // for numbers without one; optional, defaults to whatsapp.numbers.default-country-code
+    private List<String> mediaIds; // ids returned by POST /media; optional
+    private String priority; // URGENT, NORMAL or BULK; optional, defaults to NORMAL
 }
\ No newline at end of file
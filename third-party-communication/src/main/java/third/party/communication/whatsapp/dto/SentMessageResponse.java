@@ -0,0 +1,13 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SentMessageResponse {
+    private String messageId; // WhatsApp's data-id of the bubble
+    private String jobId;
+    private String number;
+    private long sentAt;
+}
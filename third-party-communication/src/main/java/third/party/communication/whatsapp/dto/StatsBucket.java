@@ -0,0 +1,13 @@
+package third.party.communication.whatsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class StatsBucket {
+    private String start; // yyyy-MM-dd HH:mm:ss
+    private Map<String, Long> counts;
+}
@@ -0,0 +1,66 @@
+package third.party.communication.whatsapp.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The browser steps of a send, behind one interface so the transport can be chosen with
+ * {@code whatsapp.browser.automation}: {@link WebDriverAutomation} (classic WebDriver, one
+ * chromedriver round trip per command) or {@link CdpAutomation} (DevTools Protocol straight to
+ * the browser, one call per step). Both drive the session's own ChromeDriver tab, so the delete
+ * flow, which still uses the driver directly, works with either.
+ * <p>
+ * A lost browser surfaces as a {@link org.openqa.selenium.WebDriverException}, as with the driver.
+ */
+public interface BrowserAutomation {
+
+    enum Backend { WEBDRIVER, CDP }
+
+    /**
+     * Opens {@code url} in the session's tab and returns once the page has loaded.
+     */
+    void navigate(WhatsappSession session, String url);
+
+    /**
+     * Waits until an opened chat link is no longer loading; LOADING if that does not happen
+     * within {@code timeout}. The invalid-number popup is dismissed before INVALID is returned.
+     */
+    ChatStateProbe.State awaitChat(WhatsappSession session, Duration timeout);
+
+    /**
+     * The data-id of the newest outgoing bubble in the open chat, or null if there is none.
+     */
+    String lastOutgoingId(WhatsappSession session);
+
+    /**
+     * Attaches {@code files} through the file input at {@code inputXpath} and sends them, with
+     * {@code caption} if not null. Returns once the preview has closed (or gave up closing).
+     * Throws if the upload fails; the caller then calls {@link #closeAttachmentPreview}.
+     */
+    void attach(WhatsappSession session, String inputXpath, List<Path> files, String caption);
+
+    /**
+     * Closes an attachment preview left open by a failed upload. Never throws.
+     */
+    void closeAttachmentPreview(WhatsappSession session);
+
+    /**
+     * Puts {@code message} into the chat editor and presses Enter.
+     *
+     * @return how the text got into the editor
+     */
+    MessageComposer.Mode typeAndSend(WhatsappSession session, String message);
+
+    /**
+     * Waits until an outgoing bubble newer than {@code previousId} shows the configured tick.
+     *
+     * @return the new bubble's data-id, or null if WhatsApp did not confirm in time
+     */
+    String awaitConfirmation(WhatsappSession session, String previousId);
+
+    /**
+     * The data-ids of the outgoing bubbles newer than {@code previousId}, oldest first.
+     */
+    List<String> outgoingIdsSince(WhatsappSession session, String previousId);
+}
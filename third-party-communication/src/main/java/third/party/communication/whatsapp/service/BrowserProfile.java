@@ -0,0 +1,174 @@
+package third.party.communication.whatsapp.service;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How Chrome is launched for WhatsApp Web: headed or headless, trimmed or not (blocked
+ * non-essential resources, no extensions or background networking), and at a fixed viewport
+ * or maximized. The defaults match the old behaviour
+ * (a maximized, headed browser); servers can switch to a trimmed headless profile.
+ */
+@Component
+public class BrowserProfile {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrowserProfile.class);
+
+    public enum Mode { HEADED, HEADLESS }
+
+    // Never needed to send: avatars and web fonts. Media hosts (mmg.whatsapp.net, media-*.cdn.whatsapp.net)
+    // must stay reachable: outgoing attachments are uploaded to them, and a blocked URL blocks every method.
+    static final List<String> DEFAULT_BLOCKED_URLS = List.of(
+            "*://pps.whatsapp.net/*",
+            "*.woff", "*.woff2", "*.ttf", "*.otf");
+
+    private static final List<String> TRIM_ARGUMENTS = List.of(
+            "--disable-extensions",
+            "--disable-background-networking",
+            "--disable-component-update",
+            "--disable-default-apps",
+            "--disable-sync",
+            "--no-first-run",
+            "--mute-audio");
+
+    private static final Dimension DEFAULT_HEADLESS_WINDOW = new Dimension(1366, 900);
+    private static final Object DRIVER_SETUP_LOCK = new Object();
+    private static volatile boolean driverBinarySetUp;
+
+    // --- Configuration ---
+    private final Mode mode;
+    private final boolean trimmed;
+    private final List<String> blockedUrls;
+    private final Dimension windowSize; // null = maximize
+    private final boolean noSandbox;
+
+    @Autowired
+    public BrowserProfile(@Value("${whatsapp.browser.mode:HEADED}") Mode mode,
+                          @Value("${whatsapp.browser.trim:false}") boolean trimmed,
+                          @Value("${whatsapp.browser.blocked-urls:}") List<String> blockedUrls,
+                          @Value("${whatsapp.browser.window-size:}") String windowSize,
+                          @Value("${whatsapp.browser.no-sandbox:false}") boolean noSandbox) {
+        this.mode = mode;
+        this.trimmed = trimmed;
+        List<String> urls = blockedUrls.stream().map(String::trim).filter(s -> !s.isEmpty()).toList();
+        this.blockedUrls = urls.isEmpty() ? DEFAULT_BLOCKED_URLS : urls;
+        Dimension size = parseWindowSize(windowSize);
+        // Maximizing a headless window does nothing, so it needs an explicit viewport.
+        this.windowSize = size == null && mode == Mode.HEADLESS ? DEFAULT_HEADLESS_WINDOW : size;
+        this.noSandbox = noSandbox;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isTrimmed() {
+        return trimmed;
+    }
+
+    /**
+     * Starts Chrome on the given user-data-dir with this profile applied. The caller owns the driver.
+     */
+    public WebDriver start(Path userDataDir) {
+        return start(userDataDir, List.of());
+    }
+
+    /**
+     * Like {@link #start(Path)}, with extra Chrome arguments, e.g. a proxy for tests.
+     */
+    WebDriver start(Path userDataDir, List<String> extraArguments) {
+        if (!driverBinarySetUp) {
+            synchronized (DRIVER_SETUP_LOCK) {
+                if (!driverBinarySetUp) {
+                    logger.info("Setting up ChromeDriver binary...");
+                    WebDriverManager.chromedriver().setup();
+                    driverBinarySetUp = true;
+                }
+            }
+        }
+        ChromeOptions options = toChromeOptions(userDataDir);
+        options.addArguments(extraArguments);
+        ChromeDriver driver = new ChromeDriver(options);
+        try {
+            if (windowSize == null) {
+                driver.manage().window().maximize();
+            }
+            if (mode == Mode.HEADLESS) {
+                hideHeadlessUserAgent(driver);
+            }
+            if (trimmed) {
+                driver.executeCdpCommand("Network.enable", Map.of());
+                driver.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", blockedUrls));
+            }
+        } catch (RuntimeException e) {
+            try { driver.quit(); } catch (Exception quitEx) { /* Ignore */ }
+            throw e;
+        }
+        return driver;
+    }
+
+    ChromeOptions toChromeOptions(Path userDataDir) {
+        ChromeOptions options = new ChromeOptions();
+        List<String> arguments = new ArrayList<>();
+        arguments.add("user-data-dir=" + userDataDir.toAbsolutePath());
+        if (mode == Mode.HEADLESS) {
+            arguments.add("--headless=new");
+            arguments.add("--disable-gpu");
+            arguments.add("--disable-dev-shm-usage");
+        }
+        if (noSandbox) {
+            arguments.add("--no-sandbox");
+        }
+        if (windowSize != null) {
+            arguments.add("--window-size=" + windowSize.getWidth() + "," + windowSize.getHeight());
+        }
+        if (trimmed) {
+            arguments.addAll(TRIM_ARGUMENTS);
+        }
+        options.addArguments(arguments);
+        return options;
+    }
+
+    /**
+     * WhatsApp Web refuses "HeadlessChrome" user agents, so report the normal Chrome one.
+     */
+    private static void hideHeadlessUserAgent(ChromeDriver driver) {
+        try {
+            String userAgent = (String) ((JavascriptExecutor) driver).executeScript("return navigator.userAgent;");
+            if (userAgent != null && userAgent.contains("HeadlessChrome")) {
+                driver.executeCdpCommand("Network.setUserAgentOverride",
+                        Map.of("userAgent", userAgent.replace("HeadlessChrome", "Chrome")));
+            }
+        } catch (WebDriverException e) {
+            logger.warn("Could not override the headless user agent: {}", e.getMessage());
+        }
+    }
+
+    private static Dimension parseWindowSize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int comma = value.indexOf(',');
+        try {
+            return new Dimension(Integer.parseInt(value.substring(0, comma).trim()),
+                    Integer.parseInt(value.substring(comma + 1).trim()));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("whatsapp.browser.window-size must look like 1366,900 but was: " + value);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import third.party.communication.whatsapp.dto.RejectedNumber;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a campaign's recipients from a CSV or NDJSON upload into a running send job. Records
+ * are parsed one at a time and handed to the job through a bounded {@link RecipientFeed}, so the
+ * first messages go out while the rest is still being read and memory does not grow with the
+ * campaign. Only the set of numbers already seen (for de-duplication) is kept per campaign.
+ *
+ * <p>CSV needs a header row; the number is taken from a column named number, phone, mobile or
+ * whatsapp (else the first column) and the other columns become template variables. NDJSON has
+ * one object per line with a "number" field; its other fields become variables.
+ */
+@Service
+public class CampaignIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CampaignIngestService.class);
+
+    private static final List<String> NUMBER_COLUMNS = List.of("number", "phone", "mobile", "whatsapp");
+
+    public enum Format { CSV, NDJSON }
+
+    /**
+     * What was read from the upload. {@code rejected} holds the first few rejected entries only.
+     */
+    public record Summary(int accepted, int duplicates, int skipped, int rejectedCount,
+                          List<RejectedNumber> rejected, String error) {
+    }
+
+    private final NumberNormalizer numberNormalizer;
+    private final InvalidNumberCache invalidNumberCache;
+    private final HistoryWriter historyWriter;
+    private final ObjectMapper objectMapper;
+
+    // --- Configuration ---
+    private final int bufferSize;
+    private final int maxRejectedReported;
+
+    @Autowired
+    public CampaignIngestService(NumberNormalizer numberNormalizer, InvalidNumberCache invalidNumberCache,
+                                 HistoryWriter historyWriter, ObjectMapper objectMapper,
+                                 @Value("${whatsapp.ingest.buffer-size:500}") int bufferSize,
+                                 @Value("${whatsapp.ingest.max-rejected-reported:100}") int maxRejectedReported) {
+        this.numberNormalizer = numberNormalizer;
+        this.invalidNumberCache = invalidNumberCache;
+        this.historyWriter = historyWriter;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxRejectedReported = maxRejectedReported;
+    }
+
+    public RecipientFeed newFeed() {
+        return new RecipientFeed(bufferSize);
+    }
+
+    /**
+     * Reads recipients from {@code in} into {@code feed} until the input ends, the job stops
+     * taking recipients or the input turns out to be malformed. Recipients read before an error
+     * are still sent. Always completes the feed. Accepted recipients are also added to the run's
+     * journal, so the campaign can be resumed after a restart.
+     *
+     * @param countryCode for national numbers; null for the configured default
+     * @throws IllegalArgumentException if {@code countryCode} is invalid
+     */
+    public Summary ingest(Job job, RecipientFeed feed, RunJournal journal, InputStream in, Format format,
+                          String countryCode) throws InterruptedException {
+        Intake intake = new Intake(job, feed, journal, numberNormalizer.resolveCountryCode(countryCode));
+        String error = null;
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            if (format == Format.CSV) {
+                readCsv(reader, intake);
+            } else {
+                readNdjson(reader, intake);
+            }
+        } catch (JsonProcessingException e) {
+            error = "Malformed NDJSON at line " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage();
+        } catch (IOException e) {
+            error = e.getMessage();
+        } finally {
+            feed.complete();
+        }
+        if (error != null) {
+            logger.warn("Campaign upload for job {} stopped after {} recipients: {}", job.getId(), intake.accepted, error);
+        }
+        if (intake.skipped > 0) {
+            logger.info("Skipped {} numbers known to be invalid or unreachable.", intake.skipped);
+        }
+        return new Summary(intake.accepted, intake.duplicates, intake.skipped, intake.rejectedCount, intake.rejected, error);
+    }
+
+    private void readCsv(Reader reader, Intake intake) throws IOException, InterruptedException {
+        try (CsvParser csv = new CsvParser(reader)) {
+            List<String> header = csv.nextRecord();
+            if (header == null) {
+                return;
+            }
+            int numberColumn = 0;
+            for (int i = 0; i < header.size(); i++) {
+                if (NUMBER_COLUMNS.contains(header.get(i).trim().toLowerCase(Locale.ROOT))) {
+                    numberColumn = i;
+                    break;
+                }
+            }
+            List<String> record;
+            while ((record = csv.nextRecord()) != null) {
+                if (numberColumn >= record.size()) {
+                    continue;
+                }
+                Map<String, String> variables = new HashMap<>();
+                for (int i = 0; i < record.size() && i < header.size(); i++) {
+                    if (i != numberColumn) {
+                        variables.put(header.get(i).trim(), record.get(i));
+                    }
+                }
+                if (!intake.offer(record.get(numberColumn), variables)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readNdjson(Reader reader, Intake intake) throws IOException, InterruptedException {
+        try (MappingIterator<JsonNode> lines = objectMapper.readerFor(JsonNode.class).readValues(reader)) {
+            while (lines.hasNextValue()) {
+                JsonNode node = lines.nextValue();
+                JsonNode number = node.get("number");
+                if (!node.isObject() || number == null || !number.isValueNode()) {
+                    intake.reject(node.toString(), "Missing number");
+                    continue;
+                }
+                Map<String, String> variables = new HashMap<>();
+                for (Map.Entry<String, JsonNode> field : node.properties()) {
+                    if (!field.getKey().equals("number") && field.getValue().isValueNode()) {
+                        variables.put(field.getKey(), field.getValue().asText());
+                    }
+                }
+                if (!intake.offer(number.asText(), variables)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-upload state: normalizes, de-duplicates and filters each entry before it is queued.
+     */
+    private final class Intake {
+        private final Job job;
+        private final RecipientFeed feed;
+        private final RunJournal journal;
+        private final String countryCode;
+        private final LongLongHashMap seen = new LongLongHashMap(1024);
+        private final List<RejectedNumber> rejected = new ArrayList<>();
+        private int accepted;
+        private int duplicates;
+        private int skipped;
+        private int rejectedCount;
+
+        Intake(Job job, RecipientFeed feed, RunJournal journal, String countryCode) {
+            this.job = job;
+            this.feed = feed;
+            this.journal = journal;
+            this.countryCode = countryCode;
+        }
+
+        /**
+         * @return false once the job no longer takes recipients
+         */
+        boolean offer(String entry, Map<String, String> variables) throws InterruptedException {
+            if (entry.isBlank()) {
+                return true;
+            }
+            NumberNormalizer.Single single = numberNormalizer.normalizeOne(entry, countryCode);
+            if (single.number() == null) {
+                reject(entry.trim(), single.reason());
+                return true;
+            }
+            String number = single.number();
+            if (seen.put(Long.parseLong(number), 0, -1) != -1) {
+                duplicates++;
+                return true;
+            }
+            InvalidNumberCache.Entry known = invalidNumberCache.check(number);
+            job.addToTotal(1);
+            if (known != null) {
+                historyWriter.append(HistoryRecord.of(number, WhatsappService.SKIPPED_STATUS, known.status()));
+                journal.settle(number, false);
+                job.recordResult(false);
+                skipped++;
+                return true;
+            }
+            RecipientFeed.Recipient recipient = new RecipientFeed.Recipient(number, variables);
+            journal.addRecipient(number, variables);
+            // Waiting here is the backpressure: the upload is not read further until shards catch up
+            while (!feed.offer(recipient, 200, TimeUnit.MILLISECONDS)) {
+                if (feed.isAbandoned() || job.isFinished() || job.isCancelRequested()) {
+                    job.addToTotal(-1);
+                    return false;
+                }
+            }
+            accepted++;
+            return true;
+        }
+
+        void reject(String entry, String reason) {
+            rejectedCount++;
+            if (rejected.size() < maxRejectedReported) {
+                rejected.add(new RejectedNumber(entry, reason));
+            }
+        }
+    }
+}
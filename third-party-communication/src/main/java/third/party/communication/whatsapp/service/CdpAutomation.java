@@ -0,0 +1,374 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drives the send flow over the DevTools Protocol, straight to the browser instead of through
+ * chromedriver. Waits run inside the page as one awaited promise on a MutationObserver, so
+ * "wait for the chat, the preview or the tick" is one call rather than a poll every 150-200 ms,
+ * files are set with {@code DOM.setFileInputFiles} and keys go in with {@code Input.*}.
+ * The connection is opened per session on the tab ChromeDriver created, found through the
+ * {@code debuggerAddress} ChromeDriver reports.
+ */
+@Component
+@ConditionalOnProperty(name = "whatsapp.browser.automation", havingValue = "CDP")
+public class CdpAutomation implements BrowserAutomation {
+
+    private static final Logger logger = LoggerFactory.getLogger(CdpAutomation.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration COMMAND_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration PAGE_LOAD_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration MEDIA_TIMEOUT = Duration.ofSeconds(20);
+    private static final Duration EDITOR_TIMEOUT = Duration.ofSeconds(10);
+    // Added to in-page timeouts, so the page gives up before the command does
+    private static final Duration SCRIPT_MARGIN = Duration.ofSeconds(5);
+
+    private static final String PENDING_OR_SENT_ICON_CSS = "span[data-icon='msg-time'], span[data-icon='msg-check'], span[data-icon='msg-dblcheck']";
+    private static final String SENT_ICON_CSS = "span[data-icon='msg-check'], span[data-icon='msg-dblcheck']";
+
+    // Shared by every script: waitFor resolves with the first non-null check() after a DOM change, or null on timeout
+    private static final String HELPERS = """
+            const waitFor = (check, timeoutMs) => new Promise(resolve => {
+                const first = check();
+                if (first != null) { resolve(first); return; }
+                const observer = new MutationObserver(() => {
+                    const value = check();
+                    if (value != null) { observer.disconnect(); clearTimeout(timer); resolve(value); }
+                });
+                const timer = setTimeout(() => { observer.disconnect(); resolve(null); }, timeoutMs);
+                observer.observe(document, {childList: true, subtree: true, attributes: true, characterData: true});
+            });
+            const byXpath = xpath => document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+            const clickable = el => el && el.getClientRects().length > 0 && !el.disabled ? el : null;
+            const outgoing = () => {
+                const found = document.evaluate(L.outgoing, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);
+                const all = [];
+                for (let i = 0; i < found.snapshotLength; i++) { all.push(found.snapshotItem(i)); }
+                return all;
+            };
+            const idOf = bubble => { const holder = bubble.closest('[data-id]'); return holder ? holder.getAttribute('data-id') : null; };
+            const lastOutgoing = () => { const all = outgoing(); return all.length ? all[all.length - 1] : null; };
+            """;
+
+    private static final String AWAIT_CHAT_SCRIPT = """
+            const state = await waitFor(() => {
+                const ok = document.querySelector(L.invalidOk);
+                if (ok) { ok.click(); return 'INVALID'; }
+                if (document.querySelector(L.chatEditor) || document.querySelector(L.anyEditor)) { return 'READY'; }
+                if (document.querySelector(L.loginQr)) { return 'LOGGED_OUT'; }
+                return null;
+            }, args.timeoutMs);
+            return state || 'LOADING';
+            """;
+
+    private static final String LAST_OUTGOING_ID_SCRIPT = """
+            const last = lastOutgoing();
+            return last ? idOf(last) : null;
+            """;
+
+    private static final String OPEN_ATTACH_SCRIPT = """
+            const clip = await waitFor(() => clickable(document.querySelector(L.attach)), args.timeoutMs);
+            if (!clip) { throw new Error('Attach button not found'); }
+            clip.click();
+            if (!await waitFor(() => byXpath(args.input), args.timeoutMs)) { throw new Error('File input not found'); }
+            return true;
+            """;
+
+    private static final String FILE_INPUT_SCRIPT = "return byXpath(args.input);";
+
+    private static final String AWAIT_PREVIEW_SCRIPT = """
+            if (!await waitFor(() => clickable(byXpath(L.mediaSend)), args.timeoutMs)) { throw new Error('Attachment preview did not open'); }
+            return true;
+            """;
+
+    private static final String SEND_PREVIEW_SCRIPT = """
+            byXpath(L.mediaSend).click();
+            return await waitFor(() => byXpath(L.mediaSend) ? null : true, args.timeoutMs) === true;
+            """;
+
+    private static final String CLOSE_PREVIEW_SCRIPT = """
+            const close = byXpath(L.mediaClose);
+            if (close) { close.click(); }
+            return close != null;
+            """;
+
+    // Same insertion as MessageComposer: a synthetic paste Lexical handles itself, else execCommand
+    private static final String INSERT_SCRIPT = """
+            const editor = await waitFor(() => document.querySelector(L.anyEditor), args.timeoutMs);
+            if (!editor) { throw new Error('Message editor not found'); }
+            editor.focus();
+            if (!args.bulk) { return null; }
+            const data = new DataTransfer();
+            data.setData('text/plain', args.text);
+            const paste = new ClipboardEvent('paste', {clipboardData: data, bubbles: true, cancelable: true});
+            editor.dispatchEvent(paste);
+            if (!paste.defaultPrevented) {
+                document.execCommand('insertText', false, args.text);
+            }
+            return editor.innerText;
+            """;
+
+    private static final String CLEAR_SCRIPT = """
+            const editor = document.querySelector(L.anyEditor);
+            editor.focus();
+            document.execCommand('selectAll', false, null);
+            document.execCommand('delete', false, null);
+            return true;
+            """;
+
+    private static final String AWAIT_CONFIRMATION_SCRIPT = """
+            return await waitFor(() => {
+                const last = lastOutgoing();
+                if (!last) { return null; }
+                const id = idOf(last);
+                if (!id || id === args.previousId || !last.querySelector(args.icon)) { return null; }
+                return id;
+            }, args.timeoutMs);
+            """;
+
+    private static final String OUTGOING_IDS_SINCE_SCRIPT = """
+            const all = outgoing();
+            const ids = [];
+            for (let i = all.length - 1; i >= 0; i--) {
+                const id = idOf(all[i]);
+                if (id != null && id === args.previousId) { break; }
+                if (id != null) { ids.push(id); }
+            }
+            return ids.reverse();
+            """;
+
+    private final ObjectMapper objectMapper;
+    private final MessageComposer.Mode composeMode;
+    private final boolean confirmPending;
+    private final Duration confirmTimeout;
+    private final String locators;
+    private final Map<WhatsappSession, CdpConnection> connections = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Autowired
+    public CdpAutomation(ObjectMapper objectMapper,
+                         @Value("${whatsapp.send.compose-mode:BULK}") MessageComposer.Mode composeMode,
+                         @Value("${whatsapp.send.confirm-level:SENT}") String confirmLevel,
+                         @Value("${whatsapp.send.confirm-timeout-seconds:60}") long confirmTimeoutSeconds) {
+        this.objectMapper = objectMapper;
+        this.composeMode = composeMode;
+        this.confirmPending = "PENDING".equalsIgnoreCase(confirmLevel);
+        this.confirmTimeout = Duration.ofSeconds(confirmTimeoutSeconds);
+        Map<String, String> l = new HashMap<>();
+        l.put("chatEditor", WhatsappLocators.CHAT_EDITOR_CSS);
+        l.put("anyEditor", WhatsappLocators.ANY_EDITOR_CSS);
+        l.put("invalidOk", WhatsappLocators.INVALID_NUMBER_OK_CSS);
+        l.put("loginQr", WhatsappLocators.LOGIN_QR_CSS);
+        l.put("attach", WhatsappLocators.ATTACH_BUTTON_CSS);
+        l.put("mediaSend", WhatsappLocators.MEDIA_SEND_BUTTON_XPATH);
+        l.put("mediaClose", WhatsappLocators.MEDIA_CLOSE_BUTTON_XPATH);
+        l.put("outgoing", WhatsappLocators.OUTGOING_MESSAGE_XPATH);
+        this.locators = json(l);
+        logger.info("Browser automation: DevTools Protocol.");
+    }
+
+    @Override
+    public void navigate(WhatsappSession session, String url) {
+        CdpConnection cdp = connection(session);
+        CompletableFuture<JsonNode> loaded = cdp.nextEvent("Page.loadEventFired");
+        JsonNode navigation = cdp.send("Page.navigate", Map.of("url", url), COMMAND_TIMEOUT);
+        if (navigation.hasNonNull("errorText")) {
+            throw new WebDriverException("Navigation to " + url + " failed: " + navigation.get("errorText").asText());
+        }
+        cdp.await(loaded, "Page load", PAGE_LOAD_TIMEOUT);
+    }
+
+    @Override
+    public ChatStateProbe.State awaitChat(WhatsappSession session, Duration timeout) {
+        JsonNode state = evaluate(session, AWAIT_CHAT_SCRIPT, Map.of("timeoutMs", timeout.toMillis()), timeout);
+        return ChatStateProbe.State.valueOf(state.asText());
+    }
+
+    @Override
+    public String lastOutgoingId(WhatsappSession session) {
+        return textOrNull(evaluate(session, LAST_OUTGOING_ID_SCRIPT, Map.of(), Duration.ZERO));
+    }
+
+    @Override
+    public void attach(WhatsappSession session, String inputXpath, List<Path> files, String caption) {
+        CdpConnection cdp = connection(session);
+        Map<String, Object> args = Map.of("input", inputXpath, "timeoutMs", MEDIA_TIMEOUT.toMillis());
+        evaluate(session, OPEN_ATTACH_SCRIPT, args, MEDIA_TIMEOUT.multipliedBy(2));
+
+        // Not by value: DOM.setFileInputFiles needs a handle on the element itself
+        JsonNode input = cdp.send("Runtime.evaluate", Map.of("expression", expression(FILE_INPUT_SCRIPT, args),
+                "awaitPromise", true), COMMAND_TIMEOUT);
+        String objectId = input.path("result").path("objectId").asText(null);
+        if (objectId == null) {
+            throw new WebDriverException("File input " + inputXpath + " disappeared before files were set");
+        }
+        List<String> paths = files.stream().map(f -> f.toAbsolutePath().toString()).toList();
+        cdp.send("DOM.setFileInputFiles", Map.of("files", paths, "objectId", objectId), COMMAND_TIMEOUT);
+
+        evaluate(session, AWAIT_PREVIEW_SCRIPT, args, MEDIA_TIMEOUT);
+        if (caption != null) {
+            compose(session, caption);
+        }
+        // The next upload needs the chat back, not the closing preview
+        if (!evaluate(session, SEND_PREVIEW_SCRIPT, args, MEDIA_TIMEOUT).asBoolean()) {
+            logger.warn("Attachment preview still open after sending {} file(s).", files.size());
+        }
+    }
+
+    @Override
+    public void closeAttachmentPreview(WhatsappSession session) {
+        try {
+            evaluate(session, CLOSE_PREVIEW_SCRIPT, Map.of(), Duration.ZERO);
+        } catch (Exception closeEx) {
+            // Ignore
+        }
+    }
+
+    @Override
+    public MessageComposer.Mode typeAndSend(WhatsappSession session, String message) {
+        MessageComposer.Mode mode = compose(session, message);
+        pressEnter(connection(session), 0);
+        return mode;
+    }
+
+    @Override
+    public String awaitConfirmation(WhatsappSession session, String previousId) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("previousId", previousId);
+        args.put("icon", confirmPending ? PENDING_OR_SENT_ICON_CSS : SENT_ICON_CSS);
+        args.put("timeoutMs", confirmTimeout.toMillis());
+        String id = textOrNull(evaluate(session, AWAIT_CONFIRMATION_SCRIPT, args, confirmTimeout));
+        if (id == null) {
+            logger.warn("WhatsApp did not confirm the send within {} seconds.", confirmTimeout.toSeconds());
+        }
+        return id;
+    }
+
+    @Override
+    public List<String> outgoingIdsSince(WhatsappSession session, String previousId) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("previousId", previousId);
+        List<String> ids = new ArrayList<>();
+        evaluate(session, OUTGOING_IDS_SINCE_SCRIPT, args, Duration.ZERO).forEach(id -> ids.add(id.asText()));
+        return ids;
+    }
+
+    /**
+     * Puts the text into the focused editor: pasted in one go in BULK mode, and if that did not
+     * take (or in KEYSTROKES mode) cleared and typed with {@code Input.insertText}, one line at a
+     * time with SHIFT+ENTER in between.
+     */
+    private MessageComposer.Mode compose(WhatsappSession session, String message) {
+        String text = message.replace("\r\n", "\n");
+        Map<String, Object> args = Map.of("text", text, "bulk", composeMode == MessageComposer.Mode.BULK,
+                "timeoutMs", EDITOR_TIMEOUT.toMillis());
+        JsonNode inserted = evaluate(session, INSERT_SCRIPT, args, EDITOR_TIMEOUT);
+        if (composeMode == MessageComposer.Mode.BULK) {
+            if (inserted.isTextual() && MessageComposer.sameText(inserted.asText(), message)) {
+                return MessageComposer.Mode.BULK;
+            }
+            logger.warn("Editor did not accept bulk insertion; falling back to typed input.");
+            evaluate(session, CLEAR_SCRIPT, Map.of(), Duration.ZERO);
+        }
+        CdpConnection cdp = connection(session);
+        String[] lines = text.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (!lines[i].isEmpty()) {
+                cdp.send("Input.insertText", Map.of("text", lines[i]), COMMAND_TIMEOUT);
+            }
+            if (i < lines.length - 1) {
+                pressEnter(cdp, 8); // SHIFT: line break, not send
+            }
+        }
+        return MessageComposer.Mode.KEYSTROKES;
+    }
+
+    private static void pressEnter(CdpConnection cdp, int modifiers) {
+        Map<String, Object> key = new HashMap<>();
+        key.put("key", "Enter");
+        key.put("code", "Enter");
+        key.put("windowsVirtualKeyCode", 13);
+        key.put("modifiers", modifiers);
+        key.put("type", "keyDown");
+        if (modifiers == 0) {
+            key.put("text", "\r");
+        }
+        cdp.send("Input.dispatchKeyEvent", key, COMMAND_TIMEOUT);
+        key.put("type", "keyUp");
+        key.remove("text");
+        cdp.send("Input.dispatchKeyEvent", key, COMMAND_TIMEOUT);
+    }
+
+    /**
+     * Runs {@code body} as an async function in the page and returns its value. {@code wait} is
+     * how long the body itself may wait; the command gets a margin on top.
+     */
+    private JsonNode evaluate(WhatsappSession session, String body, Map<String, ?> args, Duration wait) {
+        JsonNode reply = connection(session).send("Runtime.evaluate", Map.of("expression", expression(body, args),
+                "awaitPromise", true, "returnByValue", true), wait.plus(SCRIPT_MARGIN));
+        if (reply.has("exceptionDetails")) {
+            JsonNode details = reply.get("exceptionDetails");
+            throw new WebDriverException("Script failed: " + details.path("exception").path("description").asText(details.path("text").asText()));
+        }
+        return reply.path("result").path("value");
+    }
+
+    private String expression(String body, Map<String, ?> args) {
+        return "(async (L, args) => {\n" + HELPERS + body + "\n})(" + locators + ", " + json(args) + ")";
+    }
+
+    private CdpConnection connection(WhatsappSession session) {
+        synchronized (connections) {
+            CdpConnection cdp = connections.get(session);
+            if (cdp == null || !cdp.isOpen()) {
+                cdp = CdpConnection.open(objectMapper, debuggerAddress(session), CONNECT_TIMEOUT);
+                cdp.send("Page.enable", Map.of(), COMMAND_TIMEOUT);
+                connections.put(session, cdp);
+                logger.info("DevTools connection opened for {}.", session.getProfileDir().getFileName());
+            }
+            return cdp;
+        }
+    }
+
+    private static String debuggerAddress(WhatsappSession session) {
+        if (session.getDriver() instanceof HasCapabilities driver
+                && driver.getCapabilities().getCapability("goog:chromeOptions") instanceof Map<?, ?> options
+                && options.get("debuggerAddress") instanceof String address) {
+            return address;
+        }
+        throw new WebDriverException("Driver does not expose a DevTools debugger address; use whatsapp.browser.automation=WEBDRIVER");
+    }
+
+    private static String textOrNull(JsonNode value) {
+        return value.isTextual() ? value.asText() : null;
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
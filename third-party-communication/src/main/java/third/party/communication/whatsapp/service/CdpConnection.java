@@ -0,0 +1,220 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A DevTools Protocol connection to one browser tab over the JDK WebSocket client. Only raw
+ * commands and one-shot event waits, so it does not depend on Selenium's per-Chrome-version
+ * DevTools bindings. Failures are {@link WebDriverException}s; once the socket is gone they say
+ * "disconnected", which the send engine treats as a lost browser.
+ */
+final class CdpConnection implements WebSocket.Listener {
+
+    /**
+     * Sends one text frame.
+     */
+    @FunctionalInterface
+    interface Transport {
+        void send(String message);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    // Event method -> waiters for its next occurrence
+    private final Map<String, List<CompletableFuture<JsonNode>>> eventWaiters = new ConcurrentHashMap<>();
+    private final StringBuilder partial = new StringBuilder();
+    private volatile Transport transport;
+    private volatile String closedReason;
+
+    CdpConnection(ObjectMapper objectMapper, Transport transport) {
+        this.objectMapper = objectMapper;
+        this.transport = transport;
+    }
+
+    /**
+     * Connects to the first page target of the browser whose debugging endpoint is {@code debuggerAddress}
+     * (host:port, as ChromeDriver reports it).
+     */
+    static CdpConnection open(ObjectMapper objectMapper, String debuggerAddress, Duration timeout) {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        try {
+            HttpResponse<String> targets = client.send(HttpRequest.newBuilder(URI.create("http://" + debuggerAddress + "/json/list"))
+                    .timeout(timeout).build(), HttpResponse.BodyHandlers.ofString());
+            String socketUrl = null;
+            for (JsonNode target : objectMapper.readTree(targets.body())) {
+                if ("page".equals(target.path("type").asText())) {
+                    socketUrl = target.path("webSocketDebuggerUrl").asText(null);
+                    break;
+                }
+            }
+            if (socketUrl == null) {
+                throw new WebDriverException("No page target at " + debuggerAddress);
+            }
+            CdpConnection connection = new CdpConnection(objectMapper, null);
+            WebSocket socket = client.newWebSocketBuilder().connectTimeout(timeout)
+                    .buildAsync(URI.create(socketUrl), connection)
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            connection.transport = message -> socket.sendText(message, true).join();
+            return connection;
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            throw new WebDriverException("DevTools not reachable at " + debuggerAddress + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while connecting to DevTools", e);
+        }
+    }
+
+    /**
+     * Sends a command and waits for its result.
+     */
+    JsonNode send(String method, Map<String, ?> params, Duration timeout) {
+        return await(sendAsync(method, params), method, timeout);
+    }
+
+    CompletableFuture<JsonNode> sendAsync(String method, Map<String, ?> params) {
+        checkOpen();
+        long id = nextId.getAndIncrement();
+        CompletableFuture<JsonNode> reply = new CompletableFuture<>();
+        pending.put(id, reply);
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("id", id);
+        message.put("method", method);
+        message.set("params", objectMapper.valueToTree(params));
+        try {
+            String text = objectMapper.writeValueAsString(message);
+            // The JDK WebSocket allows one outstanding send at a time
+            synchronized (this) {
+                transport.send(text);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            pending.remove(id);
+            throw new WebDriverException("Could not send " + method + ": " + e.getMessage(), e);
+        }
+        return reply;
+    }
+
+    /**
+     * A future for the next {@code method} event. Register it before the command that causes the event.
+     */
+    CompletableFuture<JsonNode> nextEvent(String method) {
+        CompletableFuture<JsonNode> event = new CompletableFuture<>();
+        eventWaiters.compute(method, (m, waiters) -> {
+            List<CompletableFuture<JsonNode>> list = waiters == null ? new ArrayList<>() : waiters;
+            list.add(event);
+            return list;
+        });
+        return event;
+    }
+
+    JsonNode await(CompletableFuture<JsonNode> future, String what, Duration timeout) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof WebDriverException w ? w : new WebDriverException(e.getCause());
+        } catch (TimeoutException e) {
+            checkOpen();
+            throw new org.openqa.selenium.TimeoutException(what + " did not complete within " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for " + what, e);
+        }
+    }
+
+    boolean isOpen() {
+        return closedReason == null;
+    }
+
+    /**
+     * Handles one complete message from the browser.
+     */
+    void receive(String text) {
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            return;
+        }
+        if (message.has("id")) {
+            CompletableFuture<JsonNode> reply = pending.remove(message.get("id").asLong());
+            if (reply == null) {
+                return;
+            }
+            if (message.has("error")) {
+                reply.completeExceptionally(new WebDriverException("DevTools error: " + message.get("error").path("message").asText()));
+            } else {
+                reply.complete(message.path("result"));
+            }
+        } else if (message.has("method")) {
+            List<CompletableFuture<JsonNode>> waiters = eventWaiters.remove(message.get("method").asText());
+            if (waiters != null) {
+                waiters.forEach(w -> w.complete(message.path("params")));
+            }
+        }
+    }
+
+    /**
+     * Fails everything pending; later calls fail straight away.
+     */
+    void closed(String reason) {
+        closedReason = reason;
+        WebDriverException failure = new WebDriverException("DevTools connection disconnected: " + reason);
+        pending.values().forEach(f -> f.completeExceptionally(failure));
+        pending.clear();
+        eventWaiters.values().forEach(waiters -> waiters.forEach(w -> w.completeExceptionally(failure)));
+        eventWaiters.clear();
+    }
+
+    private void checkOpen() {
+        if (closedReason != null) {
+            throw new WebDriverException("DevTools connection disconnected: " + closedReason);
+        }
+    }
+
+    // --- WebSocket.Listener ---
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String text = partial.toString();
+            partial.setLength(0);
+            receive(text);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        closed("closed by browser (" + statusCode + ")");
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        closed(String.valueOf(error.getMessage()));
+    }
+}
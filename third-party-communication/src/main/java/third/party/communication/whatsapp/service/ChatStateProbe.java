@@ -0,0 +1,78 @@
+package third.party.communication.whatsapp.service;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tells what an opened chat link turned into with one {@code executeScript} per poll, instead
+ * of waiting on several conditions and then probing with {@code findElement} and exceptions.
+ * Also hands out waits that poll at the configured interval rather than Selenium's 500 ms.
+ */
+@Component
+public class ChatStateProbe {
+
+    public enum State { READY, INVALID, LOADING, LOGGED_OUT }
+
+    /**
+     * {@code element} is the message editor when READY and the popup's OK button when INVALID.
+     */
+    public record Result(State state, WebElement element) {
+    }
+
+    private static final String PROBE_SCRIPT = """
+            const ok = document.querySelector(arguments[0]);
+            if (ok) { return ['INVALID', ok]; }
+            const editor = document.querySelector(arguments[1]) || document.querySelector(arguments[2]);
+            if (editor) { return ['READY', editor]; }
+            if (document.querySelector(arguments[3])) { return ['LOGGED_OUT', null]; }
+            return ['LOADING', null];
+            """;
+
+    private final Duration pollInterval;
+
+    public ChatStateProbe(@Value("${whatsapp.chat.poll-interval-ms:150}") long pollIntervalMillis) {
+        this.pollInterval = Duration.ofMillis(pollIntervalMillis);
+    }
+
+    /**
+     * The chat's state right now.
+     */
+    public Result probe(WebDriver driver) {
+        List<?> result = (List<?>) ((JavascriptExecutor) driver).executeScript(PROBE_SCRIPT,
+                WhatsappLocators.INVALID_NUMBER_OK_CSS, WhatsappLocators.CHAT_EDITOR_CSS,
+                WhatsappLocators.ANY_EDITOR_CSS, WhatsappLocators.LOGIN_QR_CSS);
+        return new Result(State.valueOf((String) result.get(0)), (WebElement) result.get(1));
+    }
+
+    /**
+     * Polls until the chat is no longer loading. Returns a LOADING result if that does not happen within {@code timeout}.
+     */
+    public Result await(WebDriver driver, Duration timeout) {
+        try {
+            return pollingWait(driver, timeout).until(d -> {
+                Result result = probe(d);
+                return result.state() == State.LOADING ? null : result;
+            });
+        } catch (TimeoutException e) {
+            return new Result(State.LOADING, null);
+        }
+    }
+
+    /**
+     * A wait that polls at the configured interval and ignores elements replaced mid-render.
+     */
+    public WebDriverWait pollingWait(WebDriver driver, Duration timeout) {
+        WebDriverWait wait = new WebDriverWait(driver, timeout, pollInterval);
+        wait.ignoring(StaleElementReferenceException.class);
+        return wait;
+    }
+}
@@ -0,0 +1,295 @@
+package third.party.communication.whatsapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import third.party.communication.whatsapp.dto.Contact;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Contacts from a Google Contacts CSV export (contacts.csv). The file is parsed once and kept
+ * until its modification time or size changes. Names and phone numbers are indexed by prefix
+ * for typeahead search.
+ */
+@Component
+public class ContactRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactRepository.class);
+
+    public static final Path CONTACTS_CSV_FILE = Paths.get(System.getProperty("user.dir"), "contacts.csv");
+
+    // A Google export puts several numbers of one type into a single cell, separated like this.
+    private static final String MULTI_VALUE_SEPARATOR = " ::: ";
+    private static final String PHONE_VALUE_SUFFIX = " - Value";
+
+    private record Snapshot(FileTime modified, long size, List<Contact> contacts,
+                            NavigableMap<String, int[]> index) {
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(null, -1, List.of(), Collections.emptyNavigableMap());
+
+    private final Path csvFile;
+    private volatile Snapshot snapshot = EMPTY;
+
+    public ContactRepository() {
+        this(CONTACTS_CSV_FILE);
+    }
+
+    ContactRepository(Path csvFile) {
+        this.csvFile = csvFile;
+    }
+
+    /**
+     * All contacts that have at least one phone number, in file order.
+     */
+    public List<Contact> findAll() throws IOException {
+        return current().contacts();
+    }
+
+    /**
+     * Contacts whose name, any word of the name, or any phone number starts with {@code query}
+     * (case-insensitive). Digit queries also match numbers typed with spaces or a leading '+'.
+     */
+    public List<Contact> search(String query, int limit) throws IOException {
+        Snapshot current = current();
+        String key = normalizeKey(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Set<Integer> matches = new LinkedHashSet<>();
+        for (int[] ids : current.index().subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            for (int id : ids) {
+                matches.add(id);
+            }
+        }
+        List<Contact> result = new ArrayList<>(Math.min(limit, matches.size()));
+        matches.stream().sorted().limit(limit).forEach(id -> result.add(current.contacts().get(id)));
+        return result;
+    }
+
+    private Snapshot current() throws IOException {
+        Snapshot current = snapshot;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(csvFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            if (current != EMPTY) {
+                logger.warn("Contacts file not found: {}", csvFile.toAbsolutePath());
+                snapshot = EMPTY;
+            }
+            return EMPTY;
+        }
+        if (attributes.lastModifiedTime().equals(current.modified()) && attributes.size() == current.size()) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (attributes.lastModifiedTime().equals(current.modified()) && attributes.size() == current.size()) {
+                return current;
+            }
+            current = load(attributes);
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private Snapshot load(BasicFileAttributes attributes) throws IOException {
+        long start = System.currentTimeMillis();
+        List<Contact> contacts = new ArrayList<>();
+        try (CsvParser parser = new CsvParser(Files.newBufferedReader(csvFile, StandardCharsets.UTF_8))) {
+            List<String> header = parser.nextRecord();
+            if (header == null) {
+                return new Snapshot(attributes.lastModifiedTime(), attributes.size(), List.of(), Collections.emptyNavigableMap());
+            }
+            Columns columns = Columns.of(header);
+            List<String> row;
+            while ((row = parser.nextRecord()) != null) {
+                Contact contact = columns.toContact(row);
+                if (contact != null) {
+                    contacts.add(contact);
+                }
+            }
+        }
+        NavigableMap<String, int[]> index = buildIndex(contacts);
+        logger.info("Loaded {} contacts from {} in {} ms.", contacts.size(), csvFile.getFileName(),
+                System.currentTimeMillis() - start);
+        return new Snapshot(attributes.lastModifiedTime(), attributes.size(), List.copyOf(contacts), index);
+    }
+
+    private static NavigableMap<String, int[]> buildIndex(List<Contact> contacts) {
+        TreeMap<String, List<Integer>> keys = new TreeMap<>();
+        for (int id = 0; id < contacts.size(); id++) {
+            Contact contact = contacts.get(id);
+            Set<String> contactKeys = new LinkedHashSet<>();
+            String name = normalizeKey(contact.getName());
+            if (!name.isEmpty()) {
+                contactKeys.add(name);
+                for (String word : name.split(" ")) {
+                    if (!word.isEmpty()) {
+                        contactKeys.add(word);
+                    }
+                }
+            }
+            contactKeys.addAll(contact.getNumber());
+            for (String key : contactKeys) {
+                keys.computeIfAbsent(key, k -> new ArrayList<>(1)).add(id);
+            }
+        }
+        TreeMap<String, int[]> index = new TreeMap<>();
+        for (Map.Entry<String, List<Integer>> entry : keys.entrySet()) {
+            index.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return Collections.unmodifiableNavigableMap(index);
+    }
+
+    /**
+     * Lower-case with collapsed whitespace; a query that is only a phone number becomes its digits.
+     */
+    private static String normalizeKey(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        String digits = digitsOf(trimmed);
+        if (!digits.isEmpty() && isPhoneLike(trimmed)) {
+            return digits;
+        }
+        StringBuilder sb = new StringBuilder(trimmed.length());
+        boolean space = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && !sb.isEmpty()) {
+                sb.append(' ');
+            }
+            space = false;
+            sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isPhoneLike(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!(c >= '0' && c <= '9') && c != '+' && c != ' ' && c != '-' && c != '(' && c != ')') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String digitsOf(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Header positions of the columns we use. Handles both current Google exports
+     * (First/Middle/Last Name, Phone N - Value) and older ones (Name, Given/Family Name).
+     */
+    private record Columns(int name, int[] nameParts, int organization, int[] phones) {
+
+        static Columns of(List<String> header) {
+            int name = -1;
+            int first = -1;
+            int middle = -1;
+            int last = -1;
+            int organization = -1;
+            List<Integer> phones = new ArrayList<>();
+            for (int i = 0; i < header.size(); i++) {
+                String column = header.get(i).trim();
+                switch (column) {
+                    case "Name" -> name = i;
+                    case "First Name", "Given Name" -> first = i;
+                    case "Middle Name", "Additional Name" -> middle = i;
+                    case "Last Name", "Family Name" -> last = i;
+                    case "Organization Name", "Organization 1 - Name" -> organization = organization < 0 ? i : organization;
+                    default -> {
+                        if (column.startsWith("Phone ") && column.endsWith(PHONE_VALUE_SUFFIX)) {
+                            phones.add(i);
+                        }
+                    }
+                }
+            }
+            if (phones.isEmpty()) {
+                // Not a Google export: fall back to a plain "name,number" file.
+                logger.warn("No 'Phone N - Value' columns in contacts header; reading column 2 as the number.");
+                phones.add(1);
+                if (name < 0 && first < 0) {
+                    name = 0;
+                }
+            }
+            int[] nameParts = IntStream.of(first, middle, last).filter(i -> i >= 0).toArray();
+            return new Columns(name, nameParts, organization, phones.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        Contact toContact(List<String> row) {
+            Set<String> numbers = new LinkedHashSet<>();
+            for (int column : phones) {
+                for (String value : cell(row, column).split(MULTI_VALUE_SEPARATOR)) {
+                    String digits = digitsOf(value);
+                    if (!digits.isEmpty()) {
+                        numbers.add(digits);
+                    }
+                }
+            }
+            if (numbers.isEmpty()) {
+                return null;
+            }
+            String contactName = displayName(row);
+            if (contactName.isEmpty()) {
+                contactName = numbers.iterator().next();
+            }
+            return new Contact(contactName, List.copyOf(numbers));
+        }
+
+        private String displayName(List<String> row) {
+            String full = cell(row, name).trim();
+            if (!full.isEmpty()) {
+                return full;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int column : nameParts) {
+                String part = cell(row, column).trim();
+                if (!part.isEmpty()) {
+                    if (!sb.isEmpty()) {
+                        sb.append(' ');
+                    }
+                    sb.append(part);
+                }
+            }
+            return sb.isEmpty() ? cell(row, organization).trim() : sb.toString();
+        }
+
+        private static String cell(List<String> row, int column) {
+            return column >= 0 && column < row.size() ? row.get(column) : "";
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package third.party.communication.whatsapp.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 reader: quoted fields, doubled quotes inside them, and line breaks
+ * within quoted fields. Accepts LF or CRLF record endings and skips a leading BOM.
+ * Reads one record at a time, so large exports never have to fit in memory.
+ */
+public class CsvParser implements Closeable {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private boolean started;
+    private long lineNumber = 1;
+
+    public CsvParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * The next record's fields, or null at end of input. Blank lines yield a single empty field.
+     *
+     * @throws IOException on read errors or an unterminated quoted field
+     */
+    public List<String> nextRecord() throws IOException {
+        if (!started) {
+            started = true;
+            if (peek() == '\uFEFF') {
+                read();
+            }
+        }
+        if (peek() == EOF) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldWasQuoted = false;
+        long startLine = lineNumber;
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == EOF) {
+                    throw new IOException("Unterminated quoted field starting on line " + startLine);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    if (field.isEmpty() && !fieldWasQuoted) {
+                        quoted = true;
+                        fieldWasQuoted = true;
+                    } else {
+                        // Stray quote in an unquoted field; keep it rather than fail the whole file.
+                        field.append('"');
+                    }
+                }
+                case ',' -> {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    fieldWasQuoted = false;
+                }
+                case '\r' -> {
+                    if (peek() == '\n') {
+                        read();
+                    }
+                    lineNumber++;
+                    fields.add(field.toString());
+                    return fields;
+                }
+                case '\n' -> {
+                    lineNumber++;
+                    fields.add(field.toString());
+                    return fields;
+                }
+                case EOF -> {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                default -> field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
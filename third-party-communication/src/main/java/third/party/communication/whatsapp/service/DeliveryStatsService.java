@@ -0,0 +1,255 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import third.party.communication.whatsapp.dto.DeliveryStatsResponse;
+import third.party.communication.whatsapp.dto.NumberStatus;
+import third.party.communication.whatsapp.dto.StatsBucket;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivery statistics kept in memory: totals per status, hourly and daily buckets, and the last
+ * status of every number. Built at startup with one pass over the whole history: archived
+ * segments, rotated logs not archived yet, then history.log. It is then fed by the
+ * {@link HistoryWriter} listener, so {@code /stats} never has to read the log. Numbers are kept
+ * in {@link NumberNormalizer#canonical} form, so older national-format lines count for the same
+ * contact as newer ones.
+ */
+@Service
+public class DeliveryStatsService implements HistoryWriter.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryStatsService.class);
+
+    private static final int MAX_STATUSES = 255; // status id is packed into the low byte
+    private static final String OTHER_STATUS = "Other";
+    private static final long NO_STATUS = -1;
+
+    private final Path logFile;
+    private final HistoryWriter historyWriter; // null in tests
+    private final HistoryArchive archive; // null in tests
+    private final NumberNormalizer normalizer;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // --- State, guarded by 'this' ---
+    private final List<String> statusNames = new ArrayList<>();
+    private final Map<String, Integer> statusIds = new HashMap<>();
+    private long[] totals = new long[8];
+    private final BucketRing hourly;
+    private final BucketRing daily;
+    // number -> (epochSeconds << 8 | statusId)
+    private final LongLongHashMap lastStatus = new LongLongHashMap(1024);
+
+    @Autowired
+    public DeliveryStatsService(HistoryWriter historyWriter, HistoryArchive archive, NumberNormalizer normalizer,
+                                @Value("${whatsapp.stats.hourly-buckets:48}") int hourlyBuckets,
+                                @Value("${whatsapp.stats.daily-buckets:31}") int dailyBuckets) {
+        this(historyWriter.getLogFile(), historyWriter, archive, normalizer, hourlyBuckets, dailyBuckets);
+    }
+
+    DeliveryStatsService(Path logFile, HistoryWriter historyWriter, HistoryArchive archive, NumberNormalizer normalizer,
+                         int hourlyBuckets, int dailyBuckets) {
+        this.logFile = logFile;
+        this.historyWriter = historyWriter;
+        this.archive = archive;
+        this.normalizer = normalizer;
+        this.hourly = new BucketRing(hourlyBuckets, 3600);
+        this.daily = new BucketRing(dailyBuckets, 86400);
+    }
+
+    /**
+     * Replays the history oldest first, then subscribes to new records. Nothing is sent before
+     * the application is up, so no record can fall between the two.
+     */
+    @PostConstruct
+    public void load() {
+        long start = System.currentTimeMillis();
+        HistoryReplay.Result replayed = new HistoryReplay.Result(0, 0);
+        try {
+            replayed = HistoryReplay.replay(logFile, archive, 0, zone,
+                    (epochMillis, number, status) -> record(Math.floorDiv(epochMillis, 1000), number, status));
+        } catch (IOException e) {
+            logger.error("Failed to read history for delivery stats: {}", e.getMessage(), e);
+        }
+        logger.info("Delivery stats loaded {} history entries from {} file(s) in {} ms.", replayed.entries(),
+                replayed.files(), System.currentTimeMillis() - start);
+        if (historyWriter != null) {
+            historyWriter.addListener(this);
+        }
+    }
+
+    @Override
+    public void onRecord(HistoryRecord record) {
+        record(Math.floorDiv(record.epochMillis(), 1000), record.number(), record.status());
+    }
+
+    synchronized void record(long epochSeconds, String number, String status) {
+        int id = statusId(status);
+        totals[id]++;
+        long localSeconds = epochSeconds + zone.getRules().getOffset(Instant.ofEpochSecond(epochSeconds)).getTotalSeconds();
+        hourly.add(localSeconds, id);
+        daily.add(localSeconds, id);
+        long key = numberKey(normalizer.canonical(number));
+        if (key >= 0) {
+            long previous = lastStatus.get(key, NO_STATUS);
+            // Replayed and live records arrive in time order, but never let an older record win.
+            if (previous == NO_STATUS || (previous >>> 8) <= epochSeconds) {
+                lastStatus.put(key, epochSeconds << 8 | id, NO_STATUS);
+            }
+        }
+    }
+
+    /**
+     * Current statistics. Cost depends only on the number of statuses and buckets, not on history size.
+     *
+     * @param number optional number whose last status should be included
+     */
+    public synchronized DeliveryStatsResponse snapshot(String number) {
+        long nowLocal = LocalDateTime.now(zone).toEpochSecond(ZoneOffset.UTC);
+        List<StatsBucket> hourlyBuckets = new ArrayList<>();
+        hourly.forEachBucket((bucketStart, counts) ->
+                hourlyBuckets.add(new StatsBucket(formatLocal(bucketStart), toMap(counts))));
+        long[] todayCounts = daily.countsFor(nowLocal);
+        return new DeliveryStatsResponse(toMap(totals), toMap(todayCounts), hourlyBuckets,
+                lastStatus.size(), number == null ? null : lastStatusOf(number));
+    }
+
+    private NumberStatus lastStatusOf(String number) {
+        String canonical = normalizer.canonical(number);
+        long value = lastStatus.get(numberKey(canonical), NO_STATUS);
+        if (value == NO_STATUS) {
+            return null;
+        }
+        String timestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(value >>> 8), zone).format(HistoryRecord.TIMESTAMP_FORMAT);
+        return new NumberStatus(canonical, statusNames.get((int) (value & 0xFF)), timestamp);
+    }
+
+    private int statusId(String status) {
+        Integer id = statusIds.get(status);
+        if (id != null) {
+            return id;
+        }
+        if (statusNames.size() >= MAX_STATUSES - 1 && !OTHER_STATUS.equals(status)) {
+            logger.warn("Too many distinct statuses; counting '{}' as {}.", status, OTHER_STATUS);
+            return statusId(OTHER_STATUS);
+        }
+        id = statusNames.size();
+        statusNames.add(status);
+        statusIds.put(status, id);
+        if (id == totals.length) {
+            totals = Arrays.copyOf(totals, totals.length * 2);
+        }
+        return id;
+    }
+
+    private Map<String, Long> toMap(long[] counts) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        if (counts == null) {
+            return map;
+        }
+        for (int i = 0; i < Math.min(counts.length, statusNames.size()); i++) {
+            if (counts[i] > 0) {
+                map.put(statusNames.get(i), counts[i]);
+            }
+        }
+        return map;
+    }
+
+    private static String formatLocal(long localSeconds) {
+        return LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC).format(HistoryRecord.TIMESTAMP_FORMAT);
+    }
+
+    /**
+     * A digits-only number as a long, or -1 if it is not one (such numbers get no last-status entry).
+     */
+    static long numberKey(String number) {
+        int length = number.length();
+        if (length == 0 || length > 18) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    /**
+     * Fixed number of time buckets reused round-robin; a bucket is cleared when a newer period
+     * lands on its slot, and records older than the window are dropped from it.
+     */
+    private static class BucketRing {
+
+        private final long bucketSeconds;
+        private final long[] periods;
+        private final long[][] counts;
+
+        BucketRing(int buckets, long bucketSeconds) {
+            this.bucketSeconds = bucketSeconds;
+            this.periods = new long[Math.max(1, buckets)];
+            this.counts = new long[periods.length][];
+            Arrays.fill(periods, Long.MIN_VALUE);
+        }
+
+        void add(long localSeconds, int statusId) {
+            long period = Math.floorDiv(localSeconds, bucketSeconds);
+            int slot = (int) Math.floorMod(period, (long) periods.length);
+            if (periods[slot] != period) {
+                if (periods[slot] > period) {
+                    return;
+                }
+                periods[slot] = period;
+                counts[slot] = new long[Math.max(8, statusId + 1)];
+            } else if (statusId >= counts[slot].length) {
+                counts[slot] = Arrays.copyOf(counts[slot], Math.max(counts[slot].length * 2, statusId + 1));
+            }
+            counts[slot][statusId]++;
+        }
+
+        long[] countsFor(long localSeconds) {
+            long period = Math.floorDiv(localSeconds, bucketSeconds);
+            int slot = (int) Math.floorMod(period, (long) periods.length);
+            return periods[slot] == period ? counts[slot] : null;
+        }
+
+        /**
+         * Visits the filled buckets oldest first with their start time in local seconds.
+         */
+        void forEachBucket(BucketConsumer consumer) {
+            Integer[] order = new Integer[periods.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(periods[a], periods[b]));
+            for (int slot : order) {
+                if (periods[slot] != Long.MIN_VALUE) {
+                    consumer.accept(periods[slot] * bucketSeconds, counts[slot]);
+                }
+            }
+        }
+
+        @FunctionalInterface
+        interface BucketConsumer {
+            void accept(long bucketStart, long[] counts);
+        }
+    }
+}
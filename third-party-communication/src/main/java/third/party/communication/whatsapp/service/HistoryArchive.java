@@ -0,0 +1,162 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compacts rotated history logs into {@link HistorySegment}s under history-archive/ and lists
+ * them for {@link HistoryQueryService}. Files are converted in the background as the writer
+ * rotates them; any left over from before, or from a crash, are converted at startup. A file's
+ * entries are missing from queries for the few seconds its conversion takes.
+ */
+@Component
+public class HistoryArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryArchive.class);
+
+    static final String DIRECTORY_NAME = "history-archive";
+
+    // Newest first, then by name, so pages walk the archive in a stable order
+    private static final Comparator<HistorySegment> NEWEST_FIRST = Comparator
+            .comparingLong(HistorySegment::minSecond).reversed()
+            .thenComparing(HistorySegment::name, Comparator.reverseOrder());
+
+    private final Path logFile;
+    private final Path directory;
+    private final HistoryWriter historyWriter; // null in tests
+    private final boolean enabled;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ExecutorService archiver = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("history-archiver").factory());
+    private volatile List<HistorySegment> segments = List.of();
+
+    @Autowired
+    public HistoryArchive(HistoryWriter historyWriter, @Value("${whatsapp.history.archive:true}") boolean enabled) {
+        this(historyWriter.getLogFile(), historyWriter, enabled);
+    }
+
+    HistoryArchive(Path logFile, HistoryWriter historyWriter, boolean enabled) {
+        this.logFile = logFile.toAbsolutePath();
+        this.directory = this.logFile.resolveSibling(DIRECTORY_NAME);
+        this.historyWriter = historyWriter;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Opens the existing segments, then queues leftover rotated logs and subscribes to new ones.
+     */
+    @PostConstruct
+    public void load() {
+        List<HistorySegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(HistorySegment.EXTENSION + ".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(HistorySegment.EXTENSION)) {
+                    try {
+                        loaded.add(HistorySegment.open(file));
+                    } catch (IOException e) {
+                        logger.error("Skipping unreadable history segment {}: {}", name, e.getMessage());
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing archived yet
+        } catch (IOException e) {
+            logger.error("Failed to list history archive {}: {}", directory, e.getMessage(), e);
+        }
+        loaded.sort(NEWEST_FIRST);
+        segments = List.copyOf(loaded);
+        logger.info("History archive has {} segment(s) with {} entries.", loaded.size(),
+                loaded.stream().mapToLong(HistorySegment::records).sum());
+        if (!enabled) {
+            return;
+        }
+        if (historyWriter != null) {
+            historyWriter.addRotationListener(this::archiveLater);
+        }
+        try (DirectoryStream<Path> rotated = Files.newDirectoryStream(logFile.getParent(), HistoryWriter.rotatedGlob(logFile))) {
+            rotated.forEach(this::archiveLater);
+        } catch (IOException e) {
+            logger.error("Failed to look for rotated history logs: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Segments, newest first.
+     */
+    List<HistorySegment> segments() {
+        return segments;
+    }
+
+    Optional<HistorySegment> find(String name) {
+        return segments.stream().filter(s -> s.name().equals(name)).findFirst();
+    }
+
+    void archiveLater(Path rotatedLog) {
+        archiver.execute(() -> {
+            try {
+                archive(rotatedLog);
+            } catch (IOException e) {
+                logger.error("Failed to archive {}; it stays as text: {}", rotatedLog.getFileName(), e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Converts a rotated log into a segment, publishes it and deletes the text file. Returns null
+     * if the file is already gone (the startup sweep and the writer may both hand it over).
+     */
+    synchronized HistorySegment archive(Path rotatedLog) throws IOException {
+        if (Files.notExists(rotatedLog)) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        String fileName = rotatedLog.getFileName().toString();
+        String name = fileName.endsWith(".log") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        long textBytes = Files.size(rotatedLog);
+        Files.createDirectories(directory);
+        HistorySegment segment = HistorySegment.write(rotatedLog, directory.resolve(name + HistorySegment.EXTENSION), zone);
+
+        List<HistorySegment> updated = new ArrayList<>(segments);
+        // A crash after the last archive() but before its delete leaves the same log again
+        updated.removeIf(s -> s.name().equals(segment.name()));
+        if (segment.records() > 0) {
+            updated.add(segment);
+        } else {
+            Files.delete(segment.file());
+        }
+        updated.sort(NEWEST_FIRST);
+        segments = List.copyOf(updated);
+        Files.delete(rotatedLog);
+        logger.info("Archived {}: {} entries, {} KB of text to {} KB in {} ms.", fileName, segment.records(),
+                textBytes / 1024, segment.records() > 0 ? Files.size(segment.file()) / 1024 : 0,
+                System.currentTimeMillis() - start);
+        return segment;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // An interrupted conversion leaves its text log, which is converted again at the next start
+        archiver.shutdownNow();
+    }
+}
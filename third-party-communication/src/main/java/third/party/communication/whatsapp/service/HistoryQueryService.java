@@ -0,0 +1,460 @@
+package third.party.communication.whatsapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import third.party.communication.whatsapp.dto.HistoryEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Serves history pages newest-first by reading history.log backwards in blocks, so a page
+ * costs O(page) rather than O(file). The cursor is the byte offset where the previous page
+ * stopped, tagged with the identity of the file it points into so that a cursor from before a
+ * rotation is rejected rather than applied to the new file. A sparse index of (offset, timestamp) samples lets a time-bounded query jump
+ * straight to the right part of the file.
+ * <p>
+ * Numbers are matched in {@link NumberNormalizer#canonical} form, so a query for a contact also
+ * finds the national-format lines logged before numbers were normalized.
+ * <p>
+ * Once history.log is exhausted, paging continues into the {@link HistoryArchive}, newest
+ * segment first, with cursors of the form {@code segment@record}. Segments and blocks outside
+ * the requested time range are skipped using their indexes, without inflating them.
+ */
+@Service
+public class HistoryQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryQueryService.class);
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final long INDEX_STRIDE = 256 * 1024;
+    private static final int TIMESTAMP_LENGTH = 19; // yyyy-MM-dd HH:mm:ss
+    private static final char ARCHIVE_CURSOR_SEPARATOR = '@';
+    private static final char LOG_CURSOR_SEPARATOR = '.';
+    private static final int OPEN_ATTEMPTS = 3;
+
+    /**
+     * Filters for a history query. Null fields match everything.
+     */
+    public record Filter(String number, String status, LocalDateTime from, LocalDateTime to) {
+
+        public static final Filter NONE = new Filter(null, null, null, null);
+
+        String fromTimestamp() {
+            return from == null ? null : from.format(HistoryRecord.TIMESTAMP_FORMAT);
+        }
+
+        String toTimestamp() {
+            return to == null ? null : to.format(HistoryRecord.TIMESTAMP_FORMAT);
+        }
+
+        long fromSecond(ZoneId zone) {
+            return from == null ? Long.MIN_VALUE : from.atZone(zone).toEpochSecond();
+        }
+
+        long toSecond(ZoneId zone) {
+            return to == null ? Long.MAX_VALUE : to.atZone(zone).toEpochSecond();
+        }
+    }
+
+    /**
+     * One page of entries, newest first. {@code nextCursor} is null on the last page.
+     */
+    public record Page(List<HistoryEntry> entries, String nextCursor) {
+    }
+
+    /**
+     * A page of history.log; {@code reachedStart} when nothing older is left in the file and the
+     * query did not stop at its 'from' bound, so the archive may hold more.
+     */
+    private record LogPage(List<HistoryEntry> entries, String nextCursor, boolean reachedStart) {
+    }
+
+    /**
+     * history.log opened for reading, with the identity of the file the channel is on.
+     */
+    private record OpenLog(FileChannel channel, String fileId) {
+    }
+
+    private final Path logFile;
+    private final HistoryArchive archive; // null in tests
+    private final NumberNormalizer normalizer;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final SparseIndex index = new SparseIndex();
+
+    @Autowired
+    public HistoryQueryService(HistoryWriter historyWriter, HistoryArchive archive, NumberNormalizer normalizer) {
+        this(historyWriter.getLogFile(), archive, normalizer);
+    }
+
+    HistoryQueryService(Path logFile, HistoryArchive archive, NumberNormalizer normalizer) {
+        this.logFile = logFile;
+        this.archive = archive;
+        this.normalizer = normalizer;
+    }
+
+    public Page query(Filter filter, String cursor, int limit) throws IOException {
+        if (filter.number() != null) {
+            filter = new Filter(normalizer.canonical(filter.number()), filter.status(), filter.from(), filter.to());
+        }
+        List<HistorySegment> segments = archive == null ? List.of() : archive.segments();
+        if (cursor != null && cursor.indexOf(ARCHIVE_CURSOR_SEPARATOR) >= 0) {
+            int at = cursor.lastIndexOf(ARCHIVE_CURSOR_SEPARATOR);
+            String name = cursor.substring(0, at).trim();
+            int segment = 0;
+            while (segment < segments.size() && !segments.get(segment).name().equals(name)) {
+                segment++;
+            }
+            long before = parseCursor(cursor.substring(at + 1));
+            if (segment == segments.size() || before > segments.get(segment).records()) {
+                throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+            }
+            return readArchive(segments, segment, (int) before, filter, new ArrayList<>(), limit);
+        }
+        LogPage page = queryLog(filter, cursor, limit);
+        if (!page.reachedStart() || segments.isEmpty()) {
+            return new Page(page.entries(), page.nextCursor());
+        }
+        if (page.entries().size() >= limit) {
+            return new Page(page.entries(), archiveCursor(segments.get(0), segments.get(0).records()));
+        }
+        return readArchive(segments, 0, segments.get(0).records(), filter, new ArrayList<>(page.entries()), limit);
+    }
+
+    private LogPage queryLog(Filter filter, String cursor, int limit) throws IOException {
+        OpenLog log;
+        try {
+            log = openLog();
+        } catch (NoSuchFileException e) {
+            if (archive == null || archive.segments().isEmpty()) {
+                logger.warn("History file not found: {}", logFile);
+            }
+            return new LogPage(List.of(), null, true);
+        }
+        try (FileChannel channel = log.channel()) {
+            long size = channel.size();
+            long start = size;
+            if (cursor != null && !cursor.isBlank()) {
+                int separator = cursor.lastIndexOf(LOG_CURSOR_SEPARATOR);
+                // A bare offset carries no file identity and is taken as is
+                if (separator >= 0 && !cursor.substring(separator + 1).trim().equals(log.fileId())) {
+                    throw new IllegalArgumentException("History cursor is from a rotated history file: " + cursor);
+                }
+                start = Math.min(parseCursor(separator < 0 ? cursor : cursor.substring(0, separator)), size);
+            }
+            String toTimestamp = filter.toTimestamp();
+            if (toTimestamp != null) {
+                start = Math.min(start, index.offsetAfter(channel, log.fileId(), toTimestamp));
+            }
+            return readBackwards(channel, log.fileId(), start, start == size, filter, limit);
+        }
+    }
+
+    /**
+     * Opens history.log and identifies it by its file key (inode), or its creation time where the
+     * filesystem has no keys, plus its first line, as the inode of an archived log may be reused.
+     * The key is read before and after opening so that a rotation in between is noticed.
+     */
+    private OpenLog openLog() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            Object key = fileKey();
+            FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ);
+            try {
+                if (key.equals(fileKey()) || attempt == OPEN_ATTEMPTS) {
+                    String fileId = Integer.toHexString(Objects.hash(key, firstLine(channel)));
+                    return new OpenLog(channel, fileId);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+        }
+    }
+
+    private Object fileKey() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(logFile, BasicFileAttributes.class);
+        return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    }
+
+    /**
+     * The first line, or its first 256 bytes. Empty while the first line is shorter and still
+     * unterminated; no cursor is issued into such a file.
+     */
+    private static String firstLine(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(256);
+        int read = Math.max(0, channel.read(head, 0));
+        byte[] data = head.array();
+        for (int i = 0; i < read; i++) {
+            if (data[i] == '\n') {
+                return new String(data, 0, i, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return read == data.length ? new String(data, StandardCharsets.ISO_8859_1) : "";
+    }
+
+    /**
+     * Continues newest-first through the archive from record {@code before} (exclusive) of
+     * {@code segments[first]}, inflating only blocks that overlap the filter's time range.
+     */
+    private Page readArchive(List<HistorySegment> segments, int first, int before, Filter filter,
+                             List<HistoryEntry> entries, int limit) throws IOException {
+        long fromSecond = filter.fromSecond(zone);
+        long toSecond = filter.toSecond(zone);
+        for (int s = first; s < segments.size(); s++) {
+            HistorySegment segment = segments.get(s);
+            if (segment.maxSecond() < fromSecond || segment.minSecond() > toSecond) {
+                continue;
+            }
+            int end = s == first ? before : segment.records();
+            List<HistorySegment.Block> blocks = segment.blocks();
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                HistorySegment.Block block = blocks.get(b);
+                if (block.firstRecord() >= end || !block.overlaps(fromSecond, toSecond)) {
+                    continue;
+                }
+                List<HistoryRecord> records = segment.read(block);
+                for (int i = Math.min(block.count(), end - block.firstRecord()) - 1; i >= 0; i--) {
+                    HistoryRecord record = records.get(i);
+                    if (!matches(record, filter, fromSecond, toSecond)) {
+                        continue;
+                    }
+                    entries.add(new HistoryEntry(record.formattedTimestamp(), record.number(), record.status(), record.summary()));
+                    if (entries.size() >= limit) {
+                        int position = block.firstRecord() + i;
+                        if (position > 0) {
+                            return new Page(entries, archiveCursor(segment, position));
+                        }
+                        return new Page(entries, s + 1 < segments.size()
+                                ? archiveCursor(segments.get(s + 1), segments.get(s + 1).records()) : null);
+                    }
+                }
+            }
+        }
+        return new Page(entries, null);
+    }
+
+    private boolean matches(HistoryRecord record, Filter filter, long fromSecond, long toSecond) {
+        long second = Math.floorDiv(record.epochMillis(), 1000);
+        return second >= fromSecond && second <= toSecond
+                && (filter.number() == null || filter.number().equals(normalizer.canonical(record.number())))
+                && (filter.status() == null || filter.status().equalsIgnoreCase(record.status()));
+    }
+
+    private static String archiveCursor(HistorySegment segment, int before) {
+        return segment.name() + ARCHIVE_CURSOR_SEPARATOR + before;
+    }
+
+    private LogPage readBackwards(FileChannel channel, String fileId, long start, boolean fromEof, Filter filter,
+                                  int limit) throws IOException {
+        List<HistoryEntry> entries = new ArrayList<>(Math.min(limit, 1024));
+        String fromTimestamp = filter.fromTimestamp();
+        String toTimestamp = filter.toTimestamp();
+
+        long pos = start;
+        byte[] carry = new byte[0];
+        boolean skipUnterminated = fromEof;
+        while (true) {
+            if (pos == 0) {
+                if (carry.length > 0) {
+                    if (acceptLine(carry, 0, carry.length, filter, fromTimestamp, toTimestamp, entries) == LineResult.STOP) {
+                        return new LogPage(entries, null, false);
+                    }
+                }
+                return new LogPage(entries, null, true);
+            }
+            int len = (int) Math.min(BLOCK_SIZE, pos);
+            pos -= len;
+            byte[] data = new byte[len + carry.length];
+            ByteBuffer buffer = ByteBuffer.wrap(data, 0, len);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, pos + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            System.arraycopy(carry, 0, data, len, carry.length);
+
+            int lineEnd = data.length;
+            for (int i = data.length - 1; i >= 0; i--) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                if (skipUnterminated) {
+                    // A line without its newline is still being written; leave it for the next query.
+                    skipUnterminated = false;
+                    lineEnd = i;
+                    continue;
+                }
+                if (i + 1 < lineEnd) {
+                    LineResult result = acceptLine(data, i + 1, lineEnd, filter, fromTimestamp, toTimestamp, entries);
+                    if (result == LineResult.STOP) {
+                        return new LogPage(entries, null, false);
+                    }
+                    if (entries.size() >= limit) {
+                        long lineStart = pos + i + 1;
+                        return lineStart > 0
+                                ? new LogPage(entries, Long.toString(lineStart) + LOG_CURSOR_SEPARATOR + fileId, false)
+                                : new LogPage(entries, null, true);
+                    }
+                }
+                lineEnd = i;
+            }
+            // Without a newline in the block the unterminated fragment is still being skipped.
+            carry = skipUnterminated ? new byte[0] : Arrays.copyOf(data, lineEnd);
+        }
+    }
+
+    private enum LineResult { CONTINUE, STOP }
+
+    private LineResult acceptLine(byte[] data, int from, int to, Filter filter, String fromTimestamp,
+                                  String toTimestamp, List<HistoryEntry> entries) {
+        if (to > from && data[to - 1] == '\r') {
+            to--;
+        }
+        String line = new String(data, from, to - from, StandardCharsets.UTF_8).trim();
+        if (line.isEmpty()) {
+            return LineResult.CONTINUE;
+        }
+        HistoryEntry entry = parseLine(line);
+        if (entry == null) {
+            logger.warn("Skipping malformed history line: {}", line);
+            return LineResult.CONTINUE;
+        }
+        // Lines are appended in time order, so once we are past 'from' nothing older can match.
+        if (fromTimestamp != null && entry.getTimestamp().compareTo(fromTimestamp) < 0) {
+            return LineResult.STOP;
+        }
+        if (toTimestamp != null && entry.getTimestamp().compareTo(toTimestamp) > 0) {
+            return LineResult.CONTINUE;
+        }
+        if (filter.number() != null && !filter.number().equals(normalizer.canonical(entry.getNumber()))) {
+            return LineResult.CONTINUE;
+        }
+        if (filter.status() != null && !filter.status().equalsIgnoreCase(entry.getStatus())) {
+            return LineResult.CONTINUE;
+        }
+        entries.add(entry);
+        return LineResult.CONTINUE;
+    }
+
+    /**
+     * Splits {@code timestamp | number | status | message} without a regex. Returns null for malformed lines.
+     */
+    public static HistoryEntry parseLine(String line) {
+        String sep = HistoryRecord.SEPARATOR;
+        int first = line.indexOf(sep);
+        if (first < 0) {
+            return null;
+        }
+        int second = line.indexOf(sep, first + sep.length());
+        if (second < 0) {
+            return null;
+        }
+        int third = line.indexOf(sep, second + sep.length());
+        if (third < 0) {
+            return null;
+        }
+        return new HistoryEntry(line.substring(0, first),
+                line.substring(first + sep.length(), second),
+                line.substring(second + sep.length(), third),
+                line.substring(third + sep.length()));
+    }
+
+    private static long parseCursor(String cursor) {
+        try {
+            return Math.max(0, Long.parseLong(cursor.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Samples the timestamp of the first complete line after every {@link #INDEX_STRIDE} bytes.
+     * Building it reads one small block per stride instead of scanning the file, and it is
+     * extended as the log grows. It is rebuilt when history.log is a different file than the
+     * one it was sampled from.
+     */
+    private static class SparseIndex {
+
+        private long[] offsets = new long[64];
+        private final List<String> timestamps = new ArrayList<>();
+        private long sampledUpTo;
+        private String fileId;
+
+        /**
+         * Smallest sampled line offset whose timestamp is after {@code timestamp}; lines from there
+         * on are all too new. Returns the file size when no sample qualifies.
+         */
+        synchronized long offsetAfter(FileChannel channel, String fileId, String timestamp) throws IOException {
+            long size = channel.size();
+            if (!fileId.equals(this.fileId) || size < sampledUpTo) {
+                // The file was rotated or truncated.
+                timestamps.clear();
+                sampledUpTo = 0;
+                this.fileId = fileId;
+            }
+            extend(channel, size);
+            int low = 0;
+            int high = timestamps.size() - 1;
+            long result = size;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps.get(mid).compareTo(timestamp) > 0) {
+                    result = offsets[mid];
+                    high = mid - 1;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return result;
+        }
+
+        private void extend(FileChannel channel, long size) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            for (long probe = sampledUpTo; probe + INDEX_STRIDE < size; probe += INDEX_STRIDE) {
+                long samplePos = probe + INDEX_STRIDE;
+                buffer.clear();
+                int read = channel.read(buffer, samplePos);
+                sampledUpTo = samplePos;
+                if (read <= 0) {
+                    break;
+                }
+                byte[] data = buffer.array();
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (data[i] == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline < 0 || newline + 1 + TIMESTAMP_LENGTH > read) {
+                    continue;
+                }
+                String ts = new String(data, newline + 1, TIMESTAMP_LENGTH, StandardCharsets.UTF_8);
+                if (!timestamps.isEmpty() && ts.compareTo(timestamps.get(timestamps.size() - 1)) < 0) {
+                    continue;
+                }
+                if (timestamps.size() == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[timestamps.size()] = samplePos + newline + 1;
+                timestamps.add(ts);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package third.party.communication.whatsapp.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One outcome line of history.log: {@code timestamp | number | status | message summary}.
+ */
+public record HistoryRecord(long epochMillis, String number, String status, String summary) {
+
+    public static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public static final String SEPARATOR = " | ";
+
+    public static HistoryRecord of(String number, String status, String message) {
+        return new HistoryRecord(System.currentTimeMillis(), number, status, summarize(message));
+    }
+
+    /**
+     * Single-line message summary, cut to 40 characters.
+     */
+    public static String summarize(String message) {
+        String msgSummary = message == null ? "" : message.replace('\n', ' ').trim();
+        if (msgSummary.isEmpty()) {
+            return "N/A";
+        } else if (msgSummary.length() > 40) {
+            return msgSummary.substring(0, 37) + "...";
+        }
+        return msgSummary;
+    }
+
+    public String formattedTimestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(TIMESTAMP_FORMAT);
+    }
+
+    /**
+     * Appends the log line, without line separator.
+     */
+    public void appendTo(StringBuilder sb) {
+        sb.append(formattedTimestamp()).append(SEPARATOR)
+                .append(number).append(SEPARATOR)
+                .append(status).append(SEPARATOR)
+                .append(summary);
+    }
+}
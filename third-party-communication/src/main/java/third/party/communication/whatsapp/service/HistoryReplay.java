@@ -0,0 +1,158 @@
+package third.party.communication.whatsapp.service;
+
+import third.party.communication.whatsapp.dto.HistoryEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reads the whole history oldest first, for services that rebuild their state at startup:
+ * archived segments, rotated logs not archived yet, then history.log. A log and its segment
+ * share a name, so each file is read once, and a log archived during the replay is read from
+ * its segment.
+ */
+final class HistoryReplay {
+
+    /**
+     * Receives one history entry.
+     */
+    @FunctionalInterface
+    interface Sink {
+        void accept(long epochMillis, String number, String status);
+    }
+
+    record Result(long entries, int files) {
+    }
+
+    private HistoryReplay() {
+    }
+
+    /**
+     * Replays entries from {@code sinceMillis} on, or everything for 0; files that end before it
+     * are skipped unread.
+     *
+     * @param archive null to read only the text logs
+     */
+    static Result replay(Path logFile, HistoryArchive archive, long sinceMillis, ZoneId zone, Sink sink) throws IOException {
+        // A segment keeps its log's name, and rotated names sort in rotation order
+        Map<String, Path> rotated = new HashMap<>();
+        Path directory = logFile.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, HistoryWriter.rotatedGlob(logFile))) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                rotated.put(fileName.substring(0, fileName.length() - ".log".length()), file);
+            }
+        }
+        // Listed after the logs, so a log archived in between shows up at least once
+        Map<String, HistorySegment> segments = new HashMap<>();
+        if (archive != null) {
+            archive.segments().forEach(segment -> segments.put(segment.name(), segment));
+        }
+        Set<String> names = new TreeSet<>(rotated.keySet());
+        names.addAll(segments.keySet());
+
+        long entries = 0;
+        int files = 0;
+        for (String name : names) {
+            HistorySegment segment = segments.get(name);
+            long read;
+            if (segment != null) {
+                read = replay(segment, sinceMillis, sink);
+            } else {
+                try {
+                    read = replay(rotated.get(name), sinceMillis, zone, sink);
+                } catch (NoSuchFileException e) {
+                    // Archived since it was listed
+                    Optional<HistorySegment> archived = archive == null ? Optional.empty() : archive.find(name);
+                    read = archived.isPresent() ? replay(archived.get(), sinceMillis, sink) : -1;
+                }
+            }
+            if (read >= 0) {
+                entries += read;
+                files++;
+            }
+        }
+        try {
+            long read = replay(logFile, sinceMillis, zone, sink);
+            entries += Math.max(0, read);
+            files++;
+        } catch (NoSuchFileException e) {
+            // Nothing written since the last rotation, or ever
+        }
+        return new Result(entries, files);
+    }
+
+    /**
+     * @return entries replayed, or -1 if the file was skipped as older than {@code sinceMillis}
+     */
+    private static long replay(HistorySegment segment, long sinceMillis, Sink sink) throws IOException {
+        if (segment.maxSecond() * 1000 < sinceMillis - 1000) {
+            return -1;
+        }
+        long entries = 0;
+        for (HistorySegment.Block block : segment.blocks()) {
+            if (block.maxSecond() * 1000 < sinceMillis - 1000) {
+                continue;
+            }
+            for (HistoryRecord record : segment.read(block)) {
+                if (record.epochMillis() >= sinceMillis - 1000) {
+                    sink.accept(record.epochMillis(), record.number(), record.status());
+                    entries++;
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return entries replayed, or -1 if the file was skipped as older than {@code sinceMillis}
+     */
+    private static long replay(Path file, long sinceMillis, ZoneId zone, Sink sink) throws IOException {
+        // A log is appended to in time order, so nothing in it is newer than its last write
+        if (sinceMillis > 0 && Files.getLastModifiedTime(file).toMillis() < sinceMillis - 1000) {
+            return -1;
+        }
+        long entries = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String lastTimestamp = null;
+            long lastMillis = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                HistoryEntry entry = HistoryQueryService.parseLine(line.trim());
+                if (entry == null) {
+                    continue;
+                }
+                // Consecutive lines usually share their second; skip re-parsing it.
+                if (!entry.getTimestamp().equals(lastTimestamp)) {
+                    try {
+                        lastMillis = LocalDateTime.parse(entry.getTimestamp(), HistoryRecord.TIMESTAMP_FORMAT)
+                                .atZone(zone).toInstant().toEpochMilli();
+                        lastTimestamp = entry.getTimestamp();
+                    } catch (DateTimeParseException e) {
+                        continue;
+                    }
+                }
+                // history.log has second precision; replaying the first second again is harmless.
+                if (lastMillis < sinceMillis - 1000) {
+                    continue;
+                }
+                sink.accept(lastMillis, entry.getNumber().trim(), entry.getStatus().trim());
+                entries++;
+            }
+        }
+        return entries;
+    }
+}
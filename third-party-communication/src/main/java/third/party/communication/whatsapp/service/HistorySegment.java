@@ -0,0 +1,419 @@
+package third.party.communication.whatsapp.service;
+
+import third.party.communication.whatsapp.dto.HistoryEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One archived history file. Records are kept in blocks of {@link #BLOCK_RECORDS}, each deflated
+ * on its own and laid out column by column: timestamps as second deltas, numbers as longs,
+ * statuses and message summaries as indexes into the block's own dictionaries. A trailer lists
+ * every block's time range, so a time-bounded query only inflates the blocks it overlaps.
+ * <p>
+ * Layout: {@code magic, version, blocks..., index, indexOffset, blockCount, magic}. A block is
+ * {@code rawLength, deflated bytes}.
+ */
+final class HistorySegment {
+
+    static final String EXTENSION = ".seg";
+    static final int BLOCK_RECORDS = 4096;
+
+    private static final int MAGIC = 0x48534547; // "HSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int TRAILER_BYTES = 16;
+    private static final int INDEX_ENTRY_BYTES = 32; // min, max, count, offset, length
+
+    /**
+     * One block's place in the file. Records are numbered from the start of the segment.
+     */
+    record Block(long minSecond, long maxSecond, int firstRecord, int count, long offset, int length) {
+
+        boolean overlaps(long fromSecond, long toSecond) {
+            return maxSecond >= fromSecond && minSecond <= toSecond;
+        }
+    }
+
+    private final Path file;
+    private final String name;
+    private final List<Block> blocks;
+    private final long minSecond;
+    private final long maxSecond;
+
+    private HistorySegment(Path file, List<Block> blocks) {
+        this.file = file;
+        String fileName = file.getFileName().toString();
+        this.name = fileName.substring(0, fileName.length() - EXTENSION.length());
+        this.blocks = blocks;
+        this.minSecond = blocks.stream().mapToLong(Block::minSecond).min().orElse(Long.MAX_VALUE);
+        this.maxSecond = blocks.stream().mapToLong(Block::maxSecond).max().orElse(Long.MIN_VALUE);
+    }
+
+    String name() {
+        return name;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    List<Block> blocks() {
+        return blocks;
+    }
+
+    int records() {
+        return blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).firstRecord() + blocks.get(blocks.size() - 1).count();
+    }
+
+    long minSecond() {
+        return minSecond;
+    }
+
+    long maxSecond() {
+        return maxSecond;
+    }
+
+    // --- Writing ---
+
+    /**
+     * Converts a history text log into a segment at {@code target}, written to a temporary file
+     * first so a crash never leaves half a segment. Malformed lines are skipped.
+     */
+    static HistorySegment write(Path textLog, Path target, ZoneId zone) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<Block> blocks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(textLog, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            BlockBuilder builder = new BlockBuilder();
+            long offset = HEADER_BYTES;
+            int records = 0;
+            String lastTimestamp = null;
+            long lastSecond = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                HistoryEntry entry = HistoryQueryService.parseLine(line.trim());
+                if (entry == null) {
+                    continue;
+                }
+                // Consecutive lines usually share their second; skip re-parsing it.
+                if (!entry.getTimestamp().equals(lastTimestamp)) {
+                    try {
+                        lastSecond = LocalDateTime.parse(entry.getTimestamp(), HistoryRecord.TIMESTAMP_FORMAT)
+                                .atZone(zone).toEpochSecond();
+                        lastTimestamp = entry.getTimestamp();
+                    } catch (DateTimeParseException e) {
+                        continue;
+                    }
+                }
+                builder.add(lastSecond, entry.getNumber(), entry.getStatus(), entry.getMessage());
+                if (builder.count == BLOCK_RECORDS) {
+                    Block block = builder.writeTo(data, records, offset);
+                    blocks.add(block);
+                    offset += block.length();
+                    records += block.count();
+                }
+            }
+            if (builder.count > 0) {
+                Block block = builder.writeTo(data, records, offset);
+                blocks.add(block);
+                offset += block.length();
+            }
+            for (Block block : blocks) {
+                data.writeLong(block.minSecond());
+                data.writeLong(block.maxSecond());
+                data.writeInt(block.count());
+                data.writeLong(block.offset());
+                data.writeInt(block.length());
+            }
+            data.writeLong(offset);
+            data.writeInt(blocks.size());
+            data.writeInt(MAGIC);
+            data.flush();
+            // The text log is deleted once the segment is in place
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new HistorySegment(target, List.copyOf(blocks));
+    }
+
+    /**
+     * Collects up to one block of records, then encodes and deflates them.
+     */
+    private static final class BlockBuilder {
+        private final long[] seconds = new long[BLOCK_RECORDS];
+        private final String[] numbers = new String[BLOCK_RECORDS];
+        private final String[] statuses = new String[BLOCK_RECORDS];
+        private final String[] summaries = new String[BLOCK_RECORDS];
+        private int count;
+
+        void add(long second, String number, String status, String summary) {
+            seconds[count] = second;
+            numbers[count] = number;
+            statuses[count] = status;
+            summaries[count] = summary;
+            count++;
+        }
+
+        Block writeTo(DataOutputStream out, int firstRecord, long offset) throws IOException {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                min = Math.min(min, seconds[i]);
+                max = Math.max(max, seconds[i]);
+            }
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(count * 8);
+            DataOutputStream columns = new DataOutputStream(raw);
+            writeVarLong(columns, count);
+            long previous = min;
+            for (int i = 0; i < count; i++) {
+                // Zigzag: lines from concurrent jobs may be a second out of order
+                long delta = seconds[i] - previous;
+                writeVarLong(columns, (delta << 1) ^ (delta >> 63));
+                previous = seconds[i];
+            }
+            for (int i = 0; i < count; i++) {
+                long code = numberCode(numbers[i]);
+                writeVarLong(columns, code);
+                if (code == 0) {
+                    writeString(columns, numbers[i]);
+                }
+            }
+            writeDictionaryColumn(columns, statuses, count);
+            writeDictionaryColumn(columns, summaries, count);
+
+            byte[] input = raw.toByteArray();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 4 + 64);
+            Deflater deflater = new Deflater();
+            try {
+                deflater.setInput(input);
+                deflater.finish();
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    compressed.write(chunk, 0, deflater.deflate(chunk));
+                }
+            } finally {
+                deflater.end();
+            }
+            out.writeInt(input.length);
+            compressed.writeTo(out);
+            Block block = new Block(min, max, firstRecord, count, offset, 4 + compressed.size());
+            count = 0;
+            return block;
+        }
+
+        private static void writeDictionaryColumn(DataOutputStream out, String[] values, int count) throws IOException {
+            Map<String, Integer> ids = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            int[] codes = new int[count];
+            for (int i = 0; i < count; i++) {
+                codes[i] = ids.computeIfAbsent(values[i], v -> {
+                    dictionary.add(v);
+                    return dictionary.size() - 1;
+                });
+            }
+            writeVarLong(out, dictionary.size());
+            for (String value : dictionary) {
+                writeString(out, value);
+            }
+            for (int code : codes) {
+                writeVarLong(out, code);
+            }
+        }
+    }
+
+    /**
+     * A number such as +4915123456789 packed into a long (digits shifted left, low bit for the
+     * plus sign), or 0 if it does not fit and is stored as text.
+     */
+    static long numberCode(String number) {
+        boolean plus = number.startsWith("+");
+        int start = plus ? 1 : 0;
+        int digits = number.length() - start;
+        if (digits < 1 || digits > 18 || number.charAt(start) == '0') {
+            return 0;
+        }
+        long value = 0;
+        for (int i = start; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value << 1 | (plus ? 1 : 0);
+    }
+
+    static String numberFromCode(long code) {
+        String digits = Long.toString(code >>> 1);
+        return (code & 1) == 1 ? "+" + digits : digits;
+    }
+
+    // --- Reading ---
+
+    /**
+     * Reads a segment's block index.
+     */
+    static HistorySegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Truncated history segment " + file.getFileName());
+            }
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+            long indexOffset = trailer.getLong();
+            int blockCount = trailer.getInt();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || trailer.getInt() != MAGIC
+                    || indexOffset + (long) blockCount * INDEX_ENTRY_BYTES + TRAILER_BYTES != size) {
+                throw new IOException("Not a history segment: " + file.getFileName());
+            }
+            ByteBuffer index = readFully(channel, indexOffset, blockCount * INDEX_ENTRY_BYTES);
+            List<Block> blocks = new ArrayList<>(blockCount);
+            int firstRecord = 0;
+            for (int i = 0; i < blockCount; i++) {
+                Block block = new Block(index.getLong(), index.getLong(), firstRecord, index.getInt(), index.getLong(), index.getInt());
+                blocks.add(block);
+                firstRecord += block.count();
+            }
+            return new HistorySegment(file, List.copyOf(blocks));
+        }
+    }
+
+    /**
+     * Inflates one block; records come back in file order.
+     */
+    List<HistoryRecord> read(Block block) throws IOException {
+        byte[] compressed;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            compressed = readFully(channel, block.offset(), block.length()).array();
+        }
+        int rawLength = ByteBuffer.wrap(compressed, 0, 4).getInt();
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, 4, compressed.length - 4);
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("Corrupt block at " + block.offset() + " in " + file.getFileName());
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at " + block.offset() + " in " + file.getFileName(), e);
+        } finally {
+            inflater.end();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        int count = (int) readVarLong(in);
+        long[] seconds = new long[count];
+        long previous = block.minSecond();
+        for (int i = 0; i < count; i++) {
+            long zigzag = readVarLong(in);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            seconds[i] = previous;
+        }
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            long code = readVarLong(in);
+            numbers[i] = code == 0 ? readString(in) : numberFromCode(code);
+        }
+        String[] statuses = readDictionaryColumn(in, count);
+        String[] summaries = readDictionaryColumn(in, count);
+        List<HistoryRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new HistoryRecord(seconds[i] * 1000, numbers[i], statuses[i], summaries[i]));
+        }
+        return records;
+    }
+
+    private static String[] readDictionaryColumn(DataInputStream in, int count) throws IOException {
+        String[] dictionary = new String[(int) readVarLong(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+        }
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = dictionary[(int) readVarLong(in)];
+        }
+        return values;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + length + " bytes at " + position);
+            }
+        }
+        return buffer.flip();
+    }
+
+    // --- Encoding ---
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
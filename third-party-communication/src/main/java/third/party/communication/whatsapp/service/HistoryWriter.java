@@ -0,0 +1,323 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background appender for history.log. Callers only enqueue; a single writer thread drains
+ * the queue in batches and appends each batch with one write on a long-lived FileChannel
+ * (group commit). The file is optionally fsynced, and rotated by size or date. A batch that
+ * cannot be written is kept and retried rather than dropped.
+ */
+@Component
+public class HistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryWriter.class);
+
+    public static final Path HISTORY_LOG_FILE = Paths.get(System.getProperty("user.dir")).resolve("history.log");
+
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RETRY_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final DateTimeFormatter ROTATED_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public enum FsyncPolicy { NONE, BATCH, INTERVAL }
+
+    /**
+     * Told about every record as it is appended, on the caller's thread. Must be cheap.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onRecord(HistoryRecord record);
+    }
+
+    /**
+     * Told about every file rotated away, on the writer thread. Must not block.
+     */
+    @FunctionalInterface
+    public interface RotationListener {
+        void onRotated(Path rotatedFile);
+    }
+
+    // --- Configuration ---
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final long rotateMaxBytes;
+    private final boolean rotateDaily;
+
+    private final Path logFile;
+    private final ConcurrentLinkedQueue<HistoryRecord> queue = new ConcurrentLinkedQueue<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<RotationListener> rotationListeners = new CopyOnWriteArrayList<>();
+    private volatile Thread writerThread;
+    private volatile boolean running = true;
+
+    // Owned by the writer thread
+    private FileChannel channel;
+    private LocalDate fileDate;
+    private long lastForceMillis;
+    private boolean dirty;
+    private final StringBuilder batch = new StringBuilder(8192);
+    // Bytes of the current batch not written yet, or null
+    private ByteBuffer pending;
+    private int pendingCount;
+
+    @Autowired
+    public HistoryWriter(@Value("${whatsapp.history.fsync:INTERVAL}") FsyncPolicy fsyncPolicy,
+                         @Value("${whatsapp.history.fsync-interval-ms:1000}") long fsyncIntervalMillis,
+                         @Value("${whatsapp.history.rotate-max-mb:0}") long rotateMaxMb,
+                         @Value("${whatsapp.history.rotate-daily:false}") boolean rotateDaily) {
+        this(HISTORY_LOG_FILE, fsyncPolicy, fsyncIntervalMillis, rotateMaxMb * 1024 * 1024, rotateDaily);
+    }
+
+    HistoryWriter(Path logFile, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, long rotateMaxBytes, boolean rotateDaily) {
+        this.logFile = logFile;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.rotateMaxBytes = rotateMaxBytes;
+        this.rotateDaily = rotateDaily;
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread = Thread.ofPlatform().name("history-writer").daemon(true).start(this::writeLoop);
+    }
+
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void addRotationListener(RotationListener listener) {
+        rotationListeners.add(listener);
+    }
+
+    /**
+     * Glob matching the files this log is rotated to, e.g. {@code history-*.log}.
+     */
+    static String rotatedGlob(Path logFile) {
+        return baseName(logFile) + "-*.log";
+    }
+
+    private static String baseName(Path logFile) {
+        String fileName = logFile.getFileName().toString();
+        return fileName.endsWith(".log") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+
+    /**
+     * Queues a record for appending. Never blocks on I/O.
+     */
+    public void append(HistoryRecord record) {
+        if (!running) {
+            logger.warn("History writer is stopped; dropping entry for {}.", record.number());
+            return;
+        }
+        queue.offer(record);
+        Thread writer = writerThread;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onRecord(record);
+            } catch (RuntimeException e) {
+                logger.error("History listener failed for {}: {}", record.number(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty() || pending != null) {
+            if (pending == null) {
+                HistoryRecord record = queue.poll();
+                if (record == null) {
+                    forceIfDue();
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                batch.setLength(0);
+                int count = 0;
+                String lineSeparator = System.lineSeparator();
+                do {
+                    record.appendTo(batch);
+                    batch.append(lineSeparator);
+                    count++;
+                } while (count < MAX_BATCH && (record = queue.poll()) != null);
+                pending = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+                pendingCount = count;
+            }
+            if (!writePending()) {
+                if (!running) {
+                    logger.error("History writer stopping with {} entries unwritten to '{}'.",
+                            pendingCount + queue.size(), logFile.toAbsolutePath());
+                    break;
+                }
+                LockSupport.parkNanos(this, RETRY_PARK_NANOS);
+            }
+        }
+        closeChannel();
+    }
+
+    /**
+     * Writes what is left of the pending batch. On failure the rest stays pending for the next try.
+     */
+    private boolean writePending() {
+        rotateIfNeeded();
+        try {
+            ensureOpen();
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write to log file '{}', retrying {} entries: {}", logFile.toAbsolutePath(),
+                    pendingCount, e.getMessage(), e);
+            closeChannel();
+            return false;
+        }
+        pending = null;
+        dirty = true;
+        if (fsyncPolicy == FsyncPolicy.BATCH) {
+            force();
+        } else {
+            forceIfDue();
+        }
+        logger.debug("Appended {} history entries.", pendingCount);
+        return true;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        Files.createDirectories(logFile.toAbsolutePath().getParent());
+        fileDate = Files.exists(logFile)
+                ? LocalDate.ofInstant(Files.getLastModifiedTime(logFile).toInstant(), ZoneId.systemDefault())
+                : LocalDate.now();
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Rotates when due. A failed rotation is logged and the current file kept, so it never costs entries.
+     */
+    private void rotateIfNeeded() {
+        if (rotateMaxBytes <= 0 && !rotateDaily) {
+            return;
+        }
+        Path rotated;
+        try {
+            ensureOpen();
+            boolean sizeExceeded = rotateMaxBytes > 0 && channel.size() >= rotateMaxBytes;
+            boolean dayChanged = rotateDaily && !LocalDate.now().equals(fileDate) && channel.size() > 0;
+            if (!sizeExceeded && !dayChanged) {
+                return;
+            }
+            closeChannel();
+            rotated = rotatedName();
+            Files.move(logFile, rotated, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to rotate log file '{}'; appending to it instead: {}", logFile.toAbsolutePath(), e.getMessage(), e);
+            return;
+        }
+        logger.info("Rotated {} to {}.", logFile.getFileName(), rotated.getFileName());
+        for (RotationListener listener : rotationListeners) {
+            try {
+                listener.onRotated(rotated);
+            } catch (RuntimeException e) {
+                logger.error("Rotation listener failed for {}: {}", rotated.getFileName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * history-yyyyMMdd-HHmmss.log, with -1, -2, ... when that second was already used.
+     */
+    private Path rotatedName() {
+        String stem = baseName(logFile) + "-" + LocalDateTime.now().format(ROTATED_SUFFIX);
+        Path rotated = logFile.resolveSibling(stem + ".log");
+        for (int n = 1; Files.exists(rotated); n++) {
+            rotated = logFile.resolveSibling(stem + "-" + n + ".log");
+        }
+        return rotated;
+    }
+
+    private void forceIfDue() {
+        if (dirty && fsyncPolicy == FsyncPolicy.INTERVAL
+                && System.currentTimeMillis() - lastForceMillis >= fsyncIntervalMillis) {
+            force();
+        }
+    }
+
+    private void force() {
+        try {
+            channel.force(false);
+            dirty = false;
+            lastForceMillis = System.currentTimeMillis();
+        } catch (IOException e) {
+            logger.error("Failed to fsync log file '{}': {}", logFile.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (dirty && fsyncPolicy != FsyncPolicy.NONE) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing log file '{}': {}", logFile.toAbsolutePath(), e.getMessage());
+        }
+        channel = null;
+        dirty = false;
+    }
+
+    /**
+     * Stops accepting entries and waits for the queue to be written out.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread writer = writerThread;
+        if (writer == null) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            logger.warn("History writer did not finish flushing within 10 seconds.");
+        }
+    }
+}
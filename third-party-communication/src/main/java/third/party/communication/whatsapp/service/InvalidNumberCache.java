@@ -0,0 +1,326 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Numbers WhatsApp recently rejected ("Invalid Number") or could not open ("Chat Not Ready"),
+ * so campaigns can skip them without loading the chat. Entries expire after a TTL per status
+ * and the least recently used ones are evicted beyond the size bound. A later successful send
+ * clears the number.
+ *
+ * <p>The cache is saved to invalid-numbers.cache periodically and on shutdown. At startup it is
+ * loaded from there and then topped up from the history written after the snapshot, archived
+ * segments and rotated logs included. Numbers are keyed in {@link NumberNormalizer#canonical}
+ * form, so national-format lines from older history match the E.164 numbers sends are checked
+ * with.
+ */
+@Component
+public class InvalidNumberCache implements HistoryWriter.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidNumberCache.class);
+
+    public static final Path SNAPSHOT_FILE = Paths.get(System.getProperty("user.dir")).resolve("invalid-numbers.cache");
+
+    public static final String INVALID_NUMBER = "Invalid Number";
+    public static final String CHAT_NOT_READY = "Chat Not Ready";
+    private static final String SUCCESS = "Success";
+    private static final char FIELD_SEPARATOR = '|';
+
+    /**
+     * A cached number. {@code hits} counts how often a send skipped it.
+     */
+    public record Entry(String number, String status, long markedAtMillis, long expiresAtMillis, int hits) {
+
+        Entry hit() {
+            return new Entry(number, status, markedAtMillis, expiresAtMillis, hits + 1);
+        }
+    }
+
+    // --- Configuration ---
+    private final long invalidTtlMillis;
+    private final long chatNotReadyTtlMillis;
+    private final int maxEntries;
+    private final long saveIntervalSeconds;
+
+    private final Path snapshotFile;
+    private final Path historyFile;
+    private final HistoryWriter historyWriter; // null in tests
+    private final HistoryArchive archive; // null in tests
+    private final NumberNormalizer normalizer;
+
+    // Access-ordered, so iteration starts at the least recently used entry. Guarded by 'this'.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private boolean dirty;
+
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "invalid-cache-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    public InvalidNumberCache(HistoryWriter historyWriter, HistoryArchive archive, NumberNormalizer normalizer,
+                              @Value("${whatsapp.invalid-cache.invalid-ttl-days:30}") long invalidTtlDays,
+                              @Value("${whatsapp.invalid-cache.chat-not-ready-ttl-hours:24}") long chatNotReadyTtlHours,
+                              @Value("${whatsapp.invalid-cache.max-entries:50000}") int maxEntries,
+                              @Value("${whatsapp.invalid-cache.save-interval-seconds:300}") long saveIntervalSeconds) {
+        this(SNAPSHOT_FILE, historyWriter.getLogFile(), historyWriter, archive, normalizer, Duration.ofDays(invalidTtlDays),
+                Duration.ofHours(chatNotReadyTtlHours), maxEntries, saveIntervalSeconds);
+    }
+
+    InvalidNumberCache(Path snapshotFile, Path historyFile, HistoryWriter historyWriter, HistoryArchive archive,
+                       NumberNormalizer normalizer, Duration invalidTtl, Duration chatNotReadyTtl, int maxEntries,
+                       long saveIntervalSeconds) {
+        this.snapshotFile = snapshotFile;
+        this.historyFile = historyFile;
+        this.historyWriter = historyWriter;
+        this.archive = archive;
+        this.normalizer = normalizer;
+        this.invalidTtlMillis = invalidTtl.toMillis();
+        this.chatNotReadyTtlMillis = chatNotReadyTtl.toMillis();
+        this.maxEntries = Math.max(1, maxEntries);
+        this.saveIntervalSeconds = saveIntervalSeconds;
+    }
+
+    @PostConstruct
+    public void load() {
+        long snapshotTime = loadSnapshot();
+        int seeded = seedFromHistory(snapshotTime);
+        logger.info("Invalid-number cache holds {} numbers ({} from history).", size(), seeded);
+        if (historyWriter != null) {
+            historyWriter.addListener(this);
+        }
+        // Bounds what a crash loses; the history since the last save is replayed at the next start
+        if (saveIntervalSeconds > 0) {
+            saver.scheduleWithFixedDelay(this::save, saveIntervalSeconds, saveIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saver.shutdownNow();
+        save();
+    }
+
+    /**
+     * The cached entry for a number, counting the lookup as a skip; null if the number is not known to be bad.
+     */
+    public synchronized Entry check(String number) {
+        String key = normalizer.canonical(number);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(key);
+            dirty = true;
+            return null;
+        }
+        Entry hit = entry.hit();
+        entries.put(key, hit);
+        dirty = true;
+        return hit;
+    }
+
+    @Override
+    public void onRecord(HistoryRecord record) {
+        if (SUCCESS.equals(record.status())) {
+            remove(record.number());
+        } else {
+            mark(record.number(), record.status(), record.epochMillis());
+        }
+    }
+
+    /**
+     * Live entries, most recently used last.
+     */
+    public synchronized List<Entry> list() {
+        evictExpired(System.currentTimeMillis());
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized Entry peek(String number) {
+        Entry entry = entries.get(normalizer.canonical(number));
+        return entry == null || entry.expiresAtMillis() <= System.currentTimeMillis() ? null : entry;
+    }
+
+    public synchronized boolean remove(String number) {
+        boolean removed = entries.remove(normalizer.canonical(number)) != null;
+        dirty |= removed;
+        return removed;
+    }
+
+    /**
+     * Removes every entry, or only those with the given status. Returns how many were removed.
+     */
+    public synchronized int purge(String status) {
+        int before = entries.size();
+        if (status == null) {
+            entries.clear();
+        } else {
+            entries.values().removeIf(e -> e.status().equalsIgnoreCase(status));
+        }
+        int removed = before - entries.size();
+        dirty |= removed > 0;
+        return removed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the snapshot if anything changed since it was loaded or last saved.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        evictExpired(System.currentTimeMillis());
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries.values()) {
+                writer.write(entry.number() + FIELD_SEPARATOR + entry.status() + FIELD_SEPARATOR
+                        + entry.markedAtMillis() + FIELD_SEPARATOR + entry.expiresAtMillis() + FIELD_SEPARATOR + entry.hits());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write invalid-number cache '{}': {}", temp.toAbsolutePath(), e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            logger.info("Saved {} invalid numbers to {}.", entries.size(), snapshotFile.getFileName());
+        } catch (IOException e) {
+            logger.error("Failed to replace invalid-number cache '{}': {}", snapshotFile.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    private synchronized void mark(String number, String status, long markedAtMillis) {
+        long ttl = ttlFor(status);
+        if (ttl <= 0) {
+            return;
+        }
+        long expiresAt = markedAtMillis + ttl;
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        String key = normalizer.canonical(number);
+        Entry previous = entries.get(key);
+        entries.put(key, new Entry(key, status, markedAtMillis, expiresAt, previous == null ? 0 : previous.hits()));
+        dirty = true;
+        evictOverflow();
+    }
+
+    private long ttlFor(String status) {
+        if (INVALID_NUMBER.equals(status)) {
+            return invalidTtlMillis;
+        }
+        if (CHAT_NOT_READY.equals(status)) {
+            return chatNotReadyTtlMillis;
+        }
+        return 0;
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void evictExpired(long now) {
+        dirty |= entries.values().removeIf(e -> e.expiresAtMillis() <= now);
+    }
+
+    /**
+     * @return the snapshot's modification time, or 0 if there is none
+     */
+    private synchronized long loadSnapshot() {
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+            long modified = Files.getLastModifiedTime(snapshotFile).toMillis();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = parseSnapshotLine(line);
+                if (entry != null && entry.expiresAtMillis() > now) {
+                    String key = normalizer.canonical(entry.number());
+                    entries.put(key, new Entry(key, entry.status(), entry.markedAtMillis(), entry.expiresAtMillis(), entry.hits()));
+                }
+            }
+            evictOverflow();
+            return modified;
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            logger.warn("Could not read invalid-number cache '{}': {}", snapshotFile.toAbsolutePath(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private static Entry parseSnapshotLine(String line) {
+        String[] parts = new String[5];
+        int start = 0;
+        for (int i = 0; i < parts.length; i++) {
+            int end = i == parts.length - 1 ? line.length() : line.indexOf(FIELD_SEPARATOR, start);
+            if (end < 0) {
+                return null;
+            }
+            parts[i] = line.substring(start, end);
+            start = end + 1;
+        }
+        try {
+            return new Entry(parts[0], parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]), Integer.parseInt(parts[4]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replays the history newer than {@code sinceMillis}. Returns how many entries marked a number.
+     */
+    private int seedFromHistory(long sinceMillis) {
+        int[] seeded = {0};
+        try {
+            HistoryReplay.replay(historyFile, archive, sinceMillis, ZoneId.systemDefault(), (epochMillis, number, status) -> {
+                if (SUCCESS.equals(status)) {
+                    remove(number);
+                } else if (ttlFor(status) > 0) {
+                    mark(number, status, epochMillis);
+                    seeded[0]++;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not seed invalid-number cache from history: {}", e.getMessage());
+        }
+        return seeded[0];
+    }
+}
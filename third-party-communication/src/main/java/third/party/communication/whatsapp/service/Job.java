@@ -0,0 +1,117 @@
+package third.party.communication.whatsapp.service;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A send or delete run submitted through the API. Workers update its counters as
+ * numbers are processed; cancellation is cooperative and checked between numbers.
+ */
+public class Job {
+
+    public enum Type { SEND, DELETE }
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    /**
+     * Scheduling class, highest first: URGENT work is interleaved into running sessions ahead of
+     * everything else, and BULK only gets a browser when nothing more important is waiting.
+     */
+    public enum Priority { URGENT, NORMAL, BULK }
+
+    public static final String ANONYMOUS_SUBMITTER = "anonymous";
+
+    private final String id = UUID.randomUUID().toString();
+    private final Type type;
+    private final Priority priority;
+    private final String submitter;
+    private final AtomicInteger total;
+    private final long submittedAt = System.currentTimeMillis();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile boolean cancelRequested;
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile Runnable changeListener = () -> { };
+
+    public Job(Type type, int total) {
+        this(type, total, Priority.NORMAL, ANONYMOUS_SUBMITTER);
+    }
+
+    public Job(Type type, int total, Priority priority, String submitter) {
+        this.type = type;
+        this.priority = priority;
+        this.submitter = submitter == null || submitter.isBlank() ? ANONYMOUS_SUBMITTER : submitter;
+        this.total = new AtomicInteger(total);
+    }
+
+    public String getId() { return id; }
+    public Type getType() { return type; }
+    public Priority getPriority() { return priority; }
+    public String getSubmitter() { return submitter; }
+    public int getTotal() { return total.get(); }
+    public long getSubmittedAt() { return submittedAt; }
+    public long getStartedAt() { return startedAt; }
+    public long getFinishedAt() { return finishedAt; }
+    public Status getStatus() { return status; }
+    public int getProcessed() { return processed.get(); }
+    public int getSucceeded() { return succeeded.get(); }
+    public int getFailed() { return failed.get(); }
+
+    public boolean isCancelRequested() { return cancelRequested; }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.CANCELLED || status == Status.FAILED;
+    }
+
+    public void recordResult(boolean success) {
+        (success ? succeeded : failed).incrementAndGet();
+        processed.incrementAndGet();
+        changeListener.run();
+    }
+
+    /**
+     * Numbers processed per minute since the job started running.
+     */
+    public double getThroughputPerMinute() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        long end = finishedAt != 0 ? finishedAt : System.currentTimeMillis();
+        long elapsedMillis = Math.max(end - startedAt, 1);
+        return processed.get() * 60_000.0 / elapsedMillis;
+    }
+
+    /**
+     * For streamed campaigns, whose size is only known once the upload has been read.
+     */
+    void addToTotal(int count) {
+        total.addAndGet(count);
+        changeListener.run();
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void markRunning() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+        changeListener.run();
+    }
+
+    void markFinished(Status finalStatus) {
+        finishedAt = System.currentTimeMillis();
+        status = finalStatus;
+        changeListener.run();
+    }
+
+    /**
+     * Run after every change of status or counters, on the thread making it. Must be cheap.
+     */
+    void onChange(Runnable listener) {
+        changeListener = listener;
+    }
+}
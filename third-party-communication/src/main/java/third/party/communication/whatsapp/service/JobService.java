@@ -0,0 +1,232 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs send and delete jobs on a fixed number of workers behind a bounded queue.
+ * When the queue is full new submissions are rejected instead of piling up browsers.
+ * The queue is ordered by {@link Job.Priority}, so NORMAL work starts before BULK work that was
+ * queued earlier; URGENT jobs have workers of their own and never wait behind running jobs.
+ * Workers are virtual threads: they only orchestrate and wait while the browser work runs in
+ * the {@link SessionLeaseManager}, where jobs that run at the same time share each profile's session.
+ */
+@Service
+public class JobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    /**
+     * Told about every change of a job's status or counters, on the thread making it. Must be cheap.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onJobChanged(Job job);
+    }
+
+    /**
+     * A queued job, ordered by priority and then by submission.
+     */
+    private record QueuedJob(Job job, long sequence, Runnable work) implements Runnable {
+        static final Comparator<Runnable> ORDER = Comparator
+                .comparing((Runnable r) -> ((QueuedJob) r).job().getPriority())
+                .thenComparingLong(r -> ((QueuedJob) r).sequence());
+
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor urgentExecutor;
+    private final int queueCapacity;
+    private final int retainedJobs;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Runnable> queuedTasks = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public JobService(@Value("${whatsapp.jobs.workers:4}") int workers,
+                      @Value("${whatsapp.jobs.urgent-workers:2}") int urgentWorkers,
+                      @Value("${whatsapp.jobs.queue-capacity:20}") int queueCapacity,
+                      @Value("${whatsapp.jobs.retained:200}") int retainedJobs) {
+        this.queueCapacity = queueCapacity;
+        this.retainedJobs = retainedJobs;
+        // Unbounded by type; submit() enforces the capacity
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(queueCapacity, QueuedJob.ORDER),
+                Thread.ofVirtual().name("whatsapp-job-", 1).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.urgentExecutor = new ThreadPoolExecutor(urgentWorkers, urgentWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("whatsapp-urgent-", 1).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Job service started with {} worker(s), {} urgent worker(s) and a queue of {}.",
+                workers, urgentWorkers, queueCapacity);
+    }
+
+    JobService(int workers, int queueCapacity, int retainedJobs) {
+        this(workers, 1, queueCapacity, retainedJobs);
+    }
+
+    /**
+     * Queues NORMAL work for an anonymous submitter and returns its job handle.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public Job submit(Job.Type type, int total, Consumer<Job> work) {
+        return submit(type, total, Job.Priority.NORMAL, Job.ANONYMOUS_SUBMITTER, work);
+    }
+
+    /**
+     * Queues the work and returns its job handle. {@code submitter} is who asked for it; jobs of
+     * one class share browser sessions fairly between submitters.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public Job submit(Job.Type type, int total, Job.Priority priority, String submitter, Consumer<Job> work) {
+        Job job = new Job(type, total, priority, submitter);
+        job.onChange(() -> {
+            for (Listener listener : listeners) {
+                try {
+                    listener.onJobChanged(job);
+                } catch (RuntimeException e) {
+                    logger.error("Job listener failed for {}: {}", job.getId(), e.getMessage(), e);
+                }
+            }
+        });
+        Runnable task = new QueuedJob(job, sequence.getAndIncrement(), () -> execute(job, work));
+        jobs.put(job.getId(), job);
+        queuedTasks.put(job.getId(), task);
+        try {
+            if (priority == Job.Priority.URGENT) {
+                urgentExecutor.execute(task);
+            } else {
+                synchronized (executor) {
+                    if (executor.getQueue().size() >= queueCapacity) {
+                        throw new RejectedExecutionException("Job queue is full");
+                    }
+                    executor.execute(task);
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            queuedTasks.remove(job.getId());
+            logger.warn("Rejected {} {} job for {} numbers: queue is full.", priority, type, total);
+            throw e;
+        }
+        logger.info("Queued {} {} job {} for {} numbers from {}.", priority, type, job.getId(), total, job.getSubmitter());
+        evictFinishedJobs();
+        return job;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Queued and running jobs, oldest first.
+     */
+    public List<Job> activeJobs() {
+        return jobs.values().stream()
+                .filter(job -> !job.isFinished())
+                .sorted(Comparator.comparingLong(Job::getSubmittedAt))
+                .toList();
+    }
+
+    public Optional<Job> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Requests cancellation. A queued job is dropped immediately; a running one stops
+     * before its next number.
+     */
+    public Optional<Job> cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.requestCancel();
+        Runnable task = queuedTasks.remove(id);
+        if (task != null && (executor.remove(task) || urgentExecutor.remove(task))) {
+            job.markFinished(Job.Status.CANCELLED);
+            logger.info("Cancelled queued job {}.", id);
+        } else if (!job.isFinished()) {
+            logger.info("Cancellation requested for running job {}.", id);
+        }
+        return Optional.of(job);
+    }
+
+    /**
+     * Numbers of queued and running jobs that are not processed yet.
+     */
+    public long remainingNumbers() {
+        long remaining = 0;
+        for (Job job : jobs.values()) {
+            if (!job.isFinished()) {
+                remaining += Math.max(0, job.getTotal() - job.getProcessed());
+            }
+        }
+        return remaining;
+    }
+
+    private void execute(Job job, Consumer<Job> work) {
+        queuedTasks.remove(job.getId());
+        if (job.isCancelRequested()) {
+            job.markFinished(Job.Status.CANCELLED);
+            return;
+        }
+        job.markRunning();
+        try {
+            work.accept(job);
+            job.markFinished(job.isCancelRequested() ? Job.Status.CANCELLED : Job.Status.COMPLETED);
+        } catch (Exception e) {
+            logger.error("Job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.markFinished(Job.Status.FAILED);
+        }
+        logger.info("Job {} {}: {} processed, {} succeeded, {} failed.", job.getId(), job.getStatus(),
+                job.getProcessed(), job.getSucceeded(), job.getFailed());
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() <= retainedJobs) {
+            return;
+        }
+        Iterator<Job> finished = jobs.values().stream()
+                .filter(Job::isFinished)
+                .sorted((a, b) -> Long.compare(a.getFinishedAt(), b.getFinishedAt()))
+                .iterator();
+        while (jobs.size() > retainedJobs && finished.hasNext()) {
+            jobs.remove(finished.next().getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(Job::requestCancel);
+        executor.shutdownNow();
+        urgentExecutor.shutdownNow();
+    }
+}
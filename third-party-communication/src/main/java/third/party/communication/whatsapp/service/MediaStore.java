@@ -0,0 +1,309 @@
+package third.party.communication.whatsapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Campaign attachments, prepared once and stored under the SHA-256 of the uploaded bytes
+ * ({@code media/<hash>/<file name>}), so the same upload is processed only once.
+ * Images larger than WhatsApp's effective resolution are downscaled and recompressed as JPEG;
+ * videos and documents are checked against their size limits and stored as they are.
+ */
+@Component
+public class MediaStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaStore.class);
+
+    public enum Kind { IMAGE, VIDEO, DOCUMENT }
+
+    /**
+     * A stored attachment. {@code file} is what gets uploaded to WhatsApp.
+     */
+    public record MediaItem(String id, Kind kind, Path file, long sizeBytes) {
+
+        public String fileName() {
+            return file.getFileName().toString();
+        }
+    }
+
+    private static final long MB = 1024 * 1024;
+
+    // --- Configuration ---
+    private final Path mediaDir;
+    private final int maxImageDimension;
+    private final float jpegQuality;
+    private final long maxImageBytes;
+    private final long maxVideoBytes;
+    private final long maxDocumentBytes;
+
+    @Autowired
+    public MediaStore(@Value("${whatsapp.media.dir:media}") String mediaDir,
+                      @Value("${whatsapp.media.image-max-dimension:1600}") int maxImageDimension,
+                      @Value("${whatsapp.media.jpeg-quality:0.8}") float jpegQuality,
+                      @Value("${whatsapp.media.max-image-mb:16}") long maxImageMb,
+                      @Value("${whatsapp.media.max-video-mb:16}") long maxVideoMb,
+                      @Value("${whatsapp.media.max-document-mb:100}") long maxDocumentMb) {
+        this(Paths.get(System.getProperty("user.dir")).resolve(mediaDir), maxImageDimension, jpegQuality,
+                maxImageMb * MB, maxVideoMb * MB, maxDocumentMb * MB);
+    }
+
+    MediaStore(Path mediaDir, int maxImageDimension, float jpegQuality, long maxImageBytes, long maxVideoBytes,
+               long maxDocumentBytes) {
+        this.mediaDir = mediaDir;
+        this.maxImageDimension = maxImageDimension;
+        this.jpegQuality = jpegQuality;
+        this.maxImageBytes = maxImageBytes;
+        this.maxVideoBytes = maxVideoBytes;
+        this.maxDocumentBytes = maxDocumentBytes;
+    }
+
+    /**
+     * Validates, prepares and stores one upload.
+     *
+     * @param fileName    original file name, used for the stored name and to tell the kind
+     * @param contentType declared content type, may be null
+     * @throws IllegalArgumentException if the file is empty, too large or not a readable image
+     */
+    public MediaItem store(String fileName, String contentType, InputStream content) throws IOException {
+        Files.createDirectories(mediaDir);
+        String name = safeFileName(fileName);
+        Kind kind = kindOf(name, contentType);
+        Path upload = Files.createTempFile(mediaDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Files.newOutputStream(upload)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Optional<MediaItem> existing = find(hash);
+            if (existing.isPresent()) {
+                logger.debug("Media {} already stored as {}.", name, hash);
+                return existing.get();
+            }
+            long size = Files.size(upload);
+            if (size == 0) {
+                throw new IllegalArgumentException(name + " is empty.");
+            }
+            // Images are recompressed, so up front they may exceed the limit a little.
+            checkLimit(name, kind, size, kind == Kind.IMAGE ? maxImageBytes * 4 : limitFor(kind));
+
+            Path staging = Files.createTempDirectory(mediaDir, hash + "-");
+            Path prepared = kind == Kind.IMAGE ? prepareImage(upload, name, staging) : moveInto(upload, name, staging);
+            checkLimit(name, kind, Files.size(prepared), limitFor(kind));
+            try {
+                Files.move(staging, mediaDir.resolve(hash), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Stored concurrently by another request; keep theirs.
+                deleteRecursively(staging);
+            }
+            MediaItem item = find(hash).orElseThrow(() -> new IOException("Stored media " + hash + " disappeared."));
+            logger.info("Stored {} {} as {} ({} -> {} bytes).", kind, name, hash, size, item.sizeBytes());
+            return item;
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    /**
+     * Stores a file that is already on disk, e.g. the legacy image.png.
+     */
+    public MediaItem store(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return store(file.getFileName().toString(), null, in);
+        }
+    }
+
+    public Optional<MediaItem> find(String id) throws IOException {
+        if (id == null || id.length() != 64) {
+            return Optional.empty();
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (!HexFormat.isHexDigit(id.charAt(i))) {
+                return Optional.empty();
+            }
+        }
+        Path dir = mediaDir.resolve(id);
+        if (!Files.isDirectory(dir)) {
+            return Optional.empty();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                return Optional.of(new MediaItem(id, kindOf(file.getFileName().toString(), null), file.toAbsolutePath(), Files.size(file)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Looks up the attachments a send request refers to.
+     *
+     * @throws IllegalArgumentException for an id that was not uploaded via /media
+     */
+    public List<MediaItem> findAll(List<String> ids) throws IOException {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<MediaItem> media = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            media.add(find(id).orElseThrow(() -> new IllegalArgumentException("Unknown media id: " + id)));
+        }
+        return media;
+    }
+
+    private Path prepareImage(Path upload, String name, Path staging) throws IOException {
+        BufferedImage image = ImageIO.read(upload.toFile());
+        if (image == null) {
+            // Formats ImageIO cannot decode (webp, heic, ...) are passed through if they fit.
+            return moveInto(upload, name, staging);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxImageDimension / Math.max(width, height));
+        boolean isJpeg = name.toLowerCase(Locale.ROOT).matches(".*\\.jpe?g");
+        if (scale == 1.0 && isJpeg && Files.size(upload) <= maxImageBytes) {
+            return moveInto(upload, name, staging);
+        }
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        // JPEG has no alpha; flatten onto white like WhatsApp does.
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, targetWidth, targetHeight);
+            g.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g.dispose();
+        }
+        Path out = staging.resolve(baseName(name) + ".jpg");
+        writeJpeg(target, out);
+        logger.debug("Image {} resized from {}x{} to {}x{}.", name, width, height, targetWidth, targetHeight);
+        return out;
+    }
+
+    private void writeJpeg(BufferedImage image, Path out) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG encoder available.");
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(Files.newOutputStream(out))) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private long limitFor(Kind kind) {
+        return switch (kind) {
+            case IMAGE -> maxImageBytes;
+            case VIDEO -> maxVideoBytes;
+            case DOCUMENT -> maxDocumentBytes;
+        };
+    }
+
+    private static void checkLimit(String name, Kind kind, long size, long limit) {
+        if (size > limit) {
+            throw new IllegalArgumentException(String.format("%s is %d MB; %s files may be at most %d MB.",
+                    name, (size + MB - 1) / MB, kind.name().toLowerCase(Locale.ROOT), limit / MB));
+        }
+    }
+
+    private static Path moveInto(Path upload, String name, Path staging) throws IOException {
+        Path target = staging.resolve(name);
+        Files.move(upload, target, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    static Kind kindOf(String fileName, String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (type.startsWith("image/") || name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg")
+                || name.endsWith(".gif") || name.endsWith(".webp") || name.endsWith(".bmp")) {
+            return Kind.IMAGE;
+        }
+        // The formats WhatsApp Web's photo & video picker accepts
+        if (type.equals("video/mp4") || type.equals("video/3gpp") || type.equals("video/quicktime")
+                || name.endsWith(".mp4") || name.endsWith(".3gp") || name.endsWith(".mov")) {
+            return Kind.VIDEO;
+        }
+        return Kind.DOCUMENT;
+    }
+
+    /**
+     * Keeps the name WhatsApp will show for documents while stripping anything path-like.
+     */
+    static String safeFileName(String fileName) {
+        String name = fileName == null ? "" : fileName;
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        name = name.substring(slash + 1).trim();
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(Character.isISOControl(c) || c == ':' || c == '*' || c == '?' || c == '"' || c == '<' || c == '>' || c == '|' ? '_' : c);
+        }
+        String safe = sb.toString();
+        return safe.isEmpty() || safe.equals(".") || safe.equals("..") ? "attachment" : safe;
+    }
+
+    private static String baseName(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+}
@@ -0,0 +1,112 @@
+package third.party.communication.whatsapp.service;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Actions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Types a message into WhatsApp's Lexical editor. In BULK mode the whole multi-line text goes
+ * in with one script call: a synthetic paste event (which Lexical handles itself), or
+ * {@code execCommand('insertText')} if nothing handled the paste. The editor content is then
+ * compared with the message; if it does not match, the editor is cleared and the message is
+ * typed with keystrokes, one line at a time with SHIFT+ENTER in between, as before.
+ * Bulk insertion also copes with emoji, which ChromeDriver cannot send as keystrokes.
+ */
+@Component
+public class MessageComposer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageComposer.class);
+
+    public enum Mode { BULK, KEYSTROKES }
+
+    // Returns the editor's text afterwards so the caller can verify in the same round trip.
+    private static final String INSERT_SCRIPT = """
+            const editor = arguments[0], text = arguments[1];
+            editor.focus();
+            const data = new DataTransfer();
+            data.setData('text/plain', text);
+            const paste = new ClipboardEvent('paste', {clipboardData: data, bubbles: true, cancelable: true});
+            editor.dispatchEvent(paste);
+            if (!paste.defaultPrevented) {
+                document.execCommand('insertText', false, text);
+            }
+            return editor.innerText;
+            """;
+
+    private final Mode mode;
+
+    public MessageComposer(@Value("${whatsapp.send.compose-mode:BULK}") Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Puts {@code message} into {@code editor} without submitting it.
+     *
+     * @return the mode that ended up being used
+     */
+    public Mode compose(WebDriver driver, WebElement editor, String message) {
+        if (mode == Mode.BULK) {
+            try {
+                Object text = ((JavascriptExecutor) driver).executeScript(INSERT_SCRIPT, editor, message.replace("\r\n", "\n"));
+                if (text instanceof String s && sameText(s, message)) {
+                    return Mode.BULK;
+                }
+                logger.warn("Editor did not accept bulk insertion; falling back to keystrokes.");
+            } catch (WebDriverException e) {
+                // A lost session fails again below and reaches the caller from there.
+                logger.warn("Bulk insertion failed ({}); falling back to keystrokes.", e.getMessage());
+            }
+            clear(driver, editor);
+        }
+        typeWithKeystrokes(driver, editor, message);
+        return Mode.KEYSTROKES;
+    }
+
+    private static void typeWithKeystrokes(WebDriver driver, WebElement editor, String message) {
+        Actions actions = new Actions(driver);
+        String[] lines = message.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            actions.moveToElement(editor).sendKeys(lines[i]);
+            if (i < lines.length - 1) {
+                actions.keyDown(Keys.SHIFT).sendKeys(Keys.ENTER).keyUp(Keys.SHIFT);
+            }
+        }
+        actions.perform();
+    }
+
+    private static void clear(WebDriver driver, WebElement editor) {
+        new Actions(driver).moveToElement(editor).click()
+                .keyDown(Keys.CONTROL).sendKeys("a").keyUp(Keys.CONTROL)
+                .sendKeys(Keys.DELETE)
+                .perform();
+    }
+
+    /**
+     * Compares ignoring whitespace, since the editor renders line breaks as paragraphs.
+     */
+    static boolean sameText(String editorText, String message) {
+        int i = 0;
+        int j = 0;
+        while (true) {
+            while (i < editorText.length() && Character.isWhitespace(editorText.charAt(i))) {
+                i++;
+            }
+            while (j < message.length() && Character.isWhitespace(message.charAt(j))) {
+                j++;
+            }
+            if (i == editorText.length() || j == message.length()) {
+                return i == editorText.length() && j == message.length();
+            }
+            if (editorText.charAt(i++) != message.charAt(j++)) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package third.party.communication.whatsapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message with {@code {{variable}}} placeholders, parsed once per campaign and rendered per
+ * recipient. Unknown variables render as empty text; a message without placeholders is returned as is.
+ */
+public final class MessageTemplate {
+
+    private final String text;
+    // Alternating literal text and variable names, starting with text
+    private final List<String> parts;
+
+    private MessageTemplate(String text, List<String> parts) {
+        this.text = text;
+        this.parts = parts;
+    }
+
+    public static MessageTemplate parse(String text) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = text.indexOf("{{", start)) >= 0) {
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                break;
+            }
+            parts.add(text.substring(start, open));
+            parts.add(text.substring(open + 2, close).trim());
+            start = close + 2;
+        }
+        parts.add(text.substring(start));
+        return new MessageTemplate(text, List.copyOf(parts));
+    }
+
+    public boolean hasVariables() {
+        return parts.size() > 1;
+    }
+
+    public String render(Map<String, String> variables) {
+        if (!hasVariables()) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 32);
+        for (int i = 0; i < parts.size(); i++) {
+            if (i % 2 == 0) {
+                sb.append(parts.get(i));
+            } else {
+                String value = variables.get(parts.get(i));
+                if (value != null) {
+                    sb.append(value);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,196 @@
+package third.party.communication.whatsapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import third.party.communication.whatsapp.dto.RejectedNumber;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the free-text numbers field into E.164 digit strings (country code included, no '+'),
+ * drops duplicates and reports what it could not use. Single pass over the input, no regex;
+ * duplicates are detected on the numeric value so formatting differences do not matter.
+ *
+ * <p>Rules per entry (entries are separated by new lines, ',' or ';'):
+ * <ul>
+ *   <li>'+' or '00' prefix: already international.</li>
+ *   <li>a leading trunk '0', or at most {@value #MAX_NATIONAL_DIGITS} digits: national, the default country code is prepended.</li>
+ *   <li>otherwise: assumed to already start with a country code.</li>
+ * </ul>
+ * Spaces, '-', '.', '/' and parentheses are ignored; anything else rejects the entry.
+ */
+@Component
+public class NumberNormalizer {
+
+    private static final int MIN_E164_DIGITS = 8;
+    private static final int MAX_E164_DIGITS = 15;
+    static final int MAX_NATIONAL_DIGITS = 10;
+
+    public record Result(List<String> numbers, List<RejectedNumber> rejected, int duplicates) {
+    }
+
+    /**
+     * One entry: either {@code number} or the reject {@code reason} is set.
+     */
+    public record Single(String number, String reason) {
+    }
+
+    private final String defaultCountryCode;
+
+    public NumberNormalizer(@Value("${whatsapp.numbers.default-country-code:91}") String defaultCountryCode) {
+        this.defaultCountryCode = requireCountryCode(defaultCountryCode);
+    }
+
+    /**
+     * @param countryCode country code for national numbers in this request; null or blank for the configured default
+     * @throws IllegalArgumentException if {@code countryCode} is not 1-3 digits
+     */
+    public Result normalize(String input, String countryCode) {
+        String cc = resolveCountryCode(countryCode);
+        List<String> numbers = new ArrayList<>();
+        List<RejectedNumber> rejected = new ArrayList<>();
+        if (input == null) {
+            return new Result(numbers, rejected, 0);
+        }
+        LongLongHashMap seen = new LongLongHashMap(Math.max(16, input.length() / 12));
+        StringBuilder digits = new StringBuilder(MAX_E164_DIGITS + 4);
+        int duplicates = 0;
+        int start = 0;
+        int length = input.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? input.charAt(i) : '\n';
+            if (c != '\n' && c != '\r' && c != ',' && c != ';') {
+                continue;
+            }
+            if (i > start) {
+                String reason = parse(input, start, i, cc, digits);
+                if (reason != null) {
+                    rejected.add(new RejectedNumber(input.substring(start, i).trim(), reason));
+                } else if (digits.length() > 0) {
+                    long key = Long.parseLong(digits, 0, digits.length(), 10);
+                    if (seen.put(key, 0, -1) == -1) {
+                        numbers.add(digits.toString());
+                    } else {
+                        duplicates++;
+                    }
+                }
+            }
+            start = i + 1;
+        }
+        return new Result(numbers, rejected, duplicates);
+    }
+
+    /**
+     * Normalizes a single entry, for callers that read numbers one at a time. Does not de-duplicate.
+     *
+     * @throws IllegalArgumentException if {@code countryCode} is not 1-3 digits
+     */
+    public Single normalizeOne(String entry, String countryCode) {
+        String cc = resolveCountryCode(countryCode);
+        StringBuilder digits = new StringBuilder(MAX_E164_DIGITS + 4);
+        String reason = parse(entry, 0, entry.length(), cc, digits);
+        if (reason == null && digits.isEmpty()) {
+            reason = "No digits";
+        }
+        return reason == null ? new Single(digits.toString(), null) : new Single(null, reason);
+    }
+
+    /**
+     * The form a number read back from history is compared in. Lines logged before numbers were
+     * normalized hold national numbers; they get the default country code, so both eras of a
+     * contact share one key. Numbers that do not parse are returned trimmed.
+     */
+    public String canonical(String number) {
+        String trimmed = number.trim();
+        if (isE164(trimmed)) {
+            return trimmed; // everything logged since normalization, without allocating
+        }
+        Single single = normalizeOne(trimmed, null);
+        return single.number() != null ? single.number() : trimmed;
+    }
+
+    private static boolean isE164(String number) {
+        int length = number.length();
+        if (length <= MAX_NATIONAL_DIGITS || length > MAX_E164_DIGITS || number.charAt(0) == '0') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills {@code out} with the E.164 digits of {@code input[from, to)}. Returns a reject reason,
+     * or null on success; {@code out} stays empty for blank entries.
+     */
+    private static String parse(String input, int from, int to, String cc, StringBuilder out) {
+        out.setLength(0);
+        boolean plus = false;
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                out.append(c);
+            } else if (c == '+' && out.isEmpty() && !plus) {
+                plus = true;
+            } else if (c != ' ' && c != '\t' && c != '-' && c != '.' && c != '/' && c != '(' && c != ')') {
+                return "Invalid character '" + c + "'";
+            }
+            if (out.length() > MAX_E164_DIGITS + 2) {
+                return "Too long";
+            }
+        }
+        if (out.isEmpty()) {
+            return plus ? "No digits" : null;
+        }
+        if (!plus && out.length() > 2 && out.charAt(0) == '0' && out.charAt(1) == '0') {
+            out.delete(0, 2);
+            plus = true;
+        }
+        if (!plus && (out.charAt(0) == '0' || out.length() <= MAX_NATIONAL_DIGITS)) {
+            while (!out.isEmpty() && out.charAt(0) == '0') {
+                out.deleteCharAt(0);
+            }
+            out.insert(0, cc);
+        }
+        if (out.charAt(0) == '0') {
+            return "Country code cannot start with 0";
+        }
+        if (out.length() < MIN_E164_DIGITS) {
+            return "Too short";
+        }
+        if (out.length() > MAX_E164_DIGITS) {
+            return "Too long";
+        }
+        return null;
+    }
+
+    /**
+     * The country code to use for a request: {@code countryCode} without '+', or the default if blank.
+     *
+     * @throws IllegalArgumentException if {@code countryCode} is not 1-3 digits
+     */
+    public String resolveCountryCode(String countryCode) {
+        return countryCode == null || countryCode.isBlank() ? defaultCountryCode : requireCountryCode(countryCode);
+    }
+
+    private static String requireCountryCode(String countryCode) {
+        String cc = countryCode.trim();
+        if (cc.startsWith("+")) {
+            cc = cc.substring(1);
+        }
+        if (cc.isEmpty() || cc.length() > 3 || cc.charAt(0) == '0') {
+            throw new IllegalArgumentException("Invalid country code: " + countryCode);
+        }
+        for (int i = 0; i < cc.length(); i++) {
+            if (cc.charAt(i) < '0' || cc.charAt(i) > '9') {
+                throw new IllegalArgumentException("Invalid country code: " + countryCode);
+            }
+        }
+        return cc;
+    }
+}
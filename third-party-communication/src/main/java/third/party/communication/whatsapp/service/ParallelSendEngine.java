@@ -0,0 +1,146 @@
+package third.party.communication.whatsapp.service;
+
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a batch of numbers across every configured WhatsApp profile, one shard per profile.
+ * Shards pull from a {@link WorkStealingQueue}, so throughput grows with the number of profiles
+ * and a slow or crashed shard does not hold up the rest. Streamed campaigns are pulled from a
+ * {@link RecipientFeed} instead. Each shard runs in its profile's lane of the
+ * {@link SessionLeaseManager}, so jobs that overlap share the profile's browser.
+ */
+@Component
+public class ParallelSendEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelSendEngine.class);
+
+    private final WhatsappSessionPool sessionPool;
+    private final SessionLeaseManager leaseManager;
+
+    @Autowired
+    public ParallelSendEngine(WhatsappSessionPool sessionPool, SessionLeaseManager leaseManager) {
+        this.sessionPool = sessionPool;
+        this.leaseManager = leaseManager;
+    }
+
+    /**
+     * Work done for one number on a logged-in session. Returns whether it succeeded.
+     */
+    @FunctionalInterface
+    public interface RecipientTask {
+        boolean process(WhatsappSession session, String number);
+    }
+
+    /**
+     * Work done for one streamed recipient. Returns whether it succeeded.
+     */
+    @FunctionalInterface
+    public interface FeedTask {
+        boolean process(WhatsappSession session, RecipientFeed.Recipient recipient);
+    }
+
+    /**
+     * Runs the job across all configured profiles.
+     */
+    public void run(Job job, List<String> numbers, RecipientTask task) throws InterruptedException {
+        run(job, sessionPool.getProfiles(), numbers, task);
+    }
+
+    /**
+     * Runs the task for every number and blocks until all shards have finished or the job is cancelled.
+     * The task must handle and log per-number failures itself; a {@link WebDriverException}
+     * escaping it is treated as a lost browser, and the number is handed back to the queue.
+     */
+    public void run(Job job, List<Path> profiles, List<String> numbers, RecipientTask task) throws InterruptedException {
+        int shards = Math.min(profiles.size(), numbers.size());
+        WorkStealingQueue<String> queue = new WorkStealingQueue<>(shards);
+        queue.distribute(numbers);
+        logger.info("Running {} for {} numbers across {} shard(s).", job.getType(), numbers.size(), shards);
+        runShards(job, profiles.subList(0, shards), new SessionLeaseManager.WorkSource<>() {
+            @Override
+            public String poll(int shard) {
+                return queue.poll(shard);
+            }
+
+            @Override
+            public void pushBack(int shard, String item) {
+                queue.pushBack(shard, item);
+            }
+
+            @Override
+            public boolean hasWork() {
+                return queue.size() > 0;
+            }
+
+            @Override
+            public int remaining() {
+                return queue.size();
+            }
+        }, task::process);
+    }
+
+    /**
+     * Like {@link #run(Job, List, RecipientTask)}, but recipients arrive while the job runs. Every
+     * profile takes from the feed as it is filled, until it is drained or the job is cancelled.
+     */
+    public void run(Job job, RecipientFeed feed, FeedTask task) throws InterruptedException {
+        List<Path> profiles = sessionPool.getProfiles();
+        logger.info("Running {} for a streamed campaign across {} shard(s).", job.getType(), profiles.size());
+        runShards(job, profiles, new SessionLeaseManager.WorkSource<>() {
+            @Override
+            public RecipientFeed.Recipient poll(int shard) throws InterruptedException {
+                // Short wait, so a slow upload does not hold up other jobs in the lane
+                return feed.poll(200, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public void pushBack(int shard, RecipientFeed.Recipient item) {
+                feed.pushBack(item);
+            }
+
+            @Override
+            public boolean hasWork() {
+                return !feed.isDrained();
+            }
+
+            @Override
+            public int remaining() {
+                return feed.buffered();
+            }
+        }, task::process);
+    }
+
+    private <T> void runShards(Job job, List<Path> profiles, SessionLeaseManager.WorkSource<T> source,
+                               SessionLeaseManager.ItemTask<T> task) throws InterruptedException {
+        String operation = job.getType().name();
+        List<CompletableFuture<Integer>> leases = new ArrayList<>(profiles.size());
+        for (int i = 0; i < profiles.size(); i++) {
+            leases.add(leaseManager.lease(profiles.get(i), job, i, source, task));
+        }
+        for (CompletableFuture<Integer> lease : leases) {
+            try {
+                lease.get();
+            } catch (ExecutionException e) {
+                logger.error("{} shard failed unexpectedly: {}", operation, e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        int leftOver = source.remaining();
+        if (job.isCancelRequested()) {
+            logger.info("{} job {} cancelled with {} numbers left.", operation, job.getId(), leftOver);
+        } else if (leftOver > 0) {
+            logger.error("{} finished with {} numbers unprocessed because no shard could get a working session.", operation, leftOver);
+        }
+    }
+}
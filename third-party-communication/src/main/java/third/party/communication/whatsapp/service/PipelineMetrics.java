@@ -0,0 +1,91 @@
+package third.party.communication.whatsapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer instrumentation of the Selenium pipeline, scraped from /actuator/prometheus.
+ * <ul>
+ *   <li>{@code whatsapp_phase_seconds{phase}}: histogram per step of a send or delete, so the
+ *       phase that dominates p99 can be told apart.</li>
+ *   <li>{@code whatsapp_outcomes_total{status}}: one count per history entry, by its status.</li>
+ *   <li>{@code whatsapp_drivers_active} and {@code whatsapp_numbers_queued}: gauges.</li>
+ * </ul>
+ * Callers take {@code System.nanoTime()} before a phase and pass it to {@link #record}.
+ */
+@Component
+public class PipelineMetrics {
+
+    public enum Phase {
+        DRIVER_SETUP("driver_setup"),
+        LOGIN_WAIT("login_wait"),
+        CHAT_NAVIGATION("chat_navigation"),
+        CHAT_READINESS("chat_readiness"),
+        ATTACH("attach"),
+        TYPING("typing"),
+        SEND_CONFIRMATION("send_confirmation"),
+        DELETE("delete");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+    // Statuses are the fixed strings passed to logStatus, so this stays small
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final AtomicInteger activeDrivers = new AtomicInteger();
+
+    @Autowired
+    public PipelineMetrics(MeterRegistry registry, JobService jobService) {
+        this.registry = registry;
+        for (Phase phase : Phase.values()) {
+            timers.put(phase, Timer.builder("whatsapp.phase")
+                    .description("Time spent in one step of a WhatsApp Web send or delete")
+                    .tag("phase", phase.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(5))
+                    .maximumExpectedValue(Duration.ofMinutes(2))
+                    .register(registry));
+        }
+        Gauge.builder("whatsapp.drivers.active", activeDrivers, AtomicInteger::get)
+                .description("ChromeDriver sessions currently running")
+                .register(registry);
+        Gauge.builder("whatsapp.numbers.queued", jobService, JobService::remainingNumbers)
+                .description("Numbers of queued and running jobs not processed yet")
+                .register(registry);
+    }
+
+    public void record(Phase phase, long startNanos) {
+        timers.get(phase).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void outcome(String status) {
+        outcomes.computeIfAbsent(status, s -> Counter.builder("whatsapp.outcomes")
+                .description("History entries written, by status")
+                .tag("status", s)
+                .register(registry)).increment();
+    }
+
+    public void driverStarted() {
+        activeDrivers.incrementAndGet();
+    }
+
+    public void driverQuit() {
+        activeDrivers.decrementAndGet();
+    }
+}
@@ -0,0 +1,229 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes history outcomes and job progress to live subscribers (the dashboard's event stream),
+ * so it does not have to poll and re-read history.log. Publishing never blocks: every subscriber
+ * has a bounded buffer of outcomes, dropping the oldest when a client falls behind and telling it
+ * how many were lost, and keeps only the latest progress of each job. Each subscriber is drained
+ * on its own virtual thread while it has something pending.
+ */
+@Service
+public class ProgressBroadcaster implements HistoryWriter.Listener, JobService.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgressBroadcaster.class);
+
+    /**
+     * Where a subscriber's events go, e.g. an SSE connection. Called from one thread at a time.
+     */
+    public interface Sink {
+        void outcome(HistoryRecord record) throws IOException;
+
+        void progress(Job job) throws IOException;
+
+        /** Outcomes dropped since the last call because the subscriber fell behind. */
+        void dropped(long count) throws IOException;
+    }
+
+    private final HistoryWriter historyWriter; // null in tests
+    private final JobService jobService; // null in tests
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService pumpExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("progress-pump-", 1).factory());
+
+    @Autowired
+    public ProgressBroadcaster(HistoryWriter historyWriter, JobService jobService,
+                               @Value("${whatsapp.events.buffer:256}") int bufferSize,
+                               @Value("${whatsapp.events.max-subscribers:20}") int maxSubscribers) {
+        this.historyWriter = historyWriter;
+        this.jobService = jobService;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    ProgressBroadcaster(int bufferSize, int maxSubscribers) {
+        this(null, null, bufferSize, maxSubscribers);
+    }
+
+    @PostConstruct
+    public void register() {
+        if (historyWriter != null) {
+            historyWriter.addListener(this);
+        }
+        if (jobService != null) {
+            jobService.addListener(this);
+        }
+    }
+
+    /**
+     * Adds a subscriber, starting with the progress of every queued and running job.
+     * Empty when {@code whatsapp.events.max-subscribers} are already connected.
+     */
+    public Optional<Subscription> subscribe(Sink sink) {
+        Subscription subscription = new Subscription(sink);
+        synchronized (subscriptions) {
+            if (subscriptions.size() >= maxSubscribers) {
+                return Optional.empty();
+            }
+            subscriptions.add(subscription);
+        }
+        if (jobService != null) {
+            jobService.activeJobs().forEach(subscription::offerProgress);
+        }
+        logger.info("Progress subscriber connected ({} total).", subscriptions.size());
+        return Optional.of(subscription);
+    }
+
+    @Override
+    public void onRecord(HistoryRecord record) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offerOutcome(record);
+        }
+    }
+
+    @Override
+    public void onJobChanged(Job job) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offerProgress(job);
+        }
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Subscription::close);
+        pumpExecutor.shutdownNow();
+    }
+
+    public final class Subscription {
+        private final Sink sink;
+
+        // --- Pending events, guarded by 'this' ---
+        private final ArrayDeque<HistoryRecord> outcomes = new ArrayDeque<>();
+        // Job id -> job; the job's counters are read when sent, so updates coalesce
+        private final Map<String, Job> progress = new LinkedHashMap<>();
+        private long dropped;
+        private boolean pumping;
+        private boolean closed;
+
+        private Subscription(Sink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Stops delivery, e.g. when the client disconnects.
+         */
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                outcomes.clear();
+                progress.clear();
+            }
+            subscriptions.remove(this);
+            logger.info("Progress subscriber disconnected ({} left).", subscriptions.size());
+        }
+
+        void offerOutcome(HistoryRecord record) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (outcomes.size() >= bufferSize) {
+                    outcomes.pollFirst();
+                    dropped++;
+                }
+                outcomes.addLast(record);
+            }
+            schedule();
+        }
+
+        void offerProgress(Job job) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                progress.putIfAbsent(job.getId(), job);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (pumping || closed) {
+                    return;
+                }
+                pumping = true;
+            }
+            pumpExecutor.execute(this::pump);
+        }
+
+        /**
+         * Sends pending events in batches until none are left. Outcomes go before progress so
+         * a job's counters never run ahead of the outcomes already shown.
+         */
+        private void pump() {
+            while (true) {
+                long lost;
+                List<HistoryRecord> records;
+                List<Job> jobs;
+                synchronized (this) {
+                    if (closed || (dropped == 0 && outcomes.isEmpty() && progress.isEmpty())) {
+                        pumping = false;
+                        return;
+                    }
+                    lost = dropped;
+                    dropped = 0;
+                    records = new ArrayList<>(outcomes);
+                    outcomes.clear();
+                    jobs = new ArrayList<>(progress.values());
+                    progress.clear();
+                }
+                try {
+                    if (lost > 0) {
+                        sink.dropped(lost);
+                    }
+                    for (HistoryRecord record : records) {
+                        sink.outcome(record);
+                    }
+                    for (Job job : jobs) {
+                        sink.progress(job);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.debug("Progress subscriber failed: {}", e.getMessage());
+                    close();
+                    synchronized (this) {
+                        pumping = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package third.party.communication.whatsapp.service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded hand-off between an upload being parsed and the shards sending to it. The producer
+ * blocks while the buffer is full, which holds back the upload itself, so memory stays bounded
+ * by the buffer whatever the campaign size.
+ */
+public class RecipientFeed {
+
+    /**
+     * One recipient with its template variables (CSV columns or NDJSON fields besides the number).
+     */
+    public record Recipient(String number, Map<String, String> variables) {
+    }
+
+    private final BlockingQueue<Recipient> buffer;
+    // Handed back by a shard that lost its browser; taken before the buffer
+    private final ConcurrentLinkedDeque<Recipient> retries = new ConcurrentLinkedDeque<>();
+    private volatile boolean complete;
+    private volatile boolean abandoned;
+
+    public RecipientFeed(int capacity) {
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Adds a recipient, waiting up to the timeout for room.
+     *
+     * @return false if the buffer stayed full or the consumer has gone away
+     */
+    public boolean offer(Recipient recipient, long timeout, TimeUnit unit) throws InterruptedException {
+        return !abandoned && buffer.offer(recipient, timeout, unit);
+    }
+
+    /**
+     * Marks the end of the input. Buffered recipients are still sent.
+     */
+    public void complete() {
+        complete = true;
+    }
+
+    /**
+     * Called by the consumer when it stops; a producer waiting for room gives up.
+     */
+    public void abandon() {
+        abandoned = true;
+        buffer.clear();
+    }
+
+    /**
+     * Next recipient, or null if none arrived within the timeout.
+     */
+    Recipient poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Recipient retry = retries.pollFirst();
+        return retry != null ? retry : buffer.poll(timeout, unit);
+    }
+
+    void pushBack(Recipient recipient) {
+        retries.addFirst(recipient);
+    }
+
+    /**
+     * True once the input is complete and everything has been taken.
+     */
+    boolean isDrained() {
+        return (complete || abandoned) && buffer.isEmpty() && retries.isEmpty();
+    }
+
+    int buffered() {
+        return buffer.size() + retries.size();
+    }
+
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+}
@@ -0,0 +1,259 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Durable progress of one send or delete run, so a run cut short by a crash or restart can be
+ * resumed without repeating work. Two files per run in the runs directory:
+ * <ul>
+ *   <li>{@code <run>.run}: the {@link RunSpec} on the first line, then one recipient per line
+ *       ({@code number} or {@code number<TAB>{variables}}).</li>
+ *   <li>{@code <run>.journal}: append-only {@code number|state} records, where state is
+ *       {@code >} (started), {@code S} (succeeded) or {@code F} (failed).</li>
+ * </ul>
+ * A recipient with any record is never processed again by this run. One that was started but
+ * never settled may already have received the message, so a resume reports it instead of
+ * sending again.
+ */
+public class RunJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunJournal.class);
+
+    private static final TypeReference<Map<String, String>> VARIABLES = new TypeReference<>() {
+    };
+
+    private static final long STARTED = 1;
+    private static final long SUCCEEDED = 2;
+    private static final long FAILED = 3;
+
+    private final String runId;
+    private final RunSpec spec;
+    private final Path specFile;
+    private final Path journalFile;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+
+    // number -> state; guarded by 'this'
+    private final LongLongHashMap states = new LongLongHashMap(64);
+    private FileChannel journal;
+    private FileChannel recipients; // only while a streamed campaign is still being uploaded
+    private boolean finished;
+
+    RunJournal(String runId, RunSpec spec, Path specFile, Path journalFile, boolean fsync, ObjectMapper objectMapper) {
+        this.runId = runId;
+        this.spec = spec;
+        this.specFile = specFile;
+        this.journalFile = journalFile;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public RunSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Runs {@code work} for one recipient unless the run already handled it, journaling the
+     * start before and the outcome after. An exception from {@code work} (a lost browser) leaves
+     * the recipient started only; the send engine retries it in this run.
+     */
+    public boolean track(String number, BooleanSupplier work) {
+        append(number, '>', STARTED);
+        boolean success = work.getAsBoolean();
+        append(number, success ? 'S' : 'F', success ? SUCCEEDED : FAILED);
+        return success;
+    }
+
+    /**
+     * Records an outcome decided without touching the browser, e.g. a number skipped from the invalid-number cache.
+     */
+    public void settle(String number, boolean success) {
+        append(number, success ? 'S' : 'F', success ? SUCCEEDED : FAILED);
+    }
+
+    public synchronized boolean isHandled(String number) {
+        return states.containsKey(key(number));
+    }
+
+    /**
+     * The numbers this run has not handled yet, in order.
+     */
+    public List<String> pending(List<String> numbers) {
+        List<String> pending = new ArrayList<>(numbers.size());
+        for (String number : numbers) {
+            if (!isHandled(number)) {
+                pending.add(number);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Numbers that were started but never settled, i.e. the run stopped while processing them.
+     */
+    public synchronized List<String> interrupted() {
+        List<String> numbers = new ArrayList<>();
+        states.forEach((key, state) -> {
+            if (state == STARTED) {
+                numbers.add(Long.toString(key));
+            }
+        });
+        return numbers;
+    }
+
+    /**
+     * Appends a recipient of a streamed campaign to the run file as it is accepted.
+     */
+    public synchronized void addRecipient(String number, Map<String, String> variables) {
+        try {
+            if (recipients == null) {
+                recipients = FileChannel.open(specFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            String line = variables.isEmpty() ? number : number + '\t' + objectMapper.writeValueAsString(variables);
+            writeFully(recipients, line + '\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not record recipient for run " + runId, e);
+        }
+    }
+
+    /**
+     * Reads the run's recipients back, one at a time.
+     */
+    public void forEachRecipient(Consumer<RecipientFeed.Recipient> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(specFile, StandardCharsets.UTF_8)) {
+            reader.readLine(); // the spec
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    consumer.accept(new RecipientFeed.Recipient(line, Map.of()));
+                } else {
+                    try {
+                        consumer.accept(new RecipientFeed.Recipient(line.substring(0, tab),
+                                objectMapper.readValue(line.substring(tab + 1), VARIABLES)));
+                    } catch (JsonProcessingException e) {
+                        // Torn last line from a crash mid-write; that recipient was never queued
+                        logger.warn("Skipping unreadable recipient in run {}: {}", runId, e.getOriginalMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends the run. A complete run's files are deleted; an incomplete one (e.g. interrupted by
+     * shutdown) is kept so it can be resumed.
+     */
+    public synchronized void finish(boolean complete) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        closeQuietly(journal);
+        closeQuietly(recipients);
+        if (!complete) {
+            logger.info("Run {} is incomplete; keeping its journal for resume.", runId);
+            return;
+        }
+        try {
+            Files.deleteIfExists(journalFile);
+            Files.deleteIfExists(specFile);
+        } catch (IOException e) {
+            logger.warn("Could not remove journal of finished run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the journal file into memory; used when resuming.
+     */
+    synchronized void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int bar = line.indexOf('|');
+                if (bar <= 0 || bar != line.length() - 2) {
+                    continue; // torn last line
+                }
+                long state = switch (line.charAt(bar + 1)) {
+                    case '>' -> STARTED;
+                    case 'S' -> SUCCEEDED;
+                    case 'F' -> FAILED;
+                    default -> 0;
+                };
+                if (state != 0) {
+                    try {
+                        states.put(Long.parseLong(line, 0, bar, 10), state, 0);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing processed yet
+        }
+    }
+
+    private synchronized void append(String number, char code, long state) {
+        states.put(key(number), state, 0);
+        try {
+            if (journal == null) {
+                journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            writeFully(journal, number + '|' + code + '\n');
+            if (fsync) {
+                journal.force(false);
+            }
+        } catch (IOException e) {
+            // Keep sending; the in-memory state still prevents repeats within this process
+            logger.error("Could not write journal for run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long key(String number) {
+        return Long.parseLong(number);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Creates {@link RunJournal}s in the runs directory and finds the ones left unfinished by a
+ * previous process.
+ */
+@Component
+public class RunJournalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunJournalService.class);
+
+    private static final String SPEC_SUFFIX = ".run";
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final Path runsDir;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public RunJournalService(@Value("${whatsapp.runs.dir:runs}") String runsDir,
+                             @Value("${whatsapp.runs.fsync:true}") boolean fsync,
+                             ObjectMapper objectMapper) {
+        this(Paths.get(System.getProperty("user.dir")).resolve(runsDir), fsync, objectMapper);
+    }
+
+    RunJournalService(Path runsDir, boolean fsync, ObjectMapper objectMapper) {
+        this.runsDir = runsDir;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the run file for a new run. {@code recipients} may be empty for runs that add them
+     * as they go ({@link RunSpec.Kind#CAMPAIGN}) or have none ({@link RunSpec.Kind#DELETE_SENT}).
+     */
+    public RunJournal create(RunSpec spec, List<String> recipients) throws IOException {
+        Files.createDirectories(runsDir);
+        String runId = UUID.randomUUID().toString();
+        Path specFile = runsDir.resolve(runId + SPEC_SUFFIX);
+        Path temp = runsDir.resolve(runId + SPEC_SUFFIX + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(objectMapper.writeValueAsString(spec));
+            writer.newLine();
+            for (String number : recipients) {
+                writer.write(number);
+                writer.newLine();
+            }
+        }
+        // Atomic, so a crash never leaves a run file with only part of its recipients
+        Files.move(temp, specFile, StandardCopyOption.ATOMIC_MOVE);
+        return new RunJournal(runId, spec, specFile, runsDir.resolve(runId + JOURNAL_SUFFIX), fsync, objectMapper);
+    }
+
+    /**
+     * Runs a previous process did not finish, oldest first, with their journals loaded.
+     */
+    public List<RunJournal> unfinished() {
+        List<RunJournal> runs = new ArrayList<>();
+        if (!Files.isDirectory(runsDir)) {
+            return runs;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(runsDir, "*" + SPEC_SUFFIX)) {
+            for (Path specFile : files) {
+                String name = specFile.getFileName().toString();
+                String runId = name.substring(0, name.length() - SPEC_SUFFIX.length());
+                try (BufferedReader reader = Files.newBufferedReader(specFile, StandardCharsets.UTF_8)) {
+                    RunSpec spec = objectMapper.readValue(reader.readLine(), RunSpec.class);
+                    RunJournal journal = new RunJournal(runId, spec, specFile, runsDir.resolve(runId + JOURNAL_SUFFIX), fsync, objectMapper);
+                    journal.load();
+                    runs.add(journal);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Could not read run file '{}': {}", specFile.toAbsolutePath(), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Could not list runs in '{}': {}", runsDir.toAbsolutePath(), e.getMessage());
+        }
+        runs.sort(Comparator.comparingLong(r -> r.getSpec().createdAt()));
+        return runs;
+    }
+}
@@ -0,0 +1,158 @@
+package third.party.communication.whatsapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restarts the runs a previous process left unfinished, as new jobs that skip every recipient
+ * already handled. Recipients that were being processed when the process stopped are reported
+ * in history and not sent again, since the message may already have gone out.
+ */
+@Component
+public class RunResumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunResumer.class);
+
+    static final String INTERRUPTED_STATUS = "Interrupted (Not Resent)";
+
+    private final RunJournalService runJournalService;
+    private final JobService jobService;
+    private final WhatsappService whatsappService;
+    private final MediaStore mediaStore;
+    private final SentMessageStore sentMessageStore;
+    private final CampaignIngestService ingestService;
+    private final HistoryWriter historyWriter;
+    private final boolean resumeOnStartup;
+
+    @Autowired
+    public RunResumer(RunJournalService runJournalService, JobService jobService, WhatsappService whatsappService,
+                      MediaStore mediaStore, SentMessageStore sentMessageStore, CampaignIngestService ingestService,
+                      HistoryWriter historyWriter,
+                      @Value("${whatsapp.runs.resume-on-startup:true}") boolean resumeOnStartup) {
+        this.runJournalService = runJournalService;
+        this.jobService = jobService;
+        this.whatsappService = whatsappService;
+        this.mediaStore = mediaStore;
+        this.sentMessageStore = sentMessageStore;
+        this.ingestService = ingestService;
+        this.historyWriter = historyWriter;
+        this.resumeOnStartup = resumeOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        for (RunJournal run : runJournalService.unfinished()) {
+            try {
+                resume(run);
+            } catch (IOException | IllegalArgumentException e) {
+                // Keep the files so the run can be looked at or resumed once the cause is fixed
+                logger.error("Could not resume run {} ({}): {}", run.getRunId(), run.getSpec().kind(), e.getMessage());
+            } catch (RejectedExecutionException e) {
+                logger.error("Could not resume run {}: job queue is full.", run.getRunId());
+            }
+        }
+    }
+
+    private void resume(RunJournal run) throws IOException {
+        for (String number : run.interrupted()) {
+            historyWriter.append(HistoryRecord.of(number, INTERRUPTED_STATUS, "Run " + run.getRunId() + " stopped while processing this number"));
+            run.settle(number, false);
+        }
+        RunSpec spec = run.getSpec();
+        Job job = switch (spec.kind()) {
+            case SEND -> {
+                List<String> numbers = run.pending(numbers(run));
+                List<MediaStore.MediaItem> media = mediaStore.findAll(spec.mediaIds());
+                yield numbers.isEmpty() ? null : jobService.submit(Job.Type.SEND, numbers.size(),
+                        j -> whatsappService.runSeleniumLogic(j, spec.message(), numbers, media, run));
+            }
+            case CAMPAIGN -> resumeCampaign(run, spec);
+            case DELETE -> {
+                List<String> numbers = run.pending(numbers(run));
+                yield numbers.isEmpty() ? null : jobService.submit(Job.Type.DELETE, numbers.size(),
+                        j -> whatsappService.runSeleniumDeleteLogic(j, numbers, run));
+            }
+            case DELETE_SENT -> {
+                List<SentMessageStore.SentMessage> messages = sentMessageStore.forJob(spec.target());
+                if (messages.isEmpty() && sentMessageStore.find(spec.target()) != null) {
+                    messages = List.of(sentMessageStore.find(spec.target()));
+                }
+                List<SentMessageStore.SentMessage> remaining = messages.stream().filter(m -> !run.isHandled(m.number())).toList();
+                int chats = (int) remaining.stream().map(SentMessageStore.SentMessage::number).distinct().count();
+                yield remaining.isEmpty() ? null : jobService.submit(Job.Type.DELETE, chats,
+                        j -> whatsappService.runSeleniumDeleteSentLogic(j, remaining, run));
+            }
+        };
+        if (job == null) {
+            logger.info("Run {} ({}) had nothing left to do.", run.getRunId(), spec.kind());
+            run.finish(true);
+        } else {
+            logger.info("Resumed run {} ({}) as job {} with {} recipients left.", run.getRunId(), spec.kind(), job.getId(), job.getTotal());
+        }
+    }
+
+    /**
+     * Campaign recipients are read back from the run file into a feed, pending ones only, so
+     * memory stays bounded like the original upload.
+     */
+    private Job resumeCampaign(RunJournal run, RunSpec spec) throws IOException {
+        int[] pending = new int[1];
+        run.forEachRecipient(r -> {
+            if (!run.isHandled(r.number())) {
+                pending[0]++;
+            }
+        });
+        if (pending[0] == 0) {
+            return null;
+        }
+        List<MediaStore.MediaItem> media = mediaStore.findAll(spec.mediaIds());
+        MessageTemplate template = MessageTemplate.parse(spec.message());
+        RecipientFeed feed = ingestService.newFeed();
+        Job job = jobService.submit(Job.Type.SEND, pending[0], Job.Priority.BULK, Job.ANONYMOUS_SUBMITTER,
+                j -> whatsappService.runStreamingSend(j, template, feed, media, run));
+        Thread.ofPlatform().name("whatsapp-run-resume-" + job.getId()).daemon(true).start(() -> {
+            try {
+                run.forEachRecipient(r -> {
+                    if (run.isHandled(r.number()) || feed.isAbandoned()) {
+                        return;
+                    }
+                    try {
+                        while (!feed.offer(r, 200, TimeUnit.MILLISECONDS)) {
+                            if (feed.isAbandoned()) {
+                                return;
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        feed.abandon();
+                    }
+                });
+            } catch (IOException e) {
+                logger.error("Could not read recipients of run {}: {}", run.getRunId(), e.getMessage());
+            } finally {
+                feed.complete();
+            }
+        });
+        return job;
+    }
+
+    private static List<String> numbers(RunJournal run) throws IOException {
+        List<String> numbers = new ArrayList<>();
+        run.forEachRecipient(r -> numbers.add(r.number()));
+        return numbers;
+    }
+}
@@ -0,0 +1,37 @@
+package third.party.communication.whatsapp.service;
+
+import java.util.List;
+
+/**
+ * What a run does, stored as the first line of its run file so it can be restarted.
+ *
+ * @param kind     what the run does
+ * @param message  the message or template (send kinds only)
+ * @param mediaIds attachments from the media store (send kinds only)
+ * @param target   for {@link Kind#DELETE_SENT}: the send job whose messages are deleted, or a single message id
+ */
+public record RunSpec(Kind kind, String message, List<String> mediaIds, String target, long createdAt) {
+
+    public enum Kind {
+        /** A numbers list sent the same message. */
+        SEND,
+        /** A streamed campaign; recipients with variables are appended to the run file as they arrive. */
+        CAMPAIGN,
+        /** Deleting the last message in each chat. */
+        DELETE,
+        /** Deleting recorded messages of a send job ({@code target} = job id) or one message ({@code target} = message id). */
+        DELETE_SENT
+    }
+
+    public static RunSpec send(Kind kind, String message, List<String> mediaIds) {
+        return new RunSpec(kind, message, mediaIds == null ? List.of() : List.copyOf(mediaIds), null, System.currentTimeMillis());
+    }
+
+    public static RunSpec delete() {
+        return new RunSpec(Kind.DELETE, null, List.of(), null, System.currentTimeMillis());
+    }
+
+    public static RunSpec deleteSent(String target) {
+        return new RunSpec(Kind.DELETE_SENT, null, List.of(), target, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,122 @@
+package third.party.communication.whatsapp.service;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Paces sends by what WhatsApp actually confirms instead of a fixed sleep.
+ * After a send we wait for the new outgoing bubble to show its pending clock or sent tick,
+ * and a per-profile token bucket keeps the anti-spam spacing between recipients.
+ */
+@Component
+public class SendPacer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SendPacer.class);
+
+    private static final By OUTGOING_BUBBLES = WhatsappLocators.OUTGOING_MESSAGE;
+    private static final By MESSAGE_ID_HOLDER = By.xpath("./ancestor-or-self::*[@data-id][1]");
+    private static final By PENDING_OR_SENT_ICON = By.xpath(".//span[@data-icon='msg-time' or @data-icon='msg-check' or @data-icon='msg-dblcheck']");
+    private static final By SENT_ICON = By.xpath(".//span[@data-icon='msg-check' or @data-icon='msg-dblcheck']");
+
+    // --- Configuration ---
+    @Value("${whatsapp.send.rate-per-minute:20}")
+    private double ratePerMinute;
+    @Value("${whatsapp.send.burst:3}")
+    private int burst;
+    // PENDING: the clock icon is enough (message queued by WhatsApp). SENT: wait for the server tick.
+    @Value("${whatsapp.send.confirm-level:SENT}")
+    private String confirmLevel;
+    @Value("${whatsapp.send.confirm-timeout-seconds:60}")
+    private long confirmTimeoutSeconds;
+
+    private final Map<Path, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Blocks until the profile may start its next send or delete.
+     */
+    public void acquire(Path profile) throws InterruptedException {
+        buckets.computeIfAbsent(profile, p -> new TokenBucket(burst, ratePerMinute)).acquire();
+    }
+
+    /**
+     * The data-id of the newest outgoing bubble in the open chat, or null if there is none.
+     * Taken before sending so the new bubble can be told apart from older ones.
+     */
+    public String lastOutgoingId(WebDriver driver) {
+        WebElement last = lastOutgoing(driver);
+        return last == null ? null : messageId(last);
+    }
+
+    /**
+     * Waits until an outgoing bubble newer than {@code previousId} shows the configured tick.
+     *
+     * @return the new bubble's data-id, or null if WhatsApp did not confirm within the timeout
+     */
+    public String awaitConfirmation(WebDriver driver, String previousId) {
+        By confirmedIcon = "PENDING".equalsIgnoreCase(confirmLevel) ? PENDING_OR_SENT_ICON : SENT_ICON;
+        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(confirmTimeoutSeconds), Duration.ofMillis(200));
+        wait.ignoring(StaleElementReferenceException.class);
+        try {
+            return wait.until(d -> {
+                WebElement last = lastOutgoing(d);
+                if (last == null) {
+                    return null;
+                }
+                String id = messageId(last);
+                if (id == null || id.equals(previousId) || last.findElements(confirmedIcon).isEmpty()) {
+                    return null;
+                }
+                return id;
+            });
+        } catch (TimeoutException e) {
+            logger.warn("WhatsApp did not confirm the send within {} seconds.", confirmTimeoutSeconds);
+            return null;
+        }
+    }
+
+    /**
+     * The data-ids of the outgoing bubbles newer than {@code previousId}, oldest first.
+     * A send with several attachments leaves more than one.
+     */
+    public List<String> outgoingIdsSince(WebDriver driver, String previousId) {
+        List<WebElement> bubbles = driver.findElements(OUTGOING_BUBBLES);
+        List<String> ids = new ArrayList<>();
+        for (int i = bubbles.size() - 1; i >= 0; i--) {
+            String id = messageId(bubbles.get(i));
+            if (id != null && id.equals(previousId)) {
+                break;
+            }
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private static WebElement lastOutgoing(WebDriver driver) {
+        List<WebElement> bubbles = driver.findElements(OUTGOING_BUBBLES);
+        return bubbles.isEmpty() ? null : bubbles.get(bubbles.size() - 1);
+    }
+
+    private static String messageId(WebElement bubble) {
+        List<WebElement> holder = bubble.findElements(MESSAGE_ID_HOLDER);
+        return holder.isEmpty() ? null : holder.get(0).getDomAttribute("data-id");
+    }
+}
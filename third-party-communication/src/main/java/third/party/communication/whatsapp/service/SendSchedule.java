@@ -0,0 +1,102 @@
+package third.party.communication.whatsapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Optional daily send windows per {@link Job.Priority}, e.g. campaigns only between 10:00 and 20:00.
+ * A class without a window may always send; URGENT always may. Outside its window a job keeps its
+ * place in the lane but is skipped until the window opens again.
+ */
+@Component
+public class SendSchedule {
+
+    private static final Logger logger = LoggerFactory.getLogger(SendSchedule.class);
+
+    /**
+     * From {@code start} (inclusive) to {@code end} (exclusive); wraps past midnight when end is before start.
+     */
+    record Window(LocalTime start, LocalTime end) {
+
+        /**
+         * Parses "HH:mm-HH:mm"; null for a blank value.
+         */
+        static Window parse(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            String[] bounds = value.trim().split("\\s*-\\s*");
+            try {
+                if (bounds.length == 2) {
+                    Window window = new Window(LocalTime.parse(bounds[0]), LocalTime.parse(bounds[1]));
+                    if (!window.start.equals(window.end)) {
+                        return window;
+                    }
+                }
+            } catch (DateTimeParseException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Send window must look like 10:00-20:00, got: " + value);
+        }
+
+        boolean contains(LocalTime time) {
+            return start.isBefore(end)
+                    ? !time.isBefore(start) && time.isBefore(end)
+                    : !time.isBefore(start) || time.isBefore(end);
+        }
+
+        Duration untilOpen(LocalTime time) {
+            if (contains(time)) {
+                return Duration.ZERO;
+            }
+            Duration wait = Duration.between(time, start);
+            return wait.isNegative() ? wait.plusDays(1) : wait;
+        }
+    }
+
+    private final Clock clock;
+    private final Map<Job.Priority, Window> windows = new EnumMap<>(Job.Priority.class);
+
+    @Autowired
+    public SendSchedule(@Value("${whatsapp.schedule.window.normal:}") String normalWindow,
+                        @Value("${whatsapp.schedule.window.bulk:}") String bulkWindow,
+                        @Value("${whatsapp.schedule.zone:}") String zone) {
+        this(zone.isBlank() ? Clock.systemDefaultZone() : Clock.system(ZoneId.of(zone)), normalWindow, bulkWindow);
+    }
+
+    SendSchedule(Clock clock, String normalWindow, String bulkWindow) {
+        this.clock = clock;
+        put(Job.Priority.NORMAL, Window.parse(normalWindow));
+        put(Job.Priority.BULK, Window.parse(bulkWindow));
+    }
+
+    private void put(Job.Priority priority, Window window) {
+        if (window != null) {
+            windows.put(priority, window);
+            logger.info("{} jobs send between {} and {} ({}).", priority, window.start(), window.end(), clock.getZone());
+        }
+    }
+
+    public boolean isOpen(Job.Priority priority) {
+        return untilOpen(priority).isZero();
+    }
+
+    /**
+     * How long until jobs of this class may send; zero if they may now.
+     */
+    public Duration untilOpen(Job.Priority priority) {
+        Window window = windows.get(priority);
+        return window == null ? Duration.ZERO : window.untilOpen(LocalTime.now(clock));
+    }
+}
@@ -0,0 +1,225 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WhatsApp message ids (the bubble's data-id) of everything we sent, indexed by job and by number,
+ * so a campaign or a single message can be deleted without scanning chats. Only messages young
+ * enough for "delete for everyone" are kept.
+ *
+ * <p>Backed by sent-messages.log, an append-only file of {@code S|job|number|messageId|sentAt|profile}
+ * and {@code D|messageId} (deleted) lines. It is replayed at startup and rewritten without deleted
+ * and expired messages when it has any.
+ */
+@Component
+public class SentMessageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SentMessageStore.class);
+
+    public static final Path SENT_MESSAGES_FILE = Paths.get(System.getProperty("user.dir")).resolve("sent-messages.log");
+
+    private static final char FIELD_SEPARATOR = '|';
+    private static final String SENT = "S";
+    private static final String DELETED = "D";
+
+    /**
+     * One sent message. {@code profile} is the browser profile (account) that sent it, which is
+     * the only one that can delete it.
+     */
+    public record SentMessage(String jobId, String number, String messageId, long sentAtMillis, String profile) {
+    }
+
+    private final Path file;
+    private final long retentionMillis;
+
+    // Guarded by 'this'. Insertion order is send order.
+    private final Map<String, SentMessage> byId = new LinkedHashMap<>();
+    private final Map<String, List<SentMessage>> byJob = new HashMap<>();
+    private final Map<String, List<SentMessage>> byNumber = new HashMap<>();
+
+    @Autowired
+    public SentMessageStore(@Value("${whatsapp.sent-messages.retention-hours:60}") long retentionHours) {
+        this(SENT_MESSAGES_FILE, Duration.ofHours(retentionHours));
+    }
+
+    SentMessageStore(Path file, Duration retention) {
+        this.file = file;
+        this.retentionMillis = retention.toMillis();
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                String[] parts = split(line);
+                if (parts.length == 6 && SENT.equals(parts[0])) {
+                    try {
+                        SentMessage message = new SentMessage(parts[1], parts[2], parts[3], Long.parseLong(parts[4]), parts[5]);
+                        if (message.sentAtMillis() > cutoff) {
+                            index(message);
+                        }
+                    } catch (NumberFormatException e) {
+                        // Skip the damaged line
+                    }
+                } else if (parts.length == 2 && DELETED.equals(parts[0])) {
+                    unindex(parts[1]);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            logger.warn("Could not read sent messages '{}': {}", file.toAbsolutePath(), e.getMessage());
+            return;
+        }
+        if (lines > byId.size()) {
+            compact();
+        }
+        logger.info("Sent-message store holds {} deletable messages.", byId.size());
+    }
+
+    /**
+     * Remembers a message right after WhatsApp confirmed it.
+     */
+    public synchronized void record(String jobId, String number, String messageId, Path profile) {
+        SentMessage message = new SentMessage(jobId, number, messageId, System.currentTimeMillis(), profile.toString());
+        index(message);
+        append(SENT + FIELD_SEPARATOR + jobId + FIELD_SEPARATOR + number + FIELD_SEPARATOR + messageId
+                + FIELD_SEPARATOR + message.sentAtMillis() + FIELD_SEPARATOR + message.profile());
+    }
+
+    public synchronized void markDeleted(String messageId) {
+        if (unindex(messageId) != null) {
+            append(DELETED + FIELD_SEPARATOR + messageId);
+        }
+    }
+
+    public synchronized SentMessage find(String messageId) {
+        SentMessage message = byId.get(messageId);
+        return message != null && !isExpired(message, System.currentTimeMillis()) ? message : null;
+    }
+
+    /**
+     * Messages a job sent that can still be deleted, in send order.
+     */
+    public synchronized List<SentMessage> forJob(String jobId) {
+        return live(byJob.get(jobId));
+    }
+
+    public synchronized List<SentMessage> forNumber(String number) {
+        return live(byNumber.get(number));
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private List<SentMessage> live(List<SentMessage> messages) {
+        if (messages == null) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        return messages.stream().filter(m -> !isExpired(m, now)).toList();
+    }
+
+    private boolean isExpired(SentMessage message, long now) {
+        return message.sentAtMillis() <= now - retentionMillis;
+    }
+
+    private void index(SentMessage message) {
+        unindex(message.messageId());
+        byId.put(message.messageId(), message);
+        byJob.computeIfAbsent(message.jobId(), k -> new ArrayList<>()).add(message);
+        byNumber.computeIfAbsent(message.number(), k -> new ArrayList<>()).add(message);
+    }
+
+    private SentMessage unindex(String messageId) {
+        SentMessage message = byId.remove(messageId);
+        if (message != null) {
+            removeFrom(byJob, message.jobId(), message);
+            removeFrom(byNumber, message.number(), message);
+        }
+        return message;
+    }
+
+    private static void removeFrom(Map<String, List<SentMessage>> index, String key, SentMessage message) {
+        List<SentMessage> messages = index.get(key);
+        if (messages != null && messages.remove(message) && messages.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private void append(String line) {
+        try {
+            Files.writeString(file, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.error("Failed to write to sent messages '{}': {}", file.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the file with only the messages still held.
+     */
+    private void compact() {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (SentMessage m : byId.values()) {
+                writer.write(SENT + FIELD_SEPARATOR + m.jobId() + FIELD_SEPARATOR + m.number() + FIELD_SEPARATOR
+                        + m.messageId() + FIELD_SEPARATOR + m.sentAtMillis() + FIELD_SEPARATOR + m.profile());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to compact sent messages '{}': {}", temp.toAbsolutePath(), e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to replace sent messages '{}': {}", file.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Splits on '|'; the last field of a sent line (the profile path) may itself contain one.
+     */
+    private static String[] split(String line) {
+        int fields = line.startsWith(SENT + FIELD_SEPARATOR) ? 6 : 2;
+        String[] parts = new String[fields];
+        int start = 0;
+        for (int i = 0; i < fields; i++) {
+            int end = i == fields - 1 ? line.length() : line.indexOf(FIELD_SEPARATOR, start);
+            if (end < 0) {
+                return new String[0];
+            }
+            parts[i] = line.substring(start, end);
+            start = end + 1;
+        }
+        return parts;
+    }
+}
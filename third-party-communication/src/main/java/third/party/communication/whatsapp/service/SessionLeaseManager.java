@@ -0,0 +1,369 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out each WhatsApp profile's browser to one lane at a time. The first job that needs a
+ * profile starts the lane's driver on a virtual thread; jobs that need the profile while it runs
+ * are merged into the lane instead of waiting for the lease or launching a second Chrome on the
+ * same user-data-dir. The lane returns the browser to the pool once no job is left.
+ * <p>
+ * Before every item the lane picks whose turn it is: the highest {@link Job.Priority} with work
+ * first, so an urgent message goes out between two recipients of a running campaign; within a
+ * class the submitter served longest ago, then that submitter's job served longest ago, so a
+ * small job is not stuck behind a large one. Jobs outside their {@link SendSchedule} window are
+ * skipped; when only those are left the lane gives the browser back and waits for the window.
+ */
+@Component
+public class SessionLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionLeaseManager.class);
+    private static final Duration SESSION_BORROW_TIMEOUT = Duration.ofMinutes(10);
+    // A paused lane still notices cancelled jobs this often
+    private static final Duration PAUSE_RECHECK = Duration.ofSeconds(5);
+
+    /**
+     * Where sessions come from; {@link WhatsappSessionPool} outside tests.
+     */
+    interface SessionSource {
+        WhatsappSession borrow(Path profileDir, Duration timeout) throws InterruptedException;
+
+        void release(WhatsappSession session, boolean broken);
+    }
+
+    /**
+     * Where one job's shard takes its work from.
+     */
+    interface WorkSource<T> {
+        /** The next item, or null if there is none right now (see {@link #hasWork()}). */
+        T poll(int shard) throws InterruptedException;
+
+        void pushBack(int shard, T item);
+
+        /** False once no more items will come. */
+        boolean hasWork();
+
+        /** Items waiting; for a feed, only those already buffered. */
+        int remaining();
+    }
+
+    /**
+     * Work done for one item on a logged-in session. Returns whether it succeeded. Must handle
+     * per-item failures itself; a {@link WebDriverException} escaping it means the browser was lost.
+     */
+    @FunctionalInterface
+    interface ItemTask<T> {
+        boolean process(WhatsappSession session, T item);
+    }
+
+    private final SessionSource sessions;
+    private final SendPacer sendPacer;
+    private final SendSchedule schedule;
+    private final int maxSessionRestarts;
+    private final Duration borrowTimeout;
+    private final Map<Path, Lane> lanes = new ConcurrentHashMap<>();
+    // Drivers mostly wait on the browser, so a virtual thread per lane is plenty
+    private final ExecutorService laneExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("whatsapp-lane-", 1).factory());
+
+    @Autowired
+    public SessionLeaseManager(WhatsappSessionPool sessionPool, SendPacer sendPacer, SendSchedule schedule,
+                               @Value("${whatsapp.send.max-session-restarts:2}") int maxSessionRestarts) {
+        this(new SessionSource() {
+            @Override
+            public WhatsappSession borrow(Path profileDir, Duration timeout) throws InterruptedException {
+                return sessionPool.borrow(profileDir, timeout);
+            }
+
+            @Override
+            public void release(WhatsappSession session, boolean broken) {
+                sessionPool.release(session, broken);
+            }
+        }, sendPacer, schedule, maxSessionRestarts, SESSION_BORROW_TIMEOUT);
+    }
+
+    SessionLeaseManager(SessionSource sessions, SendPacer sendPacer, SendSchedule schedule,
+                        int maxSessionRestarts, Duration borrowTimeout) {
+        this.sessions = sessions;
+        this.sendPacer = sendPacer;
+        this.schedule = schedule;
+        this.maxSessionRestarts = maxSessionRestarts;
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    /**
+     * Adds one shard of {@code job} to the profile's lane. The future completes with the number
+     * of items processed once the shard's source has no more work, the job is cancelled, or its
+     * items kept losing the profile's browser (the rest is then left to the job's other shards,
+     * if it has any). Other jobs in the lane are not affected by such a give-up.
+     */
+    public <T> CompletableFuture<Integer> lease(Path profile, Job job, int shard, WorkSource<T> source, ItemTask<T> task) {
+        Tenant<T> tenant = new Tenant<>(profile, job, shard, source, task);
+        lanes.computeIfAbsent(profile, Lane::new).join(tenant);
+        return tenant.done;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        laneExecutor.shutdownNow();
+    }
+
+    private final class Lane {
+        private final Path profile;
+        // Released by join() to wake a lane that is waiting for a send window
+        private final Semaphore wakeUp = new Semaphore(0);
+        // Guarded by 'this'
+        private final List<Tenant<?>> tenants = new ArrayList<>();
+        private final Map<String, Long> submitterServedAt = new HashMap<>();
+        private long turns;
+        private boolean driving;
+        private boolean paused;
+
+        Lane(Path profile) {
+            this.profile = profile;
+        }
+
+        void join(Tenant<?> tenant) {
+            boolean start;
+            synchronized (this) {
+                tenants.add(tenant);
+                start = !driving;
+                driving = true;
+            }
+            if (start) {
+                laneExecutor.execute(this::drive);
+            } else {
+                logger.info("Profile {} is busy; merging {} {} job {} into its running session.",
+                        profile.getFileName(), tenant.job.getPriority(), tenant.job.getType(), tenant.job.getId());
+                wakeUp.release();
+            }
+        }
+
+        private void drive() {
+            while (true) {
+                Duration pause;
+                synchronized (this) {
+                    pause = pruneAndCheckWindows();
+                    if (tenants.isEmpty()) {
+                        driving = false;
+                        return;
+                    }
+                }
+                if (!pause.isZero()) {
+                    try {
+                        // Without a browser: a job joining may be allowed to send right away
+                        wakeUp.tryAcquire(pause.toMillis(), TimeUnit.MILLISECONDS);
+                        wakeUp.drainPermits();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        completeAll();
+                    }
+                    continue;
+                }
+                WhatsappSession session;
+                try {
+                    session = sessions.borrow(profile, borrowTimeout);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    completeAll();
+                    continue;
+                } catch (Exception e) {
+                    logger.error("Could not get a session for {}: {}", profile.getFileName(), e.getMessage());
+                    completeAll();
+                    continue;
+                }
+
+                Tenant<?> breaker = null;
+                try {
+                    breaker = serve(session);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    completeAll();
+                } finally {
+                    sessions.release(session, breaker != null);
+                }
+
+                if (breaker == null) {
+                    resetBrowserLosses();
+                } else if (++breaker.browserLosses > maxSessionRestarts) {
+                    logger.error("Lane for {} gave up on {} job {} after its items lost the browser {} times in a row. "
+                                    + "Its {} unsent item(s) are left to the job's other shards, if any; other jobs carry on.",
+                            profile.getFileName(), breaker.job.getType(), breaker.job.getId(), breaker.browserLosses,
+                            breaker.source.remaining());
+                    abandon(breaker);
+                } else {
+                    logger.warn("Lane for {} restarting its browser for {} job {} (attempt {} of {}).", profile.getFileName(),
+                            breaker.job.getType(), breaker.job.getId(), breaker.browserLosses, maxSessionRestarts);
+                }
+            }
+        }
+
+        /**
+         * Serves the lane's jobs in turn until none is left that may send now.
+         *
+         * @return the job whose item lost the browser, or null if it was not lost
+         */
+        private Tenant<?> serve(WhatsappSession session) throws InterruptedException {
+            Tenant<?> tenant;
+            while ((tenant = nextTenant()) != null) {
+                if (!tenant.step(session)) {
+                    return tenant;
+                }
+            }
+            return null;
+        }
+
+        private synchronized Tenant<?> nextTenant() {
+            pruneAndCheckWindows();
+            Comparator<Tenant<?>> turnOrder = Comparator
+                    .comparing((Tenant<?> t) -> t.job.getPriority())
+                    .thenComparingLong(t -> submitterServedAt.getOrDefault(t.job.getSubmitter(), 0L))
+                    .thenComparingLong(t -> t.servedAt);
+            // min() keeps the first of equals, so ties go to the job that joined first
+            Tenant<?> tenant = tenants.stream()
+                    .filter(t -> schedule.isOpen(t.job.getPriority()))
+                    .min(turnOrder)
+                    .orElse(null);
+            if (tenant != null) {
+                tenant.servedAt = ++turns;
+                submitterServedAt.put(tenant.job.getSubmitter(), turns);
+            }
+            return tenant;
+        }
+
+        /**
+         * Completes finished jobs and works out whether the rest may send.
+         *
+         * @return zero if a job may send now (or none is left), otherwise how long to wait before checking again
+         */
+        private synchronized Duration pruneAndCheckWindows() {
+            Duration wait = PAUSE_RECHECK;
+            Iterator<Tenant<?>> it = tenants.iterator();
+            while (it.hasNext()) {
+                Tenant<?> tenant = it.next();
+                if (tenant.isFinished()) {
+                    it.remove();
+                    tenant.complete();
+                    forgetSubmitterIfIdle(tenant);
+                    continue;
+                }
+                Duration untilOpen = schedule.untilOpen(tenant.job.getPriority());
+                if (untilOpen.compareTo(wait) < 0) {
+                    wait = untilOpen;
+                }
+            }
+            if (tenants.isEmpty()) {
+                wait = Duration.ZERO;
+            }
+            boolean nowPaused = !wait.isZero();
+            if (nowPaused != paused) {
+                paused = nowPaused;
+                if (paused) {
+                    logger.info("Lane for {} paused: its {} job(s) are outside their send window.", profile.getFileName(), tenants.size());
+                } else {
+                    logger.info("Lane for {} resumed.", profile.getFileName());
+                }
+            }
+            return wait;
+        }
+
+        private void forgetSubmitterIfIdle(Tenant<?> finished) {
+            if (tenants.stream().noneMatch(t -> t.job.getSubmitter().equals(finished.job.getSubmitter()))) {
+                submitterServedAt.remove(finished.job.getSubmitter());
+            }
+        }
+
+        private synchronized void resetBrowserLosses() {
+            tenants.forEach(t -> t.browserLosses = 0);
+        }
+
+        private synchronized void abandon(Tenant<?> tenant) {
+            if (tenants.remove(tenant)) {
+                tenant.complete();
+                forgetSubmitterIfIdle(tenant);
+            }
+        }
+
+        private synchronized void completeAll() {
+            tenants.forEach(Tenant::complete);
+            tenants.clear();
+        }
+    }
+
+    private final class Tenant<T> {
+        private final Path profile;
+        private final Job job;
+        private final int shard;
+        private final WorkSource<T> source;
+        private final ItemTask<T> task;
+        private final CompletableFuture<Integer> done = new CompletableFuture<>();
+        private final long startTime = System.currentTimeMillis();
+        private int processed;
+        // Lane turn this tenant was last picked in; guarded by the lane
+        private long servedAt;
+        // Sessions in a row this tenant's items broke; only the lane's driver touches it
+        private int browserLosses;
+
+        Tenant(Path profile, Job job, int shard, WorkSource<T> source, ItemTask<T> task) {
+            this.profile = profile;
+            this.job = job;
+            this.shard = shard;
+            this.source = source;
+            this.task = task;
+        }
+
+        boolean isFinished() {
+            return job.isCancelRequested() || !source.hasWork();
+        }
+
+        /**
+         * Processes one item, if one is available.
+         *
+         * @return false if the browser was lost
+         */
+        boolean step(WhatsappSession session) throws InterruptedException {
+            T item = source.poll(shard);
+            if (item == null) {
+                return true;
+            }
+            // Anti-spam spacing per account; the confirmation wait inside the task does the rest
+            sendPacer.acquire(profile);
+            try {
+                job.recordResult(task.process(session, item));
+                processed++;
+                return true;
+            } catch (WebDriverException e) {
+                logger.error("{} shard {} lost its browser while processing {}: {}", job.getType(), shard, item, e.getMessage());
+                source.pushBack(shard, item);
+                return false;
+            }
+        }
+
+        void complete() {
+            logger.info("{} shard {} ({}) processed {} numbers in {} ms.", job.getType(), shard,
+                    profile.getFileName(), processed, System.currentTimeMillis() - startTime);
+            done.complete(processed);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package third.party.communication.whatsapp.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classic token bucket: up to {@code capacity} actions may happen back to back,
+ * after which they are spaced out at the refill rate.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(int capacity, double tokensPerMinute) {
+        if (capacity < 1 || tokensPerMinute <= 0) {
+            throw new IllegalArgumentException("Token bucket needs a capacity of at least 1 and a positive rate.");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes one token, sleeping until one is available.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a token if one is available and returns 0, otherwise returns how long to wait in nanoseconds.
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,117 @@
+package third.party.communication.whatsapp.service;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The classic transport: every lookup, click and poll is a WebDriver command through chromedriver.
+ */
+@Component
+@ConditionalOnProperty(name = "whatsapp.browser.automation", havingValue = "WEBDRIVER", matchIfMissing = true)
+public class WebDriverAutomation implements BrowserAutomation {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebDriverAutomation.class);
+
+    private static final Duration MEDIA_TIMEOUT = Duration.ofSeconds(20);
+
+    private final ChatStateProbe chatStateProbe;
+    private final MessageComposer messageComposer;
+    private final SendPacer sendPacer;
+
+    @Autowired
+    public WebDriverAutomation(ChatStateProbe chatStateProbe, MessageComposer messageComposer, SendPacer sendPacer) {
+        this.chatStateProbe = chatStateProbe;
+        this.messageComposer = messageComposer;
+        this.sendPacer = sendPacer;
+        logger.info("Browser automation: classic WebDriver.");
+    }
+
+    @Override
+    public void navigate(WhatsappSession session, String url) {
+        session.getDriver().get(url);
+    }
+
+    @Override
+    public ChatStateProbe.State awaitChat(WhatsappSession session, Duration timeout) {
+        ChatStateProbe.Result chat = chatStateProbe.await(session.getDriver(), timeout);
+        if (chat.state() == ChatStateProbe.State.INVALID) {
+            chat.element().click();
+        }
+        return chat.state();
+    }
+
+    @Override
+    public String lastOutgoingId(WhatsappSession session) {
+        return sendPacer.lastOutgoingId(session.getDriver());
+    }
+
+    @Override
+    public void attach(WhatsappSession session, String inputXpath, List<Path> files, String caption) {
+        WebDriver driver = session.getDriver();
+        WebDriverWait mediaWait = chatStateProbe.pollingWait(driver, MEDIA_TIMEOUT);
+        mediaWait.until(ExpectedConditions.elementToBeClickable(WhatsappLocators.ATTACH_BUTTON)).click();
+        // Newline-separated paths select several files at once
+        mediaWait.until(ExpectedConditions.presenceOfElementLocated(By.xpath(inputXpath)))
+                .sendKeys(files.stream().map(f -> f.toAbsolutePath().toString()).collect(Collectors.joining("\n")));
+        // Wait for the send button in the attachment preview
+        WebElement sendButton = mediaWait.until(ExpectedConditions.elementToBeClickable(WhatsappLocators.MEDIA_SEND_BUTTON));
+        if (caption != null) {
+            WebElement captionBox = mediaWait.until(ExpectedConditions.presenceOfElementLocated(WhatsappLocators.CHAT_EDITOR));
+            messageComposer.compose(driver, captionBox, caption);
+        }
+        try {
+            sendButton.click();
+        } catch (Exception clickEx) {
+            logger.warn("Standard click failed for media send button, trying JS click...", clickEx);
+            ((JavascriptExecutor) driver).executeScript("arguments[0].click();", sendButton);
+        }
+        try {
+            // The next upload needs the chat back, not the closing preview
+            mediaWait.until(ExpectedConditions.invisibilityOfElementLocated(WhatsappLocators.MEDIA_SEND_BUTTON));
+        } catch (TimeoutException e) {
+            logger.warn("Attachment preview still open after sending {} file(s).", files.size());
+        }
+    }
+
+    @Override
+    public void closeAttachmentPreview(WhatsappSession session) {
+        try { session.getDriver().findElement(WhatsappLocators.MEDIA_CLOSE_BUTTON).click(); } catch (Exception closeEx) { /* Ignore */ }
+    }
+
+    @Override
+    public MessageComposer.Mode typeAndSend(WhatsappSession session, String message) {
+        WebDriver driver = session.getDriver();
+        // Looked up fresh: an element from the readiness probe is stale once an attachment preview was opened
+        WebElement editor = chatStateProbe.pollingWait(driver, Duration.ofSeconds(10))
+                .until(ExpectedConditions.presenceOfElementLocated(WhatsappLocators.CHAT_EDITOR));
+        MessageComposer.Mode mode = messageComposer.compose(driver, editor, message);
+        editor.sendKeys(Keys.ENTER);
+        return mode;
+    }
+
+    @Override
+    public String awaitConfirmation(WhatsappSession session, String previousId) {
+        return sendPacer.awaitConfirmation(session.getDriver(), previousId);
+    }
+
+    @Override
+    public List<String> outgoingIdsSince(WhatsappSession session, String previousId) {
+        return sendPacer.outgoingIdsSince(session.getDriver(), previousId);
+    }
+}
@@ -0,0 +1,56 @@
+package third.party.communication.whatsapp.service;
+
+import org.openqa.selenium.By;
+
+/**
+ * WhatsApp Web locators, built once and shared instead of a new {@code By} per lookup.
+ * When WhatsApp changes its markup, this is the one place to update.
+ */
+final class WhatsappLocators {
+
+    // CSS forms, also used by the chat-state probe script
+    static final String CHAT_EDITOR_CSS = "footer div[data-lexical-editor='true'][role='textbox']";
+    static final String ANY_EDITOR_CSS = "div[data-lexical-editor='true'][role='textbox']";
+    static final String INVALID_NUMBER_OK_CSS = "div[data-testid='popup-controls-ok']";
+    static final String LOGIN_QR_CSS = "div[data-ref] canvas, canvas[aria-label*='Scan']";
+    static final String ATTACH_BUTTON_CSS = "span[data-icon='clip']";
+    static final String MEDIA_FILE_INPUT_XPATH = "//input[@accept='image/*,video/mp4,video/3gpp,video/quicktime']";
+    static final String DOCUMENT_FILE_INPUT_XPATH = "//input[@accept='*']";
+    static final String MEDIA_SEND_BUTTON_XPATH = "//button[@aria-label='Send']";
+    static final String MEDIA_CLOSE_BUTTON_XPATH = "//button[@aria-label='Close']";
+    static final String OUTGOING_MESSAGE_XPATH = "//div[contains(@class, 'message-out')]";
+
+    static final By PANE_SIDE = By.id("pane-side");
+    static final By CHAT_EDITOR = By.cssSelector(ANY_EDITOR_CSS);
+    static final By INVALID_NUMBER_OK = By.cssSelector(INVALID_NUMBER_OK_CSS);
+
+    // Attachments
+    static final By ATTACH_BUTTON = By.cssSelector(ATTACH_BUTTON_CSS);
+    static final By MEDIA_SEND_BUTTON = By.xpath(MEDIA_SEND_BUTTON_XPATH);
+    static final By MEDIA_CLOSE_BUTTON = By.xpath(MEDIA_CLOSE_BUTTON_XPATH);
+
+    // Messages and the delete flow
+    static final By OUTGOING_MESSAGE = By.xpath(OUTGOING_MESSAGE_XPATH);
+    static final By MESSAGE_MENU_ARROW = By.xpath(".//div[@role='button'][.//span[@data-icon='menu-down']]");
+    static final By MENU_DELETE = By.xpath("//div[@data-testid='message-menu-delete']");
+    static final By DELETE_FOR_EVERYONE = By.xpath("//button[@data-testid='popup-controls-delete-for-everyone']");
+    static final By POPUP_OK_BUTTON = By.xpath("//button[@data-testid='popup-controls-ok']");
+    static final By POPUP_CANCEL_BUTTON = By.xpath("//button[@data-testid='popup-controls-cancel']");
+
+    /**
+     * The bubble with the given data-id, as recorded by the sent-message store.
+     */
+    static By messageWithId(String messageId) {
+        return By.xpath("//div[@data-id=" + xpathLiteral(messageId) + "]");
+    }
+
+    private static String xpathLiteral(String value) {
+        if (value.indexOf('\'') < 0) {
+            return "'" + value + "'";
+        }
+        return "concat('" + value.replace("'", "', \"'\", '") + "')";
+    }
+
+    private WhatsappLocators() {
+    }
+}
@@ -1,33 +1,28 @@
 package third.party.communication.whatsapp.service; // Ensure this matches your package structure
 
-import io.github.bonigarcia.wdm.WebDriverManager;
-import org.openqa.selenium.By;
-import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.Keys;
+import org.openqa.selenium.NoSuchSessionException;
 import org.openqa.selenium.TimeoutException; // Correct import
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 
@@ -36,396 +31,625 @@ public class WhatsappService {
 
     // --- Configuration ---
     private static final int NEW_MSG_TIME_SEC = 5;
-    private static final int SEND_MSG_TIME_SEC = 5; // Wait after send
     private static final int ACTION_TIME_MS = 2000;
-    private static final String COUNTRY_CODE = "91";
     private static final String IMAGE_PATH_STR = "image.png";
+    static final String SKIPPED_STATUS = "Skipped (Cached)";
+    private static final Duration CHAT_READY_TIMEOUT = Duration.ofSeconds(15);
+    private static final int MAX_FILES_PER_UPLOAD = 30; // WhatsApp Web's limit per attachment preview
 
     // --- Paths ---
     private static final Path BASE_DIR = Paths.get(System.getProperty("user.dir"));
     private static final Path MSG_FILE = BASE_DIR.resolve("message.txt");
     private static final Path NUMS_FILE = BASE_DIR.resolve("numbers.txt");
     private static final Path IMAGE_FILE = BASE_DIR.resolve(IMAGE_PATH_STR);
-    private static final Path SESSION_DIR = BASE_DIR.resolve("whatsapp_session");
-    private static final Path HISTORY_LOG_FILE = BASE_DIR.resolve("history.log");
 
     private static final Logger logger = LoggerFactory.getLogger(WhatsappService.class);
 
+    private final WhatsappSessionPool sessionPool;
+    private final ParallelSendEngine sendEngine;
+    private final SendPacer sendPacer;
+    private final HistoryWriter historyWriter;
+    private final InvalidNumberCache invalidNumberCache;
+    private final BrowserAutomation automation;
+    private final ChatStateProbe chatStateProbe;
+    private final MediaStore mediaStore;
+    private final SentMessageStore sentMessageStore;
+    private final PipelineMetrics metrics;
+
     /**
-     * Appends a new entry to the history.log file. Made synchronized.
+     * Files attached in one go through one of WhatsApp's file inputs, given by its XPath.
      */
-    private synchronized void logStatus(String number, String status, String message) {
-        try {
-            String msgSummary = message.replace('\n', ' ').trim();
-            if (msgSummary.isEmpty()) {
-                msgSummary = "N/A";
-            } else if (msgSummary.length() > 40) {
-                msgSummary = msgSummary.substring(0, 37) + "...";
-            }
+    private record AttachmentGroup(String inputXpath, List<Path> files, String names) {
 
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            String logEntry = String.format("%s | %s | %s | %s%n", timestamp, number, status, msgSummary);
-
-            Files.createDirectories(HISTORY_LOG_FILE.getParent());
+        static List<AttachmentGroup> of(List<MediaStore.MediaItem> media) {
+            List<AttachmentGroup> groups = new ArrayList<>();
+            addChunks(groups, WhatsappLocators.MEDIA_FILE_INPUT_XPATH, media.stream().filter(m -> m.kind() != MediaStore.Kind.DOCUMENT).toList());
+            addChunks(groups, WhatsappLocators.DOCUMENT_FILE_INPUT_XPATH, media.stream().filter(m -> m.kind() == MediaStore.Kind.DOCUMENT).toList());
+            return groups;
+        }
 
-            Files.writeString(HISTORY_LOG_FILE, logEntry, StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-            logger.debug("Logged status: {}", logEntry.trim());
-        } catch (IOException e) {
-            logger.error("Failed to write to log file '{}': {}", HISTORY_LOG_FILE.toAbsolutePath(), e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("Unexpected error writing to log: {}", e.getMessage(), e);
+        private static void addChunks(List<AttachmentGroup> groups, String inputXpath, List<MediaStore.MediaItem> media) {
+            for (int from = 0; from < media.size(); from += MAX_FILES_PER_UPLOAD) {
+                List<MediaStore.MediaItem> chunk = media.subList(from, Math.min(media.size(), from + MAX_FILES_PER_UPLOAD));
+                groups.add(new AttachmentGroup(inputXpath,
+                        chunk.stream().map(MediaStore.MediaItem::file).toList(),
+                        chunk.stream().map(MediaStore.MediaItem::fileName).collect(Collectors.joining(", "))));
+            }
         }
     }
 
+    @Autowired
+    public WhatsappService(WhatsappSessionPool sessionPool, ParallelSendEngine sendEngine, SendPacer sendPacer,
+                           HistoryWriter historyWriter, InvalidNumberCache invalidNumberCache,
+                           BrowserAutomation automation, ChatStateProbe chatStateProbe, MediaStore mediaStore,
+                           SentMessageStore sentMessageStore, PipelineMetrics metrics) {
+        this.sessionPool = sessionPool;
+        this.sendEngine = sendEngine;
+        this.sendPacer = sendPacer;
+        this.historyWriter = historyWriter;
+        this.invalidNumberCache = invalidNumberCache;
+        this.automation = automation;
+        this.chatStateProbe = chatStateProbe;
+        this.mediaStore = mediaStore;
+        this.sentMessageStore = sentMessageStore;
+        this.metrics = metrics;
+    }
+
     /**
-     * Main Selenium logic for sending messages. Runs asynchronously.
+     * Queues a new entry for history.log. The background writer does the file I/O.
      */
-    @Async
-    public void runSeleniumLogic(String msg, List<String> numbers) {
+    private void logStatus(String number, String status, String message) {
+        HistoryRecord record = HistoryRecord.of(number, status, message);
+        historyWriter.append(record);
+        metrics.outcome(status);
+        logger.debug("Logged status: {} | {} | {}", number, status, record.summary());
+    }
+
+    /**
+     * Main Selenium logic for sending messages. Runs on a job worker; stops between numbers when the job is cancelled.
+     * {@code media} was prepared by {@link MediaStore}; when empty, image.png is attached if it exists.
+     * Numbers the {@code journal} already handled are left out, and every outcome is journaled.
+     */
+    public void runSeleniumLogic(Job job, String msg, List<String> numbers, List<MediaStore.MediaItem> media, RunJournal journal) {
         logger.info("--- Starting WhatsApp send script ---");
         if (numbers == null || numbers.isEmpty()) {
             logger.warn("No valid numbers provided for sending.");
+            journal.finish(true);
             return;
         }
         logger.info("Received {} numbers to process.", numbers.size());
 
-        WebDriver driver = null;
         long startTime = System.currentTimeMillis();
+        boolean complete = false;
         try {
-            logger.info("Setting up ChromeDriver for SEND operation...");
-            WebDriverManager.chromedriver().setup();
-            ChromeOptions options = new ChromeOptions();
-            String sessionPath = SESSION_DIR.toAbsolutePath().toString();
-            options.addArguments("user-data-dir=" + sessionPath);
-            // options.addArguments("--headless");
-            // options.addArguments("--no-sandbox");
-            // options.addArguments("--disable-dev-shm-usage");
-            // options.addArguments("--window-size=1920,1080");
-
-            logger.info("Initializing ChromeDriver with session path: {}", sessionPath);
-            driver = new ChromeDriver(options);
-            driver.manage().window().maximize();
-
-            logger.info("Navigating to WhatsApp Web...");
-            driver.get("https://web.whatsapp.com");
-
-            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(60));
-            logger.info("Waiting for WhatsApp Web to load (max 60 seconds)... Scan QR code if needed.");
-
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.xpath("//div[@id='pane-side']")));
-            logger.info("WhatsApp Web loaded successfully. Logged in!");
-
-            boolean imageToSend = Files.exists(IMAGE_FILE);
-            logger.info("Image file {} {}found.", IMAGE_FILE.getFileName(), imageToSend ? "" : "NOT ");
-
-            for (String num : numbers) {
-                String numDigits = num.replaceAll("\\D", "");
-                if (numDigits.isEmpty()) {
-                    logger.warn("Skipping invalid number format: {}", num);
-                    continue;
-                }
-                String link = String.format("https://web.whatsapp.com/send/?phone=%s%s&text=", COUNTRY_CODE, numDigits);
-                logger.info("Navigating to chat link for number: {}", numDigits);
-                driver.get(link);
-
-                WebElement chatBoxElement = null;
-                boolean isValidNumber = true;
-                try {
-                    logger.debug("Waiting for chat input or invalid number popup...");
-                    WebDriverWait chatWait = new WebDriverWait(driver, Duration.ofSeconds(15));
-                    boolean conditionMet = chatWait.until(ExpectedConditions.or(
-                            ExpectedConditions.presenceOfElementLocated(By.xpath("//div[@data-lexical-editor='true'][@role='textbox']")),
-                            ExpectedConditions.presenceOfElementLocated(By.xpath("//div[@data-testid='popup-controls-ok']"))
-                    ));
-                    if (conditionMet) {
-                        try {
-                            WebElement invalidNumPopup = driver.findElement(By.xpath("//div[@data-testid='popup-controls-ok']"));
-                            logger.warn("❌ {} is not a valid WhatsApp number (popup detected). Skipping.", num);
-                            logStatus(numDigits, "Invalid Number", "N/A");
-                            invalidNumPopup.click();
-                            isValidNumber = false;
-                            Thread.sleep(1000);
-                        } catch (org.openqa.selenium.NoSuchElementException e) {
-                            try {
-                                chatBoxElement = driver.findElement(By.xpath("//div[@data-lexical-editor='true'][@role='textbox']"));
-                                logger.info("Chat box found for {} ({}). Proceeding...", num, numDigits);
-                            } catch (org.openqa.selenium.NoSuchElementException e2) {
-                                logger.error("Neither chat box nor OK button found for {} ({}) after wait succeeded. Skipping.", num, numDigits);
-                                logStatus(numDigits, "Chat Not Ready", "Error - Element Confusion");
-                                isValidNumber = false;
-                            }
-                        }
-                    } else {
-                        logger.error("ExpectedConditions.or() returned false unexpectedly for {} ({}). Skipping.", num, numDigits);
-                        logStatus(numDigits, "Chat Not Ready", "Error - Wait Condition Failed");
-                        isValidNumber = false;
-                    }
-                } catch (org.openqa.selenium.TimeoutException e) {
-                    logger.warn("Chat not ready for {} ({}) within 15 seconds. Skipping.", num, numDigits);
-                    logStatus(numDigits, "Chat Not Ready", "Timeout");
-                    isValidNumber = false;
-                } catch (Exception e) {
-                    logger.error("Unexpected error checking chat readiness for {} ({}): {}", num, numDigits, e.getMessage(), e);
-                    logStatus(numDigits, "Chat Not Ready", "Error");
-                    isValidNumber = false;
-                }
+            // Prepared once per campaign, not per number
+            List<AttachmentGroup> attachments = AttachmentGroup.of(media.isEmpty() ? legacyImage() : media);
+            if (!attachments.isEmpty()) {
+                logger.info("Attaching {} in {} upload(s) per number.",
+                        attachments.stream().map(AttachmentGroup::names).collect(Collectors.joining(", ")), attachments.size());
+            }
 
-                if (!isValidNumber) {
-                    continue;
-                }
+            List<String> toSend = skipKnownInvalid(job, journal.pending(numbers), journal);
+            if (!toSend.isEmpty()) {
+                sendEngine.run(job, toSend, (session, num) ->
+                        journal.track(num, () -> sendToNumber(session, job.getId(), msg, num, attachments)));
+            }
+            complete = job.isCancelRequested() || journal.pending(numbers).isEmpty();
 
-                boolean imageAttached = false;
-                WebElement imageSendButton = null; // Store image send button if found
-                if (imageToSend) {
-                    logger.debug("Attempting to attach image...");
-                    try {
-                        WebElement attachBtn = new WebDriverWait(driver, Duration.ofSeconds(10)).until(
-                                ExpectedConditions.elementToBeClickable(By.cssSelector("span[data-icon='clip']"))
-                        );
-                        attachBtn.click();
-                        WebElement fileInput = new WebDriverWait(driver, Duration.ofSeconds(10)).until(
-                                ExpectedConditions.presenceOfElementLocated(By.xpath("//input[@accept='image/*,video/mp4,video/3gpp,video/quicktime']"))
-                        );
-                        String imageAbsolutePath = IMAGE_FILE.toAbsolutePath().toString();
-                        fileInput.sendKeys(imageAbsolutePath);
-                        // Wait for the send button in the image preview
-                        imageSendButton = new WebDriverWait(driver, Duration.ofSeconds(20)).until(
-                                ExpectedConditions.elementToBeClickable(By.xpath("//button[@aria-label='Send']"))
-                        );
-                        imageAttached = true;
-                        logger.info("Image attached successfully for {}.", numDigits);
-                        // Find the caption input box
-                        chatBoxElement = new WebDriverWait(driver, Duration.ofSeconds(10)).until(
-                                ExpectedConditions.presenceOfElementLocated(By.xpath("//div[@data-lexical-editor='true'][@role='textbox']"))
-                        );
-                        logger.debug("Found caption input box after attaching image.");
-
-                    } catch (Exception e) {
-                        logger.error("Image upload failed for {}: {}", numDigits, e.getMessage(), e);
-                        logStatus(numDigits, "Image Upload Fail", "N/A");
-                        try { driver.findElement(By.xpath("//button[@aria-label='Close']")).click(); } catch (Exception closeEx) { /* Ignore */ }
-                        imageAttached = false;
-                    }
-                }
+            logger.info("--- Message sending loop finished. ---");
 
-                logger.debug("Attempting to send message/caption...");
-                try {
-                    // Ensure chatBoxElement is assigned (re-find if necessary)
-                    if (chatBoxElement == null) {
-                        logger.debug("Re-finding chat box element before typing...");
-                        chatBoxElement = new WebDriverWait(driver, Duration.ofSeconds(10)).until(
-                                ExpectedConditions.presenceOfElementLocated(By.xpath("//div[@data-lexical-editor='true'][@role='textbox']"))
-                        );
-                    }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("--- Send script interrupted ---");
+        } catch (Exception e) {
+            logger.error("--- AN UNEXPECTED ERROR OCCURRED in Selenium Send Logic ---", e);
+        } finally {
+            journal.finish(complete);
+            long endTime = System.currentTimeMillis();
+            logger.info("--- Send script execution finished in {} ms ---", (endTime - startTime));
+        }
+    }
 
-                    Actions actions = new Actions(driver);
-                    String[] lines = msg.split("\\r?\\n");
-                    for (int i = 0; i < lines.length; i++) {
-                        actions.moveToElement(chatBoxElement).sendKeys(lines[i]);
-                        if (i < lines.length - 1) {
-                            actions.keyDown(Keys.SHIFT).sendKeys(Keys.ENTER).keyUp(Keys.SHIFT);
-                        }
-                    }
+    /**
+     * Sends a streamed campaign: recipients are taken from {@code feed} while the upload is still
+     * being read, and {@code template} is rendered with each recipient's variables.
+     */
+    public void runStreamingSend(Job job, MessageTemplate template, RecipientFeed feed, List<MediaStore.MediaItem> media,
+                                 RunJournal journal) {
+        logger.info("--- Starting WhatsApp send script for a streamed campaign ---");
+        long startTime = System.currentTimeMillis();
+        boolean complete = false;
+        try {
+            List<AttachmentGroup> attachments = AttachmentGroup.of(media.isEmpty() ? legacyImage() : media);
+            sendEngine.run(job, feed, (session, recipient) -> journal.track(recipient.number(), () ->
+                    sendToNumber(session, job.getId(), template.render(recipient.variables()), recipient.number(), attachments)));
+            complete = job.isCancelRequested() || feed.isDrained();
+            logger.info("--- Message sending loop finished. ---");
 
-                    // --- FIX: Revert to using Keys.ENTER for text, click for image ---
-                    if (imageAttached && imageSendButton != null) {
-                        actions.perform(); // Type caption first
-                        logger.debug("Clicking image send button...");
-                        // Use Javascript click as a robust fallback for image send button
-                        try {
-                            imageSendButton.click();
-                        } catch (Exception clickEx) {
-                            logger.warn("Standard click failed for image send button, trying JS click...", clickEx);
-                            JavascriptExecutor js = (JavascriptExecutor) driver;
-                            js.executeScript("arguments[0].click();", imageSendButton);
-                        }
-                    } else if (!imageAttached) {
-                        logger.debug("Sending text message with Keys.ENTER...");
-                        actions.sendKeys(Keys.ENTER).perform(); // Send text message
-                    } else {
-                        // Image attach failed or button not found, log error
-                        throw new Exception("Cannot send image, send button not found after attach attempt.");
-                    }
-                    // --- END FIX ---
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("--- Send script interrupted ---");
+        } catch (Exception e) {
+            logger.error("--- AN UNEXPECTED ERROR OCCURRED in Selenium Send Logic ---", e);
+        } finally {
+            // Lets a still-running upload stop instead of waiting for room that will never come
+            feed.abandon();
+            journal.finish(complete);
+            logger.info("--- Send script execution finished in {} ms ---", System.currentTimeMillis() - startTime);
+        }
+    }
 
+    /**
+     * image.png from the working directory, run through the media store like an upload.
+     */
+    private List<MediaStore.MediaItem> legacyImage() {
+        boolean imageToSend = Files.exists(IMAGE_FILE);
+        logger.info("Image file {} {}found.", IMAGE_FILE.getFileName(), imageToSend ? "" : "NOT ");
+        if (!imageToSend) {
+            return List.of();
+        }
+        try {
+            return List.of(mediaStore.store(IMAGE_FILE));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Could not prepare {} ({}); attaching it unchanged.", IMAGE_FILE.getFileName(), e.getMessage());
+            return List.of(new MediaStore.MediaItem(IMAGE_PATH_STR, MediaStore.Kind.IMAGE, IMAGE_FILE, 0));
+        }
+    }
 
-                    logger.info("✅ Message sent to {}", numDigits);
-                    logStatus(numDigits, "Success", msg);
-                    Thread.sleep(SEND_MSG_TIME_SEC * 1000);
+    /**
+     * Drops numbers the invalid-number cache already knows are bad, logging each one as skipped.
+     */
+    private List<String> skipKnownInvalid(Job job, List<String> numbers, RunJournal journal) {
+        List<String> toSend = new ArrayList<>(numbers.size());
+        for (String num : numbers) {
+            InvalidNumberCache.Entry known = invalidNumberCache.check(num);
+            if (known == null) {
+                toSend.add(num);
+                continue;
+            }
+            logStatus(num, SKIPPED_STATUS, known.status());
+            journal.settle(num, false);
+            job.recordResult(false);
+        }
+        if (toSend.size() < numbers.size()) {
+            logger.info("Skipped {} numbers known to be invalid or unreachable.", numbers.size() - toSend.size());
+        }
+        return toSend;
+    }
 
-                } catch (Exception e) {
-                    logger.error("❌ Failed to send message to {}: {}", numDigits, e.getMessage(), e);
-                    logStatus(numDigits, "Send Fail", "Send Action Error");
+    /**
+     * Sends the message (and attachments, if any) to one number using an already logged-in driver.
+     * The message goes as the caption of the first upload, or on its own if there is none or every upload failed.
+     * Per-number failures are logged to history; only a lost browser session is rethrown.
+     */
+    private boolean sendToNumber(WhatsappSession session, String jobId, String msg, String num, List<AttachmentGroup> attachments) {
+        // Already E.164 digits (see NumberNormalizer), and logged as such; readers of the history map
+        // older national-format lines onto this form with NumberNormalizer.canonical
+        String numDigits = num;
+        String link = String.format("%s/send/?phone=%s&text=", sessionPool.getBaseUrl(), numDigits);
+        logger.info("Navigating to chat link for number: {}", numDigits);
+        long phaseStart = System.nanoTime();
+        automation.navigate(session, link);
+        metrics.record(PipelineMetrics.Phase.CHAT_NAVIGATION, phaseStart);
+
+        try {
+            logger.debug("Waiting for chat input or invalid number popup...");
+            phaseStart = System.nanoTime();
+            ChatStateProbe.State state = automation.awaitChat(session, CHAT_READY_TIMEOUT);
+            metrics.record(PipelineMetrics.Phase.CHAT_READINESS, phaseStart);
+            switch (state) {
+                case READY -> logger.info("Chat box found for {}. Proceeding...", numDigits);
+                case INVALID -> {
+                    logger.warn("❌ {} is not a valid WhatsApp number (popup detected). Skipping.", num);
+                    logStatus(numDigits, "Invalid Number", "N/A");
+                    return false;
+                }
+                case LOGGED_OUT -> throw new NoSuchSessionException("WhatsApp Web is showing the login QR code.");
+                default -> {
+                    logger.warn("Chat not ready for {} within {} seconds. Skipping.", numDigits, CHAT_READY_TIMEOUT.toSeconds());
+                    logStatus(numDigits, "Chat Not Ready", "Timeout");
+                    return false;
                 }
-            } // end for loop
+            }
+        } catch (Exception e) {
+            rethrowIfSessionLost(e);
+            logger.error("Unexpected error checking chat readiness for {}: {}", numDigits, e.getMessage(), e);
+            logStatus(numDigits, "Chat Not Ready", "Error");
+            return false;
+        }
 
-            logger.info("--- Message sending loop finished. ---");
+        logger.debug("Attempting to send message/caption...");
+        try {
+            // Remember the newest bubble so the confirmation wait can recognise the new one
+            String previousMessageId = automation.lastOutgoingId(session);
+
+            boolean captionSent = false;
+            for (AttachmentGroup group : attachments) {
+                captionSent |= sendAttachments(session, numDigits, group, captionSent ? null : msg);
+            }
+
+            if (!captionSent) {
+                phaseStart = System.nanoTime();
+                MessageComposer.Mode composedWith = automation.typeAndSend(session, msg);
+                logger.debug("Text message sent to {}, composed using {}.", numDigits, composedWith);
+                metrics.record(PipelineMetrics.Phase.TYPING, phaseStart);
+            }
+
+            // Pace by WhatsApp's own pending/sent tick instead of a fixed sleep
+            phaseStart = System.nanoTime();
+            String messageId = automation.awaitConfirmation(session, previousMessageId);
+            metrics.record(PipelineMetrics.Phase.SEND_CONFIRMATION, phaseStart);
+            if (messageId == null) {
+                logger.warn("Message to {} was submitted but not confirmed by WhatsApp.", numDigits);
+                logStatus(numDigits, "Send Unconfirmed", msg);
+                return false;
+            }
+
+            recordSent(session, jobId, numDigits, previousMessageId, messageId);
+            logger.info("✅ Message sent to {}", numDigits);
+            logStatus(numDigits, "Success", msg);
+            return true;
 
         } catch (Exception e) {
-            logger.error("--- AN UNEXPECTED ERROR OCCURRED in Selenium Send Logic ---", e);
-        } finally {
-            if (driver != null) {
-                try {
-                    driver.quit();
-                    logger.info("ChromeDriver quit successfully after SEND operation.");
-                } catch (Exception e) {
-                    logger.error("Error quitting ChromeDriver after SEND: {}", e.getMessage());
-                }
+            rethrowIfSessionLost(e);
+            logger.error("❌ Failed to send message to {}: {}", numDigits, e.getMessage(), e);
+            logStatus(numDigits, "Send Fail", "Send Action Error");
+            return false;
+        }
+    }
+
+    /**
+     * Stores the ids of every bubble this send produced (one per upload, plus the text) so they can be deleted later.
+     */
+    private void recordSent(WhatsappSession session, String jobId, String numDigits,
+                            String previousMessageId, String confirmedId) {
+        List<String> ids;
+        try {
+            ids = automation.outgoingIdsSince(session, previousMessageId);
+        } catch (WebDriverException e) {
+            logger.debug("Could not collect message ids for {}: {}", numDigits, e.getMessage());
+            ids = List.of();
+        }
+        if (!ids.contains(confirmedId)) {
+            ids = new ArrayList<>(ids);
+            ids.add(confirmedId);
+        }
+        for (String id : ids) {
+            sentMessageStore.record(jobId, numDigits, id, session.getProfileDir());
+        }
+    }
+
+    /**
+     * Attaches one group of files and sends it, with {@code caption} if not null.
+     *
+     * @return whether the caption went out with it; false if the upload failed
+     */
+    private boolean sendAttachments(WhatsappSession session, String numDigits, AttachmentGroup group, String caption) {
+        long phaseStart = System.nanoTime();
+        try {
+            automation.attach(session, group.inputXpath(), group.files(), caption);
+            logger.info("Attached and sent {} for {}.", group.names(), numDigits);
+        } catch (Exception e) {
+            rethrowIfSessionLost(e);
+            logger.error("Media upload failed for {}: {}", numDigits, e.getMessage(), e);
+            logStatus(numDigits, "Media Upload Fail", group.names());
+            automation.closeAttachmentPreview(session);
+            return false;
+        }
+        metrics.record(PipelineMetrics.Phase.ATTACH, phaseStart);
+        return caption != null;
+    }
+
+    /**
+     * A dead or unreachable browser must reach the send engine so it can restart the shard
+     * instead of logging every remaining number as a failure.
+     */
+    private static void rethrowIfSessionLost(Exception e) {
+        if (e instanceof NoSuchSessionException) {
+            throw (NoSuchSessionException) e;
+        }
+        if (e instanceof WebDriverException) {
+            String message = String.valueOf(e.getMessage());
+            if (message.contains("not reachable") || message.contains("disconnected") || message.contains("session deleted")) {
+                throw (WebDriverException) e;
             }
-            long endTime = System.currentTimeMillis();
-            logger.info("--- Send script execution finished in {} ms ---", (endTime - startTime));
         }
     }
 
-    // --- Selenium Logic (DELETE MESSAGE - unchanged) ---
-    @Async
-    public void runSeleniumDeleteLogic(List<String> numbers) {
+    // --- Selenium Logic (DELETE MESSAGE) ---
+    public void runSeleniumDeleteLogic(Job job, List<String> numbers, RunJournal journal) {
         logger.info("--- Starting WhatsApp DELETE script ---");
         if (numbers == null || numbers.isEmpty()) {
             logger.warn("No valid numbers provided for deletion.");
+            journal.finish(true);
             return;
         }
         logger.info("Attempting to delete last message for {} numbers.", numbers.size());
 
-        WebDriver driver = null;
         long startTime = System.currentTimeMillis();
+        boolean complete = false;
         try {
-            logger.info("Setting up ChromeDriver for DELETE operation...");
-            WebDriverManager.chromedriver().setup();
-            ChromeOptions options = new ChromeOptions();
-            String sessionPath = SESSION_DIR.toAbsolutePath().toString();
-            options.addArguments("user-data-dir=" + sessionPath);
-            // options.addArguments("--headless");
-
-            logger.info("Initializing ChromeDriver with session path: {}", sessionPath);
-            driver = new ChromeDriver(options);
-            driver.manage().window().maximize();
-
-            logger.info("Navigating to WhatsApp Web for DELETE...");
-            driver.get("https://web.whatsapp.com");
-
-            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(60));
-            logger.info("Waiting for WhatsApp Web to load (max 60 seconds)...");
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.xpath("//div[@id='pane-side']")));
-            logger.info("WhatsApp Web loaded successfully. Logged in!");
-
-            for (String num : numbers) {
-                String numDigits = num.replaceAll("\\D", "");
-                if (numDigits.isEmpty()) {
-                    logger.warn("Skipping invalid number format for delete: {}", num);
-                    continue;
-                }
-                String link = String.format("https://web.whatsapp.com/send/?phone=%s%s&text=", COUNTRY_CODE, numDigits);
-                logger.info("Navigating to chat link for DELETE operation: {}", numDigits);
-                driver.get(link);
-
-                try {
-                    logger.debug("Waiting for chat text box for number {}...", num);
-                    WebDriverWait chatBoxWait = new WebDriverWait(driver, Duration.ofSeconds(15));
-                    chatBoxWait.until(ExpectedConditions.presenceOfElementLocated(By.xpath("//div[@data-lexical-editor='true'][@role='textbox']")));
-                    logger.debug("Chat text box found.");
-
-                } catch (Exception e) {
-                    logger.warn("Chat not ready for {}. Cannot proceed with delete. Skipping. Error: {}", num, e.getMessage());
-                    logStatus(numDigits, "Delete Fail", "Chat Not Found");
-                    continue;
+            // A message can only be revoked from the account that sent it; in any other account
+            // "the last message" is an older, unrelated one. Journaled because deleting it twice
+            // would delete an older one too.
+            for (Map.Entry<Path, List<String>> entry : bySendingProfile(job, journal.pending(numbers), journal).entrySet()) {
+                if (job.isCancelRequested()) {
+                    break;
                 }
+                sendEngine.run(job, List.of(entry.getKey()), entry.getValue(),
+                        (session, num) -> journal.track(num, () -> deleteLastMessageFor(session, num)));
+            }
+            complete = job.isCancelRequested() || journal.pending(numbers).isEmpty();
 
-                try {
-                    logger.debug("Attempting delete steps for number {}...", num);
-                    logger.debug("Waiting up to 15 seconds for at least one outgoing message to load...");
-                    WebDriverWait messageWait = new WebDriverWait(driver, Duration.ofSeconds(15));
-                    messageWait.until(
-                            ExpectedConditions.presenceOfElementLocated(By.xpath("//div[contains(@class, 'message-out')]"))
-                    );
-                    logger.debug("Outgoing message found. Proceeding...");
-                    Thread.sleep(1000);
-
-                    List<WebElement> allMyMessages = driver.findElements(By.xpath("//div[contains(@class, 'message-out')]"));
-                    logger.debug("Found {} outgoing messages.", allMyMessages.size());
-
-                    if (allMyMessages.isEmpty()) {
-                        logger.warn("No messages sent by you found in chat with {}. Skipping delete.", num);
-                        logStatus(numDigits, "Delete Fail", "No Sent Messages");
-                        continue;
-                    }
+            logger.info("--- All delete operations attempted. Check logs for individual results. ---");
 
-                    WebElement lastMessage = allMyMessages.get(allMyMessages.size() - 1);
-
-                    logger.debug("Hovering over the last message to reveal menu...");
-                    Actions actions = new Actions(driver);
-                    actions.moveToElement(lastMessage).perform();
-                    Thread.sleep(1500);
-
-                    logger.debug("Waiting for and clicking message menu arrow...");
-                    WebElement arrow = new WebDriverWait(driver, Duration.ofSeconds(7)).until(
-                            ExpectedConditions.elementToBeClickable(
-                                    lastMessage.findElement(By.xpath(".//div[@role='button'][.//span[@data-icon='menu-down']]"))
-                            )
-                    );
-                    arrow.click();
-                    logger.debug("Clicked message menu arrow.");
-
-                    logger.debug("Starting 3-click delete process...");
-
-                    logger.debug("Waiting for 'Delete' menu item...");
-                    WebElement deleteBtn = new WebDriverWait(driver, Duration.ofSeconds(7)).until(
-                            ExpectedConditions.elementToBeClickable(By.xpath("//div[@data-testid='message-menu-delete']"))
-                    );
-                    logger.debug("Clicking 'Delete' menu item...");
-                    deleteBtn.click();
-
-                    logger.debug("Waiting for 'Delete for everyone' button...");
-                    WebElement deleteForEveryoneBtn = new WebDriverWait(driver, Duration.ofSeconds(7)).until(
-                            ExpectedConditions.elementToBeClickable(By.xpath("//button[@data-testid='popup-controls-delete-for-everyone']"))
-                    );
-                    logger.debug("Clicking 'Delete for everyone' button...");
-                    deleteForEveryoneBtn.click();
-
-                    logger.debug("Waiting for final 'OK' confirmation button...");
-                    WebElement okBtn = new WebDriverWait(driver, Duration.ofSeconds(7)).until(
-                            ExpectedConditions.elementToBeClickable(By.xpath("//button[@data-testid='popup-controls-ok']"))
-                    );
-                    logger.debug("Clicking final 'OK' button...");
-                    okBtn.click();
-
-                    logger.info("✅ Last message to {} deleted successfully.", num);
-                    logStatus(numDigits, "Delete Success", "Last message deleted");
-                    Thread.sleep(SEND_MSG_TIME_SEC * 1000);
-
-                } catch (Exception e) {
-                    logger.error("❌ Failed to delete message for {}: {}", num, e.getMessage(), e);
-                    logStatus(numDigits, "Delete Fail", "Button/Option not found");
-                    try {
-                        logger.debug("Attempting to click Cancel button after error...");
-                        WebElement cancelButton = new WebDriverWait(driver, Duration.ofSeconds(3)).until(
-                                ExpectedConditions.elementToBeClickable((By.xpath("//button[@data-testid='popup-controls-cancel']")))
-                        );
-                        cancelButton.click();
-                        logger.debug("Clicked Cancel button.");
-                    } catch (Exception cancelEx) {
-                        logger.debug("Cancel button not found or not clickable: {}", cancelEx.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("--- Delete script interrupted ---");
+        } catch (Exception e) {
+            logger.error("--- AN UNEXPECTED ERROR OCCURRED during DELETE script ---", e);
+        } finally {
+            journal.finish(complete);
+            long endTime = System.currentTimeMillis();
+            logger.info("--- Delete script execution finished in {} ms ---", (endTime - startTime));
+        }
+    } // End of runSeleniumDeleteLogic
+
+    /**
+     * Groups numbers by the profile that last sent to them, from the {@link SentMessageStore}. With
+     * a single profile that is the one. Numbers whose sender is unknown or no longer configured are
+     * logged as "Delete Fail" rather than guessed at.
+     */
+    private Map<Path, List<String>> bySendingProfile(Job job, List<String> numbers, RunJournal journal) {
+        List<Path> profiles = sessionPool.getProfiles();
+        Map<Path, List<String>> byProfile = new LinkedHashMap<>();
+        if (profiles.size() == 1) {
+            byProfile.put(profiles.get(0), numbers);
+            return byProfile;
+        }
+        for (String num : numbers) {
+            List<SentMessageStore.SentMessage> sent = sentMessageStore.forNumber(num);
+            String sender = sent.isEmpty() ? null : sent.get(sent.size() - 1).profile();
+            Path profile = profiles.stream().filter(p -> p.toString().equals(sender)).findFirst().orElse(null);
+            if (profile == null) {
+                logger.warn("Not deleting for {}: {}.", num, sender == null
+                        ? "no recent message to it is on record, so the sending profile is unknown"
+                        : "profile " + sender + " that sent to it is no longer configured");
+                logStatus(num, "Delete Fail", sender == null ? "Sending Profile Unknown" : "Profile Not Configured");
+                journal.settle(num, false);
+                job.recordResult(false);
+                continue;
+            }
+            byProfile.computeIfAbsent(profile, k -> new ArrayList<>()).add(num);
+        }
+        return byProfile;
+    }
+
+    /**
+     * Deletes messages recorded in the {@link SentMessageStore}, e.g. a whole campaign. Each profile
+     * deletes what it sent, opening every chat once and going straight to the stored ids.
+     */
+    public void runSeleniumDeleteSentLogic(Job job, List<SentMessageStore.SentMessage> messages, RunJournal journal) {
+        logger.info("--- Starting WhatsApp DELETE script for {} sent messages ---", messages.size());
+        long startTime = System.currentTimeMillis();
+        boolean complete = false;
+        try {
+            // profile -> number -> message ids, in send order
+            Map<String, Map<String, List<String>>> byProfile = new LinkedHashMap<>();
+            for (SentMessageStore.SentMessage message : messages) {
+                if (journal.isHandled(message.number())) {
+                    continue;
+                }
+                byProfile.computeIfAbsent(message.profile(), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(message.number(), k -> new ArrayList<>())
+                        .add(message.messageId());
+            }
+            for (Map.Entry<String, Map<String, List<String>>> entry : byProfile.entrySet()) {
+                if (job.isCancelRequested()) {
+                    break;
+                }
+                Map<String, List<String>> idsByNumber = entry.getValue();
+                Path profile = sessionPool.getProfiles().stream()
+                        .filter(p -> p.toString().equals(entry.getKey())).findFirst().orElse(null);
+                if (profile == null) {
+                    logger.error("Profile {} that sent {} chats' messages is no longer configured.", entry.getKey(), idsByNumber.size());
+                    for (String number : idsByNumber.keySet()) {
+                        logStatus(number, "Delete Fail", "Profile Not Configured");
+                        journal.settle(number, false);
+                        job.recordResult(false);
                     }
+                    continue;
                 }
-            } // End of for loop
-
+                sendEngine.run(job, List.of(profile), new ArrayList<>(idsByNumber.keySet()), (session, num) ->
+                        journal.track(num, () -> deleteSentMessagesFor(session, num, idsByNumber.get(num))));
+            }
+            complete = job.isCancelRequested()
+                    || messages.stream().allMatch(m -> journal.isHandled(m.number()));
             logger.info("--- All delete operations attempted. Check logs for individual results. ---");
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("--- Delete script interrupted ---");
         } catch (Exception e) {
             logger.error("--- AN UNEXPECTED ERROR OCCURRED during DELETE script ---", e);
         } finally {
-            if (driver != null) {
-                try {
-                    driver.quit();
-                    logger.info("ChromeDriver quit successfully after DELETE operation.");
-                } catch (Exception e) {
-                    logger.error("Error quitting ChromeDriver after DELETE: {}", e.getMessage());
-                }
+            journal.finish(complete);
+            logger.info("--- Delete script execution finished in {} ms ---", System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Deletes the last outgoing message in one chat. Per-number failures are logged to history.
+     */
+    private boolean deleteLastMessageFor(WhatsappSession session, String num) {
+        WebDriver driver = session.getDriver();
+        String numDigits = num; // already E.164 digits, see NumberNormalizer
+        if (!openChatForDelete(session, numDigits)) {
+            return false;
+        }
+
+        try {
+            logger.debug("Attempting delete steps for number {}...", num);
+            logger.debug("Waiting up to 15 seconds for at least one outgoing message to load...");
+            chatStateProbe.pollingWait(driver, Duration.ofSeconds(15))
+                    .until(ExpectedConditions.presenceOfElementLocated(WhatsappLocators.OUTGOING_MESSAGE));
+            logger.debug("Outgoing message found. Proceeding...");
+            Thread.sleep(1000);
+
+            List<WebElement> allMyMessages = driver.findElements(WhatsappLocators.OUTGOING_MESSAGE);
+            logger.debug("Found {} outgoing messages.", allMyMessages.size());
+
+            if (allMyMessages.isEmpty()) {
+                logger.warn("No messages sent by you found in chat with {}. Skipping delete.", num);
+                logStatus(numDigits, "Delete Fail", "No Sent Messages");
+                return false;
             }
-            long endTime = System.currentTimeMillis();
-            logger.info("--- Delete script execution finished in {} ms ---", (endTime - startTime));
+
+            WebElement lastMessage = allMyMessages.get(allMyMessages.size() - 1);
+            String lastMessageId = sendPacer.lastOutgoingId(driver);
+            revoke(driver, lastMessage);
+            if (lastMessageId != null) {
+                sentMessageStore.markDeleted(lastMessageId);
+            }
+
+            logger.info("✅ Last message to {} deleted successfully.", num);
+            logStatus(numDigits, "Delete Success", "Last message deleted");
+            return true;
+
+        } catch (Exception e) {
+            rethrowIfSessionLost(e);
+            logger.error("❌ Failed to delete message for {}: {}", num, e.getMessage(), e);
+            logStatus(numDigits, "Delete Fail", "Button/Option not found");
+            cancelPopup(driver);
+            return false;
         }
-    } // End of runSeleniumDeleteLogic
-}
+    }
+
+    /**
+     * Deletes the given messages in one chat, looking each bubble up by its data-id.
+     *
+     * @return whether all of them were deleted
+     */
+    private boolean deleteSentMessagesFor(WhatsappSession session, String numDigits, List<String> messageIds) {
+        if (!openChatForDelete(session, numDigits)) {
+            return false;
+        }
+        WebDriver driver = session.getDriver();
+        int deleted = 0;
+        // The chat renders its recent history shortly after the editor; later lookups find it already loaded
+        Duration lookupTimeout = Duration.ofSeconds(15);
+        for (String messageId : messageIds) {
+            WebElement bubble;
+            try {
+                bubble = chatStateProbe.pollingWait(driver, lookupTimeout)
+                        .until(ExpectedConditions.presenceOfElementLocated(WhatsappLocators.messageWithId(messageId)));
+            } catch (TimeoutException e) {
+                logger.warn("Message {} not found in chat with {}.", messageId, numDigits);
+                logStatus(numDigits, "Delete Fail", "Message Not Found");
+                lookupTimeout = Duration.ofSeconds(2);
+                continue;
+            }
+            lookupTimeout = Duration.ofSeconds(2);
+            try {
+                revoke(driver, bubble);
+                sentMessageStore.markDeleted(messageId);
+                logStatus(numDigits, "Delete Success", messageId);
+                deleted++;
+            } catch (Exception e) {
+                rethrowIfSessionLost(e);
+                logger.error("❌ Failed to delete message {} for {}: {}", messageId, numDigits, e.getMessage(), e);
+                logStatus(numDigits, "Delete Fail", "Button/Option not found");
+                cancelPopup(driver);
+            }
+        }
+        logger.info("Deleted {} of {} messages to {}.", deleted, messageIds.size(), numDigits);
+        return deleted == messageIds.size();
+    }
+
+    /**
+     * Opens the chat and waits until it is ready. Logs a Delete Fail and returns false if it is not.
+     */
+    private boolean openChatForDelete(WhatsappSession session, String numDigits) {
+        String link = String.format("%s/send/?phone=%s&text=", sessionPool.getBaseUrl(), numDigits);
+        logger.info("Navigating to chat link for DELETE operation: {}", numDigits);
+        long phaseStart = System.nanoTime();
+        automation.navigate(session, link);
+        metrics.record(PipelineMetrics.Phase.CHAT_NAVIGATION, phaseStart);
+
+        try {
+            logger.debug("Waiting for chat text box for number {}...", numDigits);
+            phaseStart = System.nanoTime();
+            ChatStateProbe.State state = automation.awaitChat(session, CHAT_READY_TIMEOUT);
+            metrics.record(PipelineMetrics.Phase.CHAT_READINESS, phaseStart);
+            if (state == ChatStateProbe.State.LOGGED_OUT) {
+                throw new NoSuchSessionException("WhatsApp Web is showing the login QR code.");
+            }
+            if (state != ChatStateProbe.State.READY) {
+                logger.warn("Chat not ready for {} ({}). Cannot proceed with delete. Skipping.", numDigits, state);
+                logStatus(numDigits, "Delete Fail", "Chat Not Found");
+                return false;
+            }
+            logger.debug("Chat text box found.");
+            return true;
+
+        } catch (Exception e) {
+            rethrowIfSessionLost(e);
+            logger.warn("Chat not ready for {}. Cannot proceed with delete. Skipping. Error: {}", numDigits, e.getMessage());
+            logStatus(numDigits, "Delete Fail", "Chat Not Found");
+            return false;
+        }
+    }
 
+    /**
+     * "Delete for everyone" on one outgoing bubble: hover, menu arrow, Delete, Delete for everyone, OK.
+     */
+    private void revoke(WebDriver driver, WebElement message) {
+        long phaseStart = System.nanoTime();
+        logger.debug("Hovering over the message to reveal menu...");
+        Actions actions = new Actions(driver);
+        actions.moveToElement(message).perform();
+
+        logger.debug("Waiting for and clicking message menu arrow...");
+        WebDriverWait menuWait = chatStateProbe.pollingWait(driver, Duration.ofSeconds(7));
+        // The arrow is only rendered once the hover registers, so wait for it inside the bubble
+        WebElement arrow = menuWait.until(
+                ExpectedConditions.presenceOfNestedElementLocatedBy(message, WhatsappLocators.MESSAGE_MENU_ARROW)
+        );
+        arrow.click();
+        logger.debug("Clicked message menu arrow.");
+
+        logger.debug("Starting 3-click delete process...");
+
+        logger.debug("Waiting for 'Delete' menu item...");
+        WebElement deleteBtn = menuWait.until(ExpectedConditions.elementToBeClickable(WhatsappLocators.MENU_DELETE));
+        logger.debug("Clicking 'Delete' menu item...");
+        deleteBtn.click();
+
+        logger.debug("Waiting for 'Delete for everyone' button...");
+        WebElement deleteForEveryoneBtn = menuWait.until(ExpectedConditions.elementToBeClickable(WhatsappLocators.DELETE_FOR_EVERYONE));
+        logger.debug("Clicking 'Delete for everyone' button...");
+        deleteForEveryoneBtn.click();
+
+        logger.debug("Waiting for final 'OK' confirmation button...");
+        WebElement okBtn = menuWait.until(ExpectedConditions.elementToBeClickable(WhatsappLocators.POPUP_OK_BUTTON));
+        logger.debug("Clicking final 'OK' button...");
+        okBtn.click();
+
+        // The confirmation popup closes once WhatsApp has accepted the revoke
+        chatStateProbe.pollingWait(driver, Duration.ofSeconds(10))
+                .until(ExpectedConditions.invisibilityOfElementLocated(WhatsappLocators.POPUP_OK_BUTTON));
+        metrics.record(PipelineMetrics.Phase.DELETE, phaseStart);
+    }
+
+    private void cancelPopup(WebDriver driver) {
+        try {
+            logger.debug("Attempting to click Cancel button after error...");
+            WebElement cancelButton = chatStateProbe.pollingWait(driver, Duration.ofSeconds(3))
+                    .until(ExpectedConditions.elementToBeClickable(WhatsappLocators.POPUP_CANCEL_BUTTON));
+            cancelButton.click();
+            logger.debug("Clicked Cancel button.");
+        } catch (Exception cancelEx) {
+            logger.debug("Cancel button not found or not clickable: {}", cancelEx.getMessage());
+        }
+    }
+}
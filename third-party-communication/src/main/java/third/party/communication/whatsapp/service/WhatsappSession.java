@@ -0,0 +1,37 @@
+package third.party.communication.whatsapp.service;
+
+import org.openqa.selenium.WebDriver;
+
+import java.nio.file.Path;
+
+/**
+ * A logged-in ChromeDriver kept warm by {@link WhatsappSessionPool}.
+ * Only one job holds a session at a time; the pool tracks how often it was used.
+ */
+public class WhatsappSession {
+
+    private final WebDriver driver;
+    private final Path profileDir;
+    private final long createdAt;
+    private volatile long lastUsedAt;
+    private int jobsServed;
+
+    WhatsappSession(WebDriver driver, Path profileDir) {
+        this.driver = driver;
+        this.profileDir = profileDir;
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    public WebDriver getDriver() { return driver; }
+    public Path getProfileDir() { return profileDir; }
+    public long getCreatedAt() { return createdAt; }
+    public int getJobsServed() { return jobsServed; }
+
+    long getLastUsedAt() { return lastUsedAt; }
+
+    void markUsed() {
+        jobsServed++;
+        lastUsedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,265 @@
+package third.party.communication.whatsapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps logged-in ChromeDrivers warm between jobs so a batch does not pay
+ * for Chrome start-up and the WhatsApp Web login wait every time.
+ * Sessions are health-checked by probing for {@code #pane-side} and recycled
+ * after a number of jobs, after a crash, or when they sit idle too long.
+ * <p>
+ * Each configured profile directory (a separately logged-in WhatsApp account)
+ * gets at most one driver, because Chrome locks its user-data-dir.
+ */
+@Component
+public class WhatsappSessionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WhatsappSessionPool.class);
+
+    private static final By PANE_SIDE = WhatsappLocators.PANE_SIDE;
+    private static final Path BASE_DIR = Paths.get(System.getProperty("user.dir"));
+
+    // --- Configuration ---
+    // Overridable so load tests can point the pipeline at a local stand-in page
+    @Value("${whatsapp.web.base-url:https://web.whatsapp.com}")
+    private String baseUrl;
+    @Value("${whatsapp.session.max-jobs-per-driver:50}")
+    private int maxJobsPerDriver;
+    @Value("${whatsapp.session.idle-timeout-minutes:30}")
+    private long idleTimeoutMinutes;
+    @Value("${whatsapp.session.login-timeout-seconds:60}")
+    private long loginTimeoutSeconds;
+    @Value("${whatsapp.session.prewarm:false}")
+    private boolean prewarm;
+
+    private final List<ProfileSlot> slots = new ArrayList<>();
+    private final BrowserProfile browserProfile;
+    private final PipelineMetrics metrics;
+
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "whatsapp-session-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public WhatsappSessionPool(@Value("${whatsapp.session.profiles:whatsapp_session}") List<String> profiles,
+                               BrowserProfile browserProfile, PipelineMetrics metrics) {
+        this.browserProfile = browserProfile;
+        this.metrics = metrics;
+        for (String profile : profiles) {
+            if (!profile.isBlank()) {
+                slots.add(new ProfileSlot(BASE_DIR.resolve(profile.trim())));
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("whatsapp.session.profiles must name at least one profile directory.");
+        }
+        logger.info("WhatsApp session pool configured with {} profile(s).", slots.size());
+        reaper.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * WhatsApp Web's address, without a trailing slash.
+     */
+    public String getBaseUrl() {
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public List<Path> getProfiles() {
+        return slots.stream().map(slot -> slot.profileDir).toList();
+    }
+
+    /**
+     * Lends out a warm, logged-in session for one specific profile, starting Chrome only when
+     * no healthy one is available. Blocks while another job holds the profile.
+     */
+    public WhatsappSession borrow(Path profileDir, Duration timeout) throws InterruptedException {
+        ProfileSlot slot = slotFor(profileDir);
+        if (!slot.lease.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Profile " + profileDir.getFileName() + " did not become available within " + timeout.toSeconds() + " seconds.");
+        }
+        return checkOut(slot);
+    }
+
+    /**
+     * Returns a session to the pool. Broken, worn-out or unhealthy sessions are quit instead of kept.
+     */
+    public void release(WhatsappSession session, boolean broken) {
+        if (session == null) {
+            return;
+        }
+        ProfileSlot slot = slotFor(session.getProfileDir());
+        try {
+            session.markUsed();
+            if (broken) {
+                logger.warn("ChromeDriver session for {} reported as broken. Quitting it.", slot.name());
+                quitQuietly(session);
+            } else if (session.getJobsServed() >= maxJobsPerDriver) {
+                logger.info("ChromeDriver session for {} served {} jobs. Recycling it.", slot.name(), session.getJobsServed());
+                quitQuietly(session);
+            } else if (!isHealthy(session)) {
+                logger.warn("ChromeDriver session for {} unhealthy after job. Quitting it.", slot.name());
+                quitQuietly(session);
+            } else {
+                slot.idleSession = session;
+            }
+        } finally {
+            slot.lease.release();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmOnStartup() {
+        if (!prewarm) {
+            return;
+        }
+        for (ProfileSlot slot : slots) {
+            Thread.ofPlatform().name("whatsapp-session-prewarm-" + slot.name()).daemon(true).start(() -> {
+                try {
+                    release(borrow(slot.profileDir, Duration.ofSeconds(loginTimeoutSeconds)), false);
+                    logger.info("WhatsApp session {} pre-warmed.", slot.name());
+                } catch (Exception e) {
+                    logger.warn("Could not pre-warm WhatsApp session {}: {}", slot.name(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaper.shutdownNow();
+        for (ProfileSlot slot : slots) {
+            WhatsappSession session = slot.idleSession;
+            slot.idleSession = null;
+            if (session != null) {
+                quitQuietly(session);
+            }
+        }
+    }
+
+    private WhatsappSession checkOut(ProfileSlot slot) {
+        try {
+            WhatsappSession session = slot.idleSession;
+            slot.idleSession = null;
+            if (session != null) {
+                if (isHealthy(session)) {
+                    logger.info("Reusing warm ChromeDriver session for {} (jobs served: {}).", slot.name(), session.getJobsServed());
+                    return session;
+                }
+                logger.warn("Warm ChromeDriver session for {} failed health check. Recycling it.", slot.name());
+                quitQuietly(session);
+            }
+            return startSession(slot.profileDir);
+        } catch (RuntimeException e) {
+            slot.lease.release();
+            throw e;
+        }
+    }
+
+    private WhatsappSession startSession(Path profileDir) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        logger.info("Initializing ChromeDriver ({}) with session path: {}", browserProfile.getMode(), profileDir.toAbsolutePath());
+        WebDriver driver = browserProfile.start(profileDir);
+        metrics.record(PipelineMetrics.Phase.DRIVER_SETUP, startNanos);
+        metrics.driverStarted();
+        try {
+            long loginStart = System.nanoTime();
+            logger.info("Navigating to WhatsApp Web...");
+            driver.get(getBaseUrl());
+            logger.info("Waiting for WhatsApp Web to load (max {} seconds)... Scan QR code if needed.", loginTimeoutSeconds);
+            new WebDriverWait(driver, Duration.ofSeconds(loginTimeoutSeconds))
+                    .until(ExpectedConditions.presenceOfElementLocated(PANE_SIDE));
+            metrics.record(PipelineMetrics.Phase.LOGIN_WAIT, loginStart);
+        } catch (RuntimeException e) {
+            try { driver.quit(); } catch (Exception quitEx) { /* Ignore */ }
+            metrics.driverQuit();
+            throw e;
+        }
+        logger.info("WhatsApp Web loaded successfully in {} ms. Logged in!", System.currentTimeMillis() - startTime);
+        return new WhatsappSession(driver, profileDir);
+    }
+
+    private boolean isHealthy(WhatsappSession session) {
+        try {
+            return !session.getDriver().findElements(PANE_SIDE).isEmpty();
+        } catch (WebDriverException e) {
+            logger.debug("Health probe failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        long idleMillis = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+        for (ProfileSlot slot : slots) {
+            if (!slot.lease.tryAcquire()) {
+                continue;
+            }
+            try {
+                WhatsappSession session = slot.idleSession;
+                if (session != null && System.currentTimeMillis() - session.getLastUsedAt() > idleMillis) {
+                    logger.info("ChromeDriver session for {} idle for more than {} minutes. Quitting it.", slot.name(), idleTimeoutMinutes);
+                    slot.idleSession = null;
+                    quitQuietly(session);
+                }
+            } finally {
+                slot.lease.release();
+            }
+        }
+    }
+
+    private ProfileSlot slotFor(Path profileDir) {
+        for (ProfileSlot slot : slots) {
+            if (slot.profileDir.equals(profileDir)) {
+                return slot;
+            }
+        }
+        throw new IllegalArgumentException("Unknown WhatsApp profile: " + profileDir);
+    }
+
+    private void quitQuietly(WhatsappSession session) {
+        try {
+            session.getDriver().quit();
+            logger.info("ChromeDriver quit successfully.");
+        } catch (Exception e) {
+            logger.error("Error quitting ChromeDriver: {}", e.getMessage());
+        } finally {
+            metrics.driverQuit();
+        }
+    }
+
+    private static class ProfileSlot {
+        private final Path profileDir;
+        private final Semaphore lease = new Semaphore(1, true);
+        private volatile WhatsappSession idleSession;
+
+        ProfileSlot(Path profileDir) {
+            this.profileDir = profileDir;
+        }
+
+        String name() {
+            return profileDir.getFileName().toString();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package third.party.communication.whatsapp.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * One deque per shard. A shard takes work from the head of its own deque and,
+ * once that runs dry, steals from the tail of the others so a slow shard never
+ * holds items the fast ones could be sending.
+ */
+public class WorkStealingQueue<T> {
+
+    private final List<ConcurrentLinkedDeque<T>> deques;
+
+    public WorkStealingQueue(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is required.");
+        }
+        deques = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            deques.add(new ConcurrentLinkedDeque<>());
+        }
+    }
+
+    /**
+     * Splits the items into contiguous blocks, one per shard, so stealing from the tail
+     * takes work the owner would have reached last.
+     */
+    public void distribute(Collection<? extends T> items) {
+        int shards = deques.size();
+        int blockSize = (items.size() + shards - 1) / shards;
+        int index = 0;
+        for (T item : items) {
+            deques.get(blockSize == 0 ? 0 : index / blockSize).addLast(item);
+            index++;
+        }
+    }
+
+    public void addLast(int shard, T item) {
+        deques.get(shard).addLast(item);
+    }
+
+    /** Puts an item back at the head of the shard's own deque, e.g. after a driver crash. */
+    public void pushBack(int shard, T item) {
+        deques.get(shard).addFirst(item);
+    }
+
+    /**
+     * Next item for the given shard: its own head first, otherwise the tail of another shard.
+     * Returns null when every deque is empty.
+     */
+    public T poll(int shard) {
+        T item = deques.get(shard).pollFirst();
+        if (item != null) {
+            return item;
+        }
+        int shards = deques.size();
+        for (int i = 1; i < shards; i++) {
+            item = deques.get((shard + i) % shards).pollLast();
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    public int shardCount() {
+        return deques.size();
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentLinkedDeque<T> deque : deques) {
+            size += deque.size();
+        }
+        return size;
+    }
+}
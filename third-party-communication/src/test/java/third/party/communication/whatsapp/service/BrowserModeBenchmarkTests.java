@@ -0,0 +1,151 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares browser modes on this machine: driver start-up, resident memory of the Chrome
+ * process tree, and the latency of typing and submitting one message; and compares
+ * {@link MessageComposer} bulk insertion with keystrokes by message length. Needs Chrome,
+ * so it only runs on request:
+ * <pre>
+ * ./mvnw test -Dtest=BrowserModeBenchmarkTests -Dbenchmark.browser=true [-Dbenchmark.browser.modes=HEADLESS,HEADLESS_TRIMMED]
+ * </pre>
+ * The page is a local composer stand-in unless {@code -Dbenchmark.browser.url} points elsewhere.
+ */
+@EnabledIfSystemProperty(named = "benchmark.browser", matches = "true")
+class BrowserModeBenchmarkTests {
+
+	private static final int MESSAGES = 20;
+	private static final String MESSAGE = "Benchmark message with enough text to look like a real campaign line. ".repeat(3);
+	private static final String COMPOSER_PAGE = "data:text/html,<div id='composer' contenteditable='true' "
+			+ "style='min-height:40px' onkeydown=\"if(event.key==='Enter'&&!event.shiftKey){this.textContent='';}\"></div>";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void compareModes() throws Exception {
+		String modes = System.getProperty("benchmark.browser.modes", "HEADED,HEADLESS,HEADLESS_TRIMMED");
+		String url = System.getProperty("benchmark.browser.url", COMPOSER_PAGE);
+		List<String> rows = new ArrayList<>();
+		for (String name : modes.split(",")) {
+			String mode = name.trim();
+			BrowserProfile profile = new BrowserProfile(
+					mode.startsWith("HEADLESS") ? BrowserProfile.Mode.HEADLESS : BrowserProfile.Mode.HEADED,
+					mode.endsWith("_TRIMMED"), List.of(), "1366,900", Boolean.getBoolean("benchmark.browser.no-sandbox"));
+			rows.add(measure(mode, profile, url));
+		}
+		System.out.println();
+		System.out.printf("%-18s %12s %12s %14s%n", "mode", "startup ms", "rss MB", "ms / message");
+		rows.forEach(System.out::println);
+	}
+
+	@Test
+	void compareCompositionByLength() throws Exception {
+		BrowserProfile profile = new BrowserProfile(BrowserProfile.Mode.HEADLESS, false, List.of(), "1366,900",
+				Boolean.getBoolean("benchmark.browser.no-sandbox"));
+		MessageComposer bulk = new MessageComposer(MessageComposer.Mode.BULK);
+		MessageComposer keystrokes = new MessageComposer(MessageComposer.Mode.KEYSTROKES);
+		WebDriver driver = profile.start(Files.createDirectory(dir.resolve("composer")));
+		try {
+			driver.get(System.getProperty("benchmark.browser.url", COMPOSER_PAGE));
+			WebElement composer = driver.findElement(By.id("composer"));
+			System.out.println();
+			System.out.printf("%8s %16s %16s %10s%n", "chars", "keystrokes ms", "bulk ms", "bulk used");
+			for (int length : new int[] {50, 200, 1000, 4000}) {
+				String message = messageOfLength(length);
+				double keystrokeMillis = timeCompose(driver, composer, keystrokes, message);
+				MessageComposer.Mode[] used = new MessageComposer.Mode[1];
+				double bulkMillis = timeCompose(driver, composer, bulk, message, used);
+				System.out.printf("%8d %16.1f %16.1f %10s%n", length, keystrokeMillis, bulkMillis, used[0]);
+			}
+		} finally {
+			driver.quit();
+		}
+	}
+
+	private static double timeCompose(WebDriver driver, WebElement composer, MessageComposer composerUnderTest, String message) {
+		return timeCompose(driver, composer, composerUnderTest, message, new MessageComposer.Mode[1]);
+	}
+
+	private static double timeCompose(WebDriver driver, WebElement composer, MessageComposer composerUnderTest, String message,
+			MessageComposer.Mode[] used) {
+		long start = System.nanoTime();
+		used[0] = composerUnderTest.compose(driver, composer, message);
+		double millis = (System.nanoTime() - start) / 1_000_000.0;
+		((JavascriptExecutor) driver).executeScript("arguments[0].textContent = '';", composer);
+		return millis;
+	}
+
+	private static String messageOfLength(int length) {
+		StringBuilder sb = new StringBuilder(length);
+		while (sb.length() < length) {
+			sb.append(sb.length() % 60 == 59 ? '\n' : (char) ('a' + sb.length() % 26));
+		}
+		return sb.toString();
+	}
+
+	private String measure(String mode, BrowserProfile profile, String url) throws IOException {
+		Path userDataDir = Files.createDirectory(dir.resolve(mode.toLowerCase()));
+		long start = System.nanoTime();
+		WebDriver driver = profile.start(userDataDir);
+		try {
+			driver.get(url);
+			while (!"complete".equals(((JavascriptExecutor) driver).executeScript("return document.readyState"))) {
+				Thread.onSpinWait();
+			}
+			long startupMillis = (System.nanoTime() - start) / 1_000_000;
+
+			WebElement composer = driver.findElement(By.id("composer"));
+			long typingStart = System.nanoTime();
+			for (int i = 0; i < MESSAGES; i++) {
+				composer.click();
+				composer.sendKeys(MESSAGE);
+				composer.sendKeys(Keys.ENTER);
+			}
+			double perMessage = (System.nanoTime() - typingStart) / 1_000_000.0 / MESSAGES;
+
+			return String.format("%-18s %12d %12.1f %14.1f", mode, startupMillis, residentMegabytes(userDataDir), perMessage);
+		} finally {
+			driver.quit();
+		}
+	}
+
+	/**
+	 * Sums VmRSS of every process started for this user-data-dir (Linux only; NaN elsewhere).
+	 */
+	private static double residentMegabytes(Path userDataDir) {
+		String marker = userDataDir.toAbsolutePath().toString();
+		long kilobytes = ProcessHandle.allProcesses()
+				.filter(p -> p.info().commandLine().map(c -> c.contains(marker)).orElse(false))
+				.mapToLong(p -> rssKilobytes(p.pid()))
+				.sum();
+		return kilobytes == 0 ? Double.NaN : kilobytes / 1024.0;
+	}
+
+	private static long rssKilobytes(long pid) {
+		try {
+			for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// Process exited or /proc is not available.
+		}
+		return 0;
+	}
+}
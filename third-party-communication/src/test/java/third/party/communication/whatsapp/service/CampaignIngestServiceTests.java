@@ -0,0 +1,120 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CampaignIngestServiceTests {
+
+	@TempDir
+	Path dir;
+
+	private HistoryWriter historyWriter;
+	private CampaignIngestService service;
+	private RunJournalService runs;
+
+	@BeforeEach
+	void setUp() {
+		historyWriter = new HistoryWriter(dir.resolve("history.log"), HistoryWriter.FsyncPolicy.NONE, 1000, 0, false);
+		historyWriter.start();
+		InvalidNumberCache cache = new InvalidNumberCache(dir.resolve("invalid-numbers.cache"), dir.resolve("history.log"),
+				null, null, new NumberNormalizer("91"), Duration.ofDays(30), Duration.ofHours(24), 100, 0);
+		cache.load();
+		cache.onRecord(HistoryRecord.of("913333333333", "Invalid Number", "N/A"));
+		service = new CampaignIngestService(new NumberNormalizer("91"), cache, historyWriter, new ObjectMapper(), 2, 10);
+		runs = new RunJournalService(dir.resolve("runs"), false, new ObjectMapper());
+	}
+
+	@AfterEach
+	void tearDown() {
+		historyWriter.shutdown();
+	}
+
+	@Test
+	void streamsCsvRowsWithVariablesWhileTheConsumerKeepsUp() throws Exception {
+		String csv = "Name,Phone,City\n"
+				+ "Asha,98765 43210,Pune\n"
+				+ "Ravi,+91 98765-43210,Delhi\n"
+				+ "Bad,12ab,Goa\n"
+				+ "Cached,9133333333 33,Agra\n"
+				+ "\"Mehta, J\",9123456789,Mumbai\n";
+		Job job = new Job(Job.Type.SEND, 0);
+		RecipientFeed feed = service.newFeed();
+		RunJournal journal = runs.create(RunSpec.send(RunSpec.Kind.CAMPAIGN, "Hi", null), List.of());
+		List<RecipientFeed.Recipient> sent = new ArrayList<>();
+		Thread consumer = new Thread(() -> drain(feed, sent));
+		consumer.start();
+
+		CampaignIngestService.Summary summary = service.ingest(job, feed, journal,
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), CampaignIngestService.Format.CSV, null);
+		consumer.join(5000);
+
+		assertThat(summary.accepted()).isEqualTo(2);
+		assertThat(summary.duplicates()).isEqualTo(1);
+		assertThat(summary.skipped()).isEqualTo(1);
+		assertThat(summary.rejectedCount()).isEqualTo(1);
+		assertThat(job.getTotal()).isEqualTo(3);
+		assertThat(sent).extracting(RecipientFeed.Recipient::number).containsExactly("919876543210", "919123456789");
+		MessageTemplate template = MessageTemplate.parse("Hi {{Name}} from {{ City }}{{missing}}!");
+		assertThat(template.render(sent.get(1).variables())).isEqualTo("Hi Mehta, J from Mumbai!");
+		List<RecipientFeed.Recipient> journaled = new ArrayList<>();
+		journal.forEachRecipient(journaled::add);
+		assertThat(journaled).containsExactlyElementsOf(sent);
+		assertThat(journal.isHandled("913333333333")).isTrue();
+	}
+
+	@Test
+	void stopsReadingNdjsonWhenTheJobGoesAway() throws Exception {
+		StringBuilder ndjson = new StringBuilder("{\"number\": 919000000001, \"name\": \"A\"}\n{\"name\": \"no number\"}\n");
+		for (int i = 2; i < 1000; i++) {
+			ndjson.append("{\"number\": \"91900000").append(String.format("%04d", i)).append("\"}\n");
+		}
+		Job job = new Job(Job.Type.SEND, 0);
+		RecipientFeed feed = service.newFeed();
+		RunJournal journal = runs.create(RunSpec.send(RunSpec.Kind.CAMPAIGN, "Hi", null), List.of());
+		// Nobody consumes: the buffer of 2 fills up and the reader waits until the job is cancelled
+		Thread canceller = new Thread(() -> {
+			try {
+				Thread.sleep(300);
+			} catch (InterruptedException e) {
+				return;
+			}
+			job.requestCancel();
+		});
+		canceller.start();
+
+		CampaignIngestService.Summary summary = service.ingest(job, feed, journal,
+				new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)), CampaignIngestService.Format.NDJSON, null);
+
+		assertThat(summary.accepted()).isEqualTo(2);
+		assertThat(summary.rejectedCount()).isEqualTo(1);
+		assertThat(summary.error()).isNull();
+		assertThat(job.getTotal()).isEqualTo(2);
+		assertThat(feed.poll(0, TimeUnit.MILLISECONDS).variables()).containsEntry("name", "A");
+	}
+
+	private static void drain(RecipientFeed feed, List<RecipientFeed.Recipient> sent) {
+		try {
+			while (!feed.isDrained()) {
+				RecipientFeed.Recipient recipient = feed.poll(50, TimeUnit.MILLISECONDS);
+				if (recipient != null) {
+					sent.add(recipient);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CdpConnectionTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final List<String> sent = new CopyOnWriteArrayList<>();
+	private final CdpConnection connection = new CdpConnection(objectMapper, sent::add);
+
+	@Test
+	void repliesAreMatchedToTheirCommandsAndEventsToTheirWaiters() throws Exception {
+		CompletableFuture<JsonNode> loaded = connection.nextEvent("Page.loadEventFired");
+		CompletableFuture<JsonNode> first = connection.sendAsync("Page.navigate", Map.of("url", "https://example.test"));
+		CompletableFuture<JsonNode> second = connection.sendAsync("Runtime.evaluate", Map.of("expression", "1"));
+
+		JsonNode request = objectMapper.readTree(sent.get(0));
+		assertThat(request.get("method").asText()).isEqualTo("Page.navigate");
+		assertThat(request.get("params").get("url").asText()).isEqualTo("https://example.test");
+
+		connection.receive("{\"id\":2,\"error\":{\"code\":-32000,\"message\":\"Cannot find context\"}}");
+		connection.receive("{\"method\":\"Page.loadEventFired\",\"params\":{\"timestamp\":1.5}}");
+		connection.receive("{\"id\":" + request.get("id").asLong() + ",\"result\":{\"frameId\":\"F1\"}}");
+
+		assertThat(connection.await(first, "navigate", Duration.ofSeconds(1)).get("frameId").asText()).isEqualTo("F1");
+		assertThat(loaded.get().get("timestamp").asDouble()).isEqualTo(1.5);
+		assertThatThrownBy(() -> connection.await(second, "evaluate", Duration.ofSeconds(1)))
+				.isInstanceOf(WebDriverException.class).hasMessageContaining("Cannot find context");
+	}
+
+	@Test
+	void closedConnectionFailsPendingAndLaterCommandsAsDisconnected() {
+		CompletableFuture<JsonNode> pending = connection.sendAsync("Page.navigate", Map.of("url", "https://example.test"));
+
+		connection.closed("closed by browser (1006)");
+
+		assertThat(connection.isOpen()).isFalse();
+		assertThatThrownBy(() -> connection.await(pending, "navigate", Duration.ofSeconds(1)))
+				.isInstanceOf(WebDriverException.class).hasMessageContaining("disconnected");
+		assertThatThrownBy(() -> connection.send("Page.enable", Map.of(), Duration.ofSeconds(1)))
+				.isInstanceOf(WebDriverException.class).hasMessageContaining("disconnected");
+	}
+}
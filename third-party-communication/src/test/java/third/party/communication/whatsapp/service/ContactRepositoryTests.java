@@ -0,0 +1,67 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import third.party.communication.whatsapp.dto.Contact;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactRepositoryTests {
+
+	private static final String HEADER = "First Name,Middle Name,Last Name,Organization Name,Notes,"
+			+ "Phone 1 - Label,Phone 1 - Value,Phone 2 - Label,Phone 2 - Value\r\n";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void parsesQuotedFieldsAndLineBreaks() throws IOException {
+		try (CsvParser parser = new CsvParser(new StringReader("\uFEFFa,\"b, c\",\"say \"\"hi\"\"\"\r\n\"multi\nline\",,x"))) {
+			assertThat(parser.nextRecord()).containsExactly("a", "b, c", "say \"hi\"");
+			assertThat(parser.nextRecord()).containsExactly("multi\nline", "", "x");
+			assertThat(parser.nextRecord()).isNull();
+		}
+	}
+
+	@Test
+	void readsGoogleExportColumns() throws IOException {
+		Path csv = dir.resolve("contacts.csv");
+		Files.writeString(csv, HEADER
+				+ "Asha,K,Rao,,\"Met at expo, 2024\",Mobile,+91 98765 43210 ::: +91 91234 56789,Work,022-2345-6789\r\n"
+				+ ",,,Acme Traders,,Work,+91 99999 00000,,\r\n"
+				+ "No,Phone,Here,,,,,,\r\n", StandardCharsets.UTF_8);
+		ContactRepository repository = new ContactRepository(csv);
+
+		List<Contact> contacts = repository.findAll();
+		assertThat(contacts).extracting(Contact::getName).containsExactly("Asha K Rao", "Acme Traders");
+		assertThat(contacts.get(0).getNumber()).containsExactly("919876543210", "919123456789", "02223456789");
+
+		assertThat(repository.search("ra", 10)).extracting(Contact::getName).containsExactly("Asha K Rao");
+		assertThat(repository.search("ASHA K", 10)).extracting(Contact::getName).containsExactly("Asha K Rao");
+		assertThat(repository.search("+91 99", 10)).extracting(Contact::getName).containsExactly("Acme Traders");
+		assertThat(repository.search("9", 10)).hasSize(2);
+		assertThat(repository.search("zed", 10)).isEmpty();
+	}
+
+	@Test
+	void reloadsWhenTheFileChanges() throws IOException {
+		Path csv = dir.resolve("contacts.csv");
+		Files.writeString(csv, HEADER + "Asha,,,,,Mobile,9876543210,,\r\n", StandardCharsets.UTF_8);
+		ContactRepository repository = new ContactRepository(csv);
+		assertThat(repository.findAll()).hasSize(1);
+
+		Files.writeString(csv, HEADER + "Asha,,,,,Mobile,9876543210,,\r\nRavi,,,,,Mobile,9123456789,,\r\n",
+				StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(csv, FileTime.from(Instant.now().plusSeconds(5)));
+		assertThat(repository.findAll()).extracting(Contact::getName).containsExactly("Asha", "Ravi");
+	}
+}
@@ -0,0 +1,101 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import third.party.communication.whatsapp.dto.DeliveryStatsResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryStatsServiceTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void replaysHistoryAndFollowsNewRecords() throws IOException {
+		LocalDateTime now = LocalDateTime.now().withNano(0);
+		String today = now.format(HistoryRecord.TIMESTAMP_FORMAT);
+		String lastWeek = now.minusDays(7).format(HistoryRecord.TIMESTAMP_FORMAT);
+		Path log = dir.resolve("history.log");
+		Files.writeString(log, lastWeek + " | 919800000001 | Invalid Number | Hi\n"
+				+ today + " | 919800000001 | Success | Hi | there\n"
+				+ today + " | 919800000002 | Chat Not Ready | N/A\n"
+				+ "garbage line\n", StandardCharsets.UTF_8);
+
+		DeliveryStatsService stats = new DeliveryStatsService(log, null, null, new NumberNormalizer("91"), 48, 31);
+		stats.load();
+		stats.onRecord(HistoryRecord.of("919800000002", "Success", "Hi"));
+
+		DeliveryStatsResponse response = stats.snapshot("919800000002");
+		assertThat(response.getTotals()).containsEntry("Success", 2L)
+				.containsEntry("Invalid Number", 1L)
+				.containsEntry("Chat Not Ready", 1L);
+		assertThat(response.getToday()).containsEntry("Success", 2L)
+				.doesNotContainKey("Invalid Number");
+		assertThat(response.getTrackedNumbers()).isEqualTo(2);
+		assertThat(response.getLastStatus().getStatus()).isEqualTo("Success");
+		assertThat(stats.snapshot("919800000001").getLastStatus().getTimestamp()).isEqualTo(today);
+		assertThat(stats.snapshot("919899999999").getLastStatus()).isNull();
+	}
+
+	@Test
+	void countsLegacyNationalNumbersAsTheSameContact() throws IOException {
+		String yesterday = LocalDateTime.now().minusDays(1).withNano(0).format(HistoryRecord.TIMESTAMP_FORMAT);
+		Path log = dir.resolve("history.log");
+		Files.writeString(log, yesterday + " | 8467918952 | Invalid Number | N/A\n", StandardCharsets.UTF_8);
+
+		DeliveryStatsService stats = new DeliveryStatsService(log, null, null, new NumberNormalizer("91"), 48, 31);
+		stats.load();
+		stats.onRecord(HistoryRecord.of("918467918952", "Success", "Hi"));
+
+		DeliveryStatsResponse response = stats.snapshot("8467918952");
+		assertThat(response.getTrackedNumbers()).isEqualTo(1);
+		assertThat(response.getLastStatus().getNumber()).isEqualTo("918467918952");
+		assertThat(response.getLastStatus().getStatus()).isEqualTo("Success");
+	}
+
+	@Test
+	void replaysArchivedAndRotatedHistoryBeforeTheLiveLog() throws IOException {
+		LocalDateTime now = LocalDateTime.now().withNano(0);
+		Path log = dir.resolve("history.log");
+		HistoryArchive archive = new HistoryArchive(log, null, true);
+		archive.archive(Files.writeString(dir.resolve("history-20250101-000000.log"),
+				now.minusDays(3).format(HistoryRecord.TIMESTAMP_FORMAT) + " | 919800000001 | Success | Hi\n"
+						+ now.minusDays(3).format(HistoryRecord.TIMESTAMP_FORMAT) + " | 919800000002 | Success | Hi\n",
+				StandardCharsets.UTF_8));
+		Files.writeString(dir.resolve("history-20250102-000000.log"),
+				now.minusDays(2).format(HistoryRecord.TIMESTAMP_FORMAT) + " | 919800000001 | Invalid Number | Hi\n",
+				StandardCharsets.UTF_8);
+		Files.writeString(log, now.format(HistoryRecord.TIMESTAMP_FORMAT) + " | 919800000003 | Success | Hi\n",
+				StandardCharsets.UTF_8);
+
+		DeliveryStatsService stats = new DeliveryStatsService(log, null, archive, new NumberNormalizer("91"), 48, 31);
+		stats.load();
+
+		DeliveryStatsResponse response = stats.snapshot("919800000001");
+		assertThat(response.getTotals()).containsEntry("Success", 3L).containsEntry("Invalid Number", 1L);
+		assertThat(response.getTrackedNumbers()).isEqualTo(3);
+		assertThat(response.getLastStatus().getStatus()).isEqualTo("Invalid Number");
+	}
+
+	@Test
+	void longMapSurvivesGrowthAndRemoval() {
+		LongLongHashMap map = new LongLongHashMap(4);
+		for (long i = 1; i <= 10_000; i++) {
+			map.put(i * 31, i, -1);
+		}
+		for (long i = 1; i <= 10_000; i += 2) {
+			assertThat(map.remove(i * 31, -1)).isEqualTo(i);
+		}
+		assertThat(map.size()).isEqualTo(5_000);
+		for (long i = 1; i <= 10_000; i++) {
+			assertThat(map.get(i * 31, -1)).isEqualTo(i % 2 == 0 ? i : -1);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class HistoryArchiveTests {
+
+	private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void rotatedLogBecomesASmallSegmentWithTheSameEntries() throws IOException {
+		Path rotated = dir.resolve("history-20240301-090000.log");
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			// Every 7th line a second early, as when concurrent jobs append out of order
+			LocalDateTime time = START.plusSeconds(i * 3L - (i % 7 == 0 ? 1 : 0));
+			String number = switch (i % 3) {
+				case 0 -> "+4915" + (100_000_000 + i);
+				case 1 -> Long.toString(9_000_000_000L + i);
+				default -> "group-" + i;
+			};
+			lines.add(time.format(HistoryRecord.TIMESTAMP_FORMAT) + " | " + number + " | "
+					+ (i % 10 == 0 ? "Invalid Number" : "Success") + " | Hello 👋 campaign " + (i % 4));
+		}
+		List<String> written = new ArrayList<>(lines);
+		written.add(5_000, "not a history line");
+		Files.write(rotated, written, StandardCharsets.UTF_8);
+		long textBytes = Files.size(rotated);
+		HistoryArchive archive = new HistoryArchive(dir.resolve("history.log"), null, true);
+
+		HistorySegment segment = archive.archive(rotated);
+
+		assertThat(rotated).doesNotExist();
+		assertThat(archive.segments()).containsExactly(segment);
+		assertThat(segment.records()).isEqualTo(10_000);
+		assertThat(segment.blocks()).hasSize(3);
+		assertThat(Files.size(segment.file())).isLessThan(textBytes / 10);
+		assertThat(readAll(segment)).isEqualTo(lines);
+		assertThat(readAll(HistorySegment.open(segment.file()))).isEqualTo(lines);
+	}
+
+	@Test
+	void loadOpensSegmentsAndConvertsLeftoverRotatedLogs() throws IOException {
+		HistoryArchive first = new HistoryArchive(dir.resolve("history.log"), null, true);
+		first.archive(writeLog("history-20240301-090000.log", START, 100));
+		Path leftover = writeLog("history-20240302-090000.log", START.plusDays(1), 50);
+
+		HistoryArchive archive = new HistoryArchive(dir.resolve("history.log"), null, true);
+		archive.load();
+		try {
+			await().atMost(Duration.ofSeconds(5)).until(() -> archive.segments().size() == 2);
+
+			assertThat(leftover).doesNotExist();
+			assertThat(archive.segments()).extracting(HistorySegment::name)
+					.containsExactly("history-20240302-090000", "history-20240301-090000");
+			assertThat(archive.find("history-20240301-090000")).get().extracting(HistorySegment::records).isEqualTo(100);
+		} finally {
+			archive.shutdown();
+		}
+	}
+
+	@Test
+	void numbersThatDoNotFitALongAreKeptAsText() {
+		assertThat(HistorySegment.numberFromCode(HistorySegment.numberCode("+491701234567"))).isEqualTo("+491701234567");
+		assertThat(HistorySegment.numberFromCode(HistorySegment.numberCode("918888888888"))).isEqualTo("918888888888");
+		assertThat(HistorySegment.numberCode("0170123")).isZero();
+		assertThat(HistorySegment.numberCode("1234567890123456789")).isZero();
+		assertThat(HistorySegment.numberCode("+")).isZero();
+	}
+
+	private Path writeLog(String name, LocalDateTime start, int lines) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			sb.append(start.plusMinutes(i).format(HistoryRecord.TIMESTAMP_FORMAT))
+					.append(" | ").append(9_000_000_000L + i).append(" | Success | Hi\n");
+		}
+		return Files.writeString(dir.resolve(name), sb, StandardCharsets.UTF_8);
+	}
+
+	private static List<String> readAll(HistorySegment segment) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (HistorySegment.Block block : segment.blocks()) {
+			for (HistoryRecord record : segment.read(block)) {
+				StringBuilder sb = new StringBuilder();
+				record.appendTo(sb);
+				lines.add(sb.toString());
+			}
+		}
+		return lines;
+	}
+}
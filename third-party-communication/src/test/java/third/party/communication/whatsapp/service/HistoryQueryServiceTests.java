@@ -0,0 +1,146 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import third.party.communication.whatsapp.dto.HistoryEntry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryQueryServiceTests {
+
+	private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+	private static final int LINES = 20_000;
+
+	@TempDir
+	Path dir;
+
+	private HistoryQueryService service;
+
+	@BeforeEach
+	void writeLog() throws IOException {
+		Path log = dir.resolve("history.log");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			sb.append(START.plusMinutes(i).format(HistoryRecord.TIMESTAMP_FORMAT))
+					.append(" | ").append(9_000_000_000L + i)
+					.append(" | ").append(i % 10 == 0 ? "Invalid Number" : "Success")
+					.append(" | Hello 👋 campaign\n");
+		}
+		Files.writeString(log, sb, StandardCharsets.UTF_8);
+		service = new HistoryQueryService(log, null, new NumberNormalizer("91"));
+	}
+
+	@Test
+	void pagesBackwardsThroughWholeFileWithCursor() throws IOException {
+		List<HistoryEntry> all = new ArrayList<>();
+		String cursor = null;
+		do {
+			HistoryQueryService.Page page = service.query(HistoryQueryService.Filter.NONE, cursor, 777);
+			all.addAll(page.entries());
+			cursor = page.nextCursor();
+		} while (cursor != null);
+
+		assertThat(all).hasSize(LINES);
+		assertThat(all.get(0).getNumber()).isEqualTo(Long.toString(9_000_000_000L + LINES - 1));
+		assertThat(all.get(LINES - 1).getNumber()).isEqualTo("9000000000");
+		assertThat(all.get(0).getMessage()).isEqualTo("Hello 👋 campaign");
+	}
+
+	@Test
+	void filtersByStatusAndTimeRange() throws IOException {
+		HistoryQueryService.Filter filter = new HistoryQueryService.Filter(null, "invalid number",
+				START.plusMinutes(100), START.plusMinutes(15_000));
+
+		HistoryQueryService.Page page = service.query(filter, null, 10_000);
+
+		assertThat(page.entries()).hasSize(1491);
+		assertThat(page.entries().get(0).getTimestamp()).isEqualTo(START.plusMinutes(15_000).format(HistoryRecord.TIMESTAMP_FORMAT));
+		assertThat(page.entries()).allMatch(e -> e.getStatus().equals("Invalid Number"));
+		assertThat(page.nextCursor()).isNull();
+	}
+
+	@Test
+	void pagesOnIntoArchivedSegmentsAndRangeQueriesSpanBoth() throws IOException {
+		// Two rotated files before the 20,000 lines of history.log, one minute apart throughout
+		HistoryArchive archive = new HistoryArchive(dir.resolve("history.log"), null, true);
+		archive.archive(writeRotated("history-20241215-000000.log", START.minusMinutes(20_000), 10_000));
+		archive.archive(writeRotated("history-20241222-000000.log", START.minusMinutes(10_000), 10_000));
+		service = new HistoryQueryService(dir.resolve("history.log"), archive, new NumberNormalizer("91"));
+
+		List<HistoryEntry> all = new ArrayList<>();
+		String cursor = null;
+		do {
+			HistoryQueryService.Page page = service.query(HistoryQueryService.Filter.NONE, cursor, 3_333);
+			all.addAll(page.entries());
+			cursor = page.nextCursor();
+		} while (cursor != null);
+
+		assertThat(all).hasSize(LINES + 20_000);
+		for (int i = 1; i < all.size(); i++) {
+			assertThat(all.get(i).getTimestamp()).isLessThan(all.get(i - 1).getTimestamp());
+		}
+		assertThat(all.get(all.size() - 1).getTimestamp()).isEqualTo(START.minusMinutes(20_000).format(HistoryRecord.TIMESTAMP_FORMAT));
+
+		HistoryQueryService.Filter acrossBoundary = new HistoryQueryService.Filter(null, "INVALID NUMBER",
+				START.minusMinutes(15_000), START.plusMinutes(99));
+		HistoryQueryService.Page page = service.query(acrossBoundary, null, 10_000);
+		assertThat(page.entries()).hasSize(10 + 1_500);
+		assertThat(page.entries().get(page.entries().size() - 1).getTimestamp())
+				.isEqualTo(START.minusMinutes(15_000).format(HistoryRecord.TIMESTAMP_FORMAT));
+		assertThat(page.nextCursor()).isNull();
+	}
+
+	@Test
+	void findsNationalFormatLinesByTheirE164Number() throws IOException {
+		HistoryQueryService.Filter filter = new HistoryQueryService.Filter("+91 90000 00042", null, null, null);
+
+		HistoryQueryService.Page page = service.query(filter, null, 10);
+
+		assertThat(page.entries()).extracting(HistoryEntry::getNumber).containsExactly("9000000042");
+	}
+
+	@Test
+	void rebuildsIndexAndRejectsCursorsAfterRotation() throws IOException {
+		Path log = dir.resolve("history.log");
+		HistoryQueryService.Filter upToStart = new HistoryQueryService.Filter(null, null, null, START.minusMinutes(1));
+		assertThat(service.query(upToStart, null, 10).entries()).isEmpty();
+		String cursor = service.query(HistoryQueryService.Filter.NONE, null, 10).nextCursor();
+
+		// A larger, older file takes history.log's place, so stale offsets would skip most of it
+		Files.move(log, dir.resolve("history-20250115-000000.log"));
+		Files.move(writeRotated("next.log", START.minusMinutes(30_000), 30_000), log, StandardCopyOption.ATOMIC_MOVE);
+
+		assertThat(service.query(upToStart, null, 50_000).entries()).hasSize(30_000);
+		assertThatThrownBy(() -> service.query(HistoryQueryService.Filter.NONE, cursor, 10))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void parsesMessageContainingSeparator() {
+		HistoryEntry entry = HistoryQueryService.parseLine("2025-01-01 00:00:00 | 91 | Success | a | b");
+
+		assertThat(entry.getMessage()).isEqualTo("a | b");
+	}
+
+	private Path writeRotated(String name, LocalDateTime start, int lines) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			sb.append(start.plusMinutes(i).format(HistoryRecord.TIMESTAMP_FORMAT))
+					.append(" | ").append(8_000_000_000L + i)
+					.append(" | ").append(i % 10 == 0 ? "Invalid Number" : "Success")
+					.append(" | Hello 👋 campaign\n");
+		}
+		return Files.writeString(dir.resolve(name), sb, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,72 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class HistoryWriterTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void flushesQueuedEntriesOnShutdown() throws IOException {
+		Path log = dir.resolve("history.log");
+		HistoryWriter writer = new HistoryWriter(log, HistoryWriter.FsyncPolicy.BATCH, 1000, 0, false);
+		writer.start();
+
+		for (int i = 0; i < 1000; i++) {
+			writer.append(HistoryRecord.of("9100000" + i, "Success", "Hello\nthere"));
+		}
+		writer.shutdown();
+
+		List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+		assertThat(lines).hasSize(1000);
+		assertThat(lines.get(0)).endsWith(" | 91000000 | Success | Hello there");
+	}
+
+	@Test
+	void rotatesWhenFileExceedsMaxSize() throws IOException {
+		Path log = dir.resolve("history.log");
+		Files.writeString(log, "x".repeat(200));
+		HistoryWriter writer = new HistoryWriter(log, HistoryWriter.FsyncPolicy.NONE, 1000, 100, false);
+		writer.start();
+
+		writer.append(HistoryRecord.of("9100000", "Success", "after rotation"));
+		writer.shutdown();
+
+		try (Stream<Path> files = Files.list(dir)) {
+			assertThat(files.map(p -> p.getFileName().toString())).hasSize(2).anyMatch(name -> name.startsWith("history-"));
+		}
+		assertThat(Files.readString(log)).contains("after rotation");
+	}
+
+	@Test
+	void rotatesTwiceWithinTheSameSecondWithoutLosingEntries() throws IOException {
+		Path log = dir.resolve("history.log");
+		Files.writeString(log, "x".repeat(200));
+		HistoryWriter writer = new HistoryWriter(log, HistoryWriter.FsyncPolicy.NONE, 1000, 10, false);
+		writer.start();
+
+		writer.append(HistoryRecord.of("9100001", "Success", "first"));
+		await().atMost(Duration.ofSeconds(5)).until(() -> Files.readString(log).contains("first"));
+		writer.append(HistoryRecord.of("9100002", "Success", "second"));
+		writer.shutdown();
+
+		try (Stream<Path> files = Files.list(dir)) {
+			assertThat(files.map(p -> p.getFileName().toString())).hasSize(3);
+		}
+		assertThat(Files.readString(log)).contains("second");
+	}
+
+}
@@ -0,0 +1,129 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class InvalidNumberCacheTests {
+
+	@TempDir
+	Path dir;
+
+	private InvalidNumberCache newCache(int maxEntries) {
+		InvalidNumberCache cache = new InvalidNumberCache(dir.resolve("invalid-numbers.cache"), dir.resolve("history.log"),
+				null, null, new NumberNormalizer("91"), Duration.ofDays(30), Duration.ofHours(24), maxEntries, 0);
+		cache.load();
+		return cache;
+	}
+
+	@Test
+	void seedsFromHistoryAndHonoursTtl() throws IOException {
+		LocalDateTime now = LocalDateTime.now();
+		Files.writeString(dir.resolve("history.log"),
+				line(now.minusDays(40), "911111111111", "Invalid Number")
+						+ line(now.minusDays(2), "912222222222", "Invalid Number")
+						+ line(now.minusDays(2), "913333333333", "Chat Not Ready")
+						+ line(now.minusHours(1), "914444444444", "Chat Not Ready")
+						+ line(now.minusHours(2), "915555555555", "Invalid Number")
+						+ line(now.minusHours(1), "915555555555", "Success"),
+				StandardCharsets.UTF_8);
+
+		InvalidNumberCache cache = newCache(100);
+
+		assertThat(cache.check("911111111111")).isNull();
+		assertThat(cache.check("912222222222").status()).isEqualTo("Invalid Number");
+		assertThat(cache.check("913333333333")).isNull();
+		assertThat(cache.check("914444444444").hits()).isEqualTo(1);
+		assertThat(cache.check("915555555555")).isNull();
+	}
+
+	@Test
+	void matchesNationalNumbersFromOlderHistoryByE164() throws IOException {
+		LocalDateTime now = LocalDateTime.now();
+		Files.writeString(dir.resolve("history.log"),
+				line(now.minusDays(2), "8467918952", "Invalid Number")
+						+ line(now.minusDays(2), "9876543210", "Invalid Number")
+						+ line(now.minusHours(3), "7000000001", "Chat Not Ready"),
+				StandardCharsets.UTF_8);
+
+		InvalidNumberCache cache = newCache(100);
+		cache.onRecord(HistoryRecord.of("919876543210", "Success", "N/A"));
+
+		assertThat(cache.check("918467918952").number()).isEqualTo("918467918952");
+		assertThat(cache.check("919876543210")).isNull();
+		assertThat(cache.peek("7000000001").status()).isEqualTo("Chat Not Ready");
+		assertThat(cache.size()).isEqualTo(2);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedAndSurvivesRestart() {
+		InvalidNumberCache cache = newCache(2);
+		cache.onRecord(HistoryRecord.of("911111111111", "Invalid Number", "N/A"));
+		cache.onRecord(HistoryRecord.of("912222222222", "Invalid Number", "N/A"));
+		cache.check("911111111111");
+		cache.onRecord(HistoryRecord.of("913333333333", "Chat Not Ready", "Timeout"));
+		cache.onRecord(HistoryRecord.of("914444444444", "Send Fail", "N/A"));
+
+		assertThat(cache.list()).extracting(InvalidNumberCache.Entry::number)
+				.containsExactly("911111111111", "913333333333");
+		cache.save();
+
+		InvalidNumberCache reloaded = newCache(2);
+		assertThat(reloaded.peek("911111111111").hits()).isEqualTo(1);
+		assertThat(reloaded.purge("chat not ready")).isEqualTo(1);
+		assertThat(reloaded.size()).isEqualTo(1);
+	}
+
+	@Test
+	void seedsFromRotatedAndArchivedHistoryNewerThanTheSnapshot() throws IOException {
+		InvalidNumberCache before = newCache(100);
+		before.onRecord(HistoryRecord.of("911111111111", "Invalid Number", "N/A"));
+		before.save();
+
+		// Older than the snapshot, so its Success must not clear the saved entry
+		LocalDateTime now = LocalDateTime.now().withNano(0);
+		Path log = dir.resolve("history.log");
+		HistoryArchive archive = new HistoryArchive(log, null, true);
+		archive.archive(Files.writeString(dir.resolve("history-20250101-000000.log"),
+				line(now.minusDays(1), "911111111111", "Success"), StandardCharsets.UTF_8));
+		archive.archive(Files.writeString(dir.resolve("history-20250102-000000.log"),
+				line(now, "912222222222", "Invalid Number"), StandardCharsets.UTF_8));
+		Files.writeString(dir.resolve("history-20250103-000000.log"),
+				line(now, "913333333333", "Chat Not Ready"), StandardCharsets.UTF_8);
+
+		InvalidNumberCache cache = new InvalidNumberCache(dir.resolve("invalid-numbers.cache"), log, null, archive,
+				new NumberNormalizer("91"), Duration.ofDays(30), Duration.ofHours(24), 100, 0);
+		cache.load();
+
+		assertThat(cache.peek("911111111111").status()).isEqualTo("Invalid Number");
+		assertThat(cache.peek("912222222222").status()).isEqualTo("Invalid Number");
+		assertThat(cache.peek("913333333333").status()).isEqualTo("Chat Not Ready");
+	}
+
+	@Test
+	void savesPeriodically() {
+		InvalidNumberCache cache = new InvalidNumberCache(dir.resolve("invalid-numbers.cache"), dir.resolve("history.log"),
+				null, null, new NumberNormalizer("91"), Duration.ofDays(30), Duration.ofHours(24), 100, 1);
+		cache.load();
+		try {
+			cache.onRecord(HistoryRecord.of("911111111111", "Invalid Number", "N/A"));
+			await().atMost(Duration.ofSeconds(5)).until(() -> Files.exists(dir.resolve("invalid-numbers.cache")));
+			assertThat(newCache(100).peek("911111111111")).isNotNull();
+		} finally {
+			cache.shutdown();
+		}
+	}
+
+	private static String line(LocalDateTime time, String number, String status) {
+		return time.format(HistoryRecord.TIMESTAMP_FORMAT) + " | " + number + " | " + status + " | N/A\n";
+	}
+}
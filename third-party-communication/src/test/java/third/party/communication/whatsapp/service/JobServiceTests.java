@@ -0,0 +1,51 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JobServiceTests {
+
+	private final JobService jobService = new JobService(1, 1, 10);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		jobService.shutdown();
+	}
+
+	@Test
+	void rejectsWorkWhenQueueIsFull() {
+		jobService.submit(Job.Type.SEND, 1, job -> awaitRelease());
+		jobService.submit(Job.Type.SEND, 1, job -> awaitRelease());
+
+		assertThatThrownBy(() -> jobService.submit(Job.Type.SEND, 1, job -> awaitRelease()))
+				.isInstanceOf(RejectedExecutionException.class);
+	}
+
+	@Test
+	void cancellingQueuedJobDropsItImmediately() {
+		jobService.submit(Job.Type.SEND, 1, job -> awaitRelease());
+		Job queued = jobService.submit(Job.Type.SEND, 1, job -> awaitRelease());
+
+		jobService.cancel(queued.getId());
+
+		assertThat(queued.getStatus()).isEqualTo(Job.Status.CANCELLED);
+	}
+
+	private void awaitRelease() {
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
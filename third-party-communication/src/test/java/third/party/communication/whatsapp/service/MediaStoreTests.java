@@ -0,0 +1,59 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MediaStoreTests {
+
+	@TempDir
+	Path dir;
+
+	private MediaStore newStore() {
+		return new MediaStore(dir, 800, 0.8f, 1024 * 1024, 1024 * 1024, 2048);
+	}
+
+	@Test
+	void downscalesImagesAndStoresThemOncePerContent() throws IOException {
+		BufferedImage image = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_ARGB);
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", png);
+		MediaStore store = newStore();
+
+		MediaStore.MediaItem first = store.store("../../poster.png", "image/png", new ByteArrayInputStream(png.toByteArray()));
+		MediaStore.MediaItem again = store.store("copy.png", "image/png", new ByteArrayInputStream(png.toByteArray()));
+
+		assertThat(first.kind()).isEqualTo(MediaStore.Kind.IMAGE);
+		assertThat(first.fileName()).isEqualTo("poster.jpg");
+		assertThat(first.file().getParent()).isEqualTo(dir.resolve(first.id()).toAbsolutePath());
+		BufferedImage stored = ImageIO.read(first.file().toFile());
+		assertThat(stored.getWidth()).isEqualTo(800);
+		assertThat(stored.getHeight()).isEqualTo(400);
+		assertThat(again).isEqualTo(first);
+		assertThat(store.find(first.id())).contains(first);
+	}
+
+	@Test
+	void checksDocumentLimitAndUnknownIds() throws IOException {
+		MediaStore store = newStore();
+		MediaStore.MediaItem document = store.store("terms.pdf", "application/pdf",
+				new ByteArrayInputStream("%PDF-1.4".getBytes(StandardCharsets.US_ASCII)));
+
+		assertThat(document.kind()).isEqualTo(MediaStore.Kind.DOCUMENT);
+		assertThat(document.fileName()).isEqualTo("terms.pdf");
+		assertThatThrownBy(() -> store.store("big.pdf", null, new ByteArrayInputStream(new byte[4096])))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(store.find("../" + document.id().substring(3))).isEmpty();
+		assertThat(store.find("00".repeat(32))).isEmpty();
+	}
+}
@@ -0,0 +1,16 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageComposerTests {
+
+	@Test
+	void comparesEditorTextIgnoringLineLayout() {
+		assertThat(MessageComposer.sameText("Hello\n\nWorld 👋\n", "Hello\r\nWorld 👋")).isTrue();
+		assertThat(MessageComposer.sameText("Hello", "Hello\nWorld")).isFalse();
+		assertThat(MessageComposer.sameText("", "")).isTrue();
+		assertThat(MessageComposer.sameText("Hellp World", "Hello World")).isFalse();
+	}
+}
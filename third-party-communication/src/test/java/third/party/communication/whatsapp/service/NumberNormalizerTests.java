@@ -0,0 +1,46 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import third.party.communication.whatsapp.dto.RejectedNumber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class NumberNormalizerTests {
+
+	private final NumberNormalizer normalizer = new NumberNormalizer("91");
+
+	@Test
+	void normalizesToE164AndRemovesDuplicates() {
+		NumberNormalizer.Result result = normalizer.normalize(
+				"98765 43210\r\n+91-98765-43210, 09876543210;0091 9876543210\n"
+						+ "+44 (20) 7946 0958\n447946000001\n\n", null);
+
+		assertThat(result.numbers()).containsExactly("919876543210", "442079460958", "447946000001");
+		assertThat(result.duplicates()).isEqualTo(3);
+		assertThat(result.rejected()).isEmpty();
+	}
+
+	@Test
+	void usesTheRequestCountryCodeForNationalNumbers() {
+		assertThat(normalizer.normalize("2025550123\n+919876543210", "+1").numbers())
+				.containsExactly("12025550123", "919876543210");
+		assertThatIllegalArgumentException().isThrownBy(() -> normalizer.normalize("1", "9x"));
+	}
+
+	@Test
+	void mapsLoggedNationalNumbersOntoE164() {
+		assertThat(normalizer.canonical("8467918952")).isEqualTo("918467918952");
+		assertThat(normalizer.canonical(" 918467918952 ")).isEqualTo("918467918952");
+		assertThat(normalizer.canonical("N/A")).isEqualTo("N/A");
+	}
+
+	@Test
+	void reportsRejectedEntries() {
+		NumberNormalizer.Result result = normalizer.normalize("abc123\n12\n+1234567890123456\n+\n9876543210", null);
+
+		assertThat(result.numbers()).containsExactly("919876543210");
+		assertThat(result.rejected()).extracting(RejectedNumber::getInput)
+				.containsExactly("abc123", "12", "+1234567890123456", "+");
+	}
+}
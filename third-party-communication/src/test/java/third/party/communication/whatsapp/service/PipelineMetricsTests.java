@@ -0,0 +1,51 @@
+package third.party.communication.whatsapp.service;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineMetricsTests {
+
+	private final JobService jobService = new JobService(1, 1, 10);
+	private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+	private final PipelineMetrics metrics = new PipelineMetrics(registry, jobService);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		jobService.shutdown();
+	}
+
+	@Test
+	void exposesPhaseHistogramsOutcomesAndGauges() {
+		metrics.record(PipelineMetrics.Phase.CHAT_READINESS, System.nanoTime() - 40_000_000L);
+		metrics.outcome("Success");
+		metrics.outcome("Success");
+		metrics.outcome("Invalid Number");
+		metrics.driverStarted();
+		jobService.submit(Job.Type.SEND, 7, job -> awaitRelease());
+
+		String scrape = registry.scrape();
+
+		assertThat(scrape).contains("whatsapp_phase_seconds_bucket{phase=\"chat_readiness\"");
+		assertThat(scrape).containsPattern("whatsapp_phase_seconds_count\\{phase=\"chat_readiness\"} 1");
+		assertThat(scrape).containsPattern("whatsapp_outcomes_total\\{status=\"Success\"} 2");
+		assertThat(scrape).containsPattern("whatsapp_outcomes_total\\{status=\"Invalid Number\"} 1");
+		assertThat(scrape).containsPattern("whatsapp_drivers_active \\d");
+		assertThat(scrape).containsPattern("whatsapp_numbers_queued 7");
+	}
+
+	private void awaitRelease() {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
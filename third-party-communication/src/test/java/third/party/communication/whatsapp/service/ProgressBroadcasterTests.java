@@ -0,0 +1,90 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ProgressBroadcasterTests {
+
+	private final ProgressBroadcaster broadcaster = new ProgressBroadcaster(2, 1);
+
+	@AfterEach
+	void shutdown() {
+		broadcaster.shutdown();
+	}
+
+	@Test
+	void slowSubscriberLosesOldestOutcomesAndGetsLatestProgressOnly() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> events = new CopyOnWriteArrayList<>();
+		broadcaster.subscribe(new ProgressBroadcaster.Sink() {
+			@Override
+			public void outcome(HistoryRecord record) throws IOException {
+				events.add("outcome " + record.number());
+				entered.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			@Override
+			public void progress(Job job) {
+				events.add("progress " + job.getProcessed());
+			}
+
+			@Override
+			public void dropped(long count) {
+				events.add("dropped " + count);
+			}
+		}).orElseThrow();
+
+		broadcaster.onRecord(HistoryRecord.of("1", "Success", "hi"));
+		assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+		Job job = new Job(Job.Type.SEND, 10);
+		for (int i = 2; i <= 5; i++) {
+			broadcaster.onRecord(HistoryRecord.of(String.valueOf(i), "Success", "hi"));
+		}
+		for (int i = 0; i < 10; i++) {
+			job.recordResult(true);
+			broadcaster.onJobChanged(job);
+		}
+		release.countDown();
+
+		await().atMost(5, TimeUnit.SECONDS).until(() -> events.size() == 5);
+		assertThat(events).containsExactly("outcome 1", "dropped 2", "outcome 4", "outcome 5", "progress 10");
+	}
+
+	@Test
+	void failingSubscriberIsRemovedAndFreesItsSlot() {
+		broadcaster.subscribe(new ProgressBroadcaster.Sink() {
+			@Override
+			public void outcome(HistoryRecord record) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+
+			@Override
+			public void progress(Job job) {
+			}
+
+			@Override
+			public void dropped(long count) {
+			}
+		}).orElseThrow();
+		assertThat(broadcaster.subscribe(null)).isEmpty();
+
+		broadcaster.onRecord(HistoryRecord.of("1", "Success", "hi"));
+
+		await().atMost(5, TimeUnit.SECONDS).until(() -> broadcaster.subscriberCount() == 0);
+	}
+}
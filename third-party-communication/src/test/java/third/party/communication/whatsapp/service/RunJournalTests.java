@@ -0,0 +1,69 @@
+package third.party.communication.whatsapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RunJournalTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void unfinishedRunResumesWithPendingAndInterruptedNumbers() throws Exception {
+		RunJournalService service = new RunJournalService(dir, true, new ObjectMapper());
+		List<String> numbers = List.of("911111111111", "912222222222", "913333333333", "914444444444");
+		RunJournal run = service.create(RunSpec.send(RunSpec.Kind.SEND, "Hello", List.of("abc")), numbers);
+
+		assertThat(run.track("911111111111", () -> true)).isTrue();
+		run.track("912222222222", () -> false);
+		// Crash while the third number was being sent
+		try {
+			run.track("913333333333", () -> {
+				throw new IllegalStateException("browser lost");
+			});
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		run.finish(false);
+
+		List<RunJournal> unfinished = service.unfinished();
+		assertThat(unfinished).hasSize(1);
+		RunJournal resumed = unfinished.get(0);
+		assertThat(resumed.getRunId()).isEqualTo(run.getRunId());
+		assertThat(resumed.getSpec().message()).isEqualTo("Hello");
+		assertThat(resumed.getSpec().mediaIds()).containsExactly("abc");
+		assertThat(resumed.interrupted()).containsExactly("913333333333");
+		assertThat(resumed.pending(numbers)).containsExactly("914444444444");
+
+		resumed.track("914444444444", () -> true);
+		resumed.finish(true);
+		assertThat(service.unfinished()).isEmpty();
+		try (var files = Files.list(dir)) {
+			assertThat(files).isEmpty();
+		}
+	}
+
+	@Test
+	void campaignRecipientsAreReadBackWithTheirVariables() throws Exception {
+		RunJournalService service = new RunJournalService(dir, false, new ObjectMapper());
+		RunJournal run = service.create(RunSpec.send(RunSpec.Kind.CAMPAIGN, "Hi {{name}}", null), List.of());
+		run.addRecipient("911111111111", Map.of("name", "Asha\tK"));
+		run.addRecipient("912222222222", Map.of());
+		run.finish(false);
+
+		List<RecipientFeed.Recipient> recipients = new ArrayList<>();
+		service.unfinished().get(0).forEachRecipient(recipients::add);
+		assertThat(recipients).containsExactly(
+				new RecipientFeed.Recipient("911111111111", Map.of("name", "Asha\tK")),
+				new RecipientFeed.Recipient("912222222222", Map.of()));
+	}
+}
@@ -0,0 +1,40 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SendScheduleTests {
+
+	@Test
+	void windowsMayWrapPastMidnightAndUrgentIsAlwaysOpen() {
+		SendSchedule schedule = new SendSchedule(at("23:30"), "22:00-06:00", "10:00-20:00");
+
+		assertThat(schedule.isOpen(Job.Priority.URGENT)).isTrue();
+		assertThat(schedule.isOpen(Job.Priority.NORMAL)).isTrue();
+		assertThat(schedule.isOpen(Job.Priority.BULK)).isFalse();
+		assertThat(schedule.untilOpen(Job.Priority.BULK)).isEqualTo(Duration.ofMinutes(10 * 60 + 30));
+
+		SendSchedule morning = new SendSchedule(at("06:00"), "22:00-06:00", "");
+		assertThat(morning.untilOpen(Job.Priority.NORMAL)).isEqualTo(Duration.ofHours(16));
+		assertThat(morning.isOpen(Job.Priority.BULK)).isTrue();
+	}
+
+	@Test
+	void malformedWindowsAreRejected() {
+		assertThatThrownBy(() -> new SendSchedule(at("12:00"), "", "10-20"))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("10:00-20:00");
+		assertThatThrownBy(() -> new SendSchedule(at("12:00"), "09:00-09:00", ""))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static Clock at(String timeOfDay) {
+		return Clock.fixed(Instant.parse("2024-05-06T" + timeOfDay + ":00Z"), ZoneOffset.UTC);
+	}
+}
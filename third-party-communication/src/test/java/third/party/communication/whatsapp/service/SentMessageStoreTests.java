@@ -0,0 +1,60 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentMessageStoreTests {
+
+	@TempDir
+	Path dir;
+
+	private SentMessageStore newStore() {
+		SentMessageStore store = new SentMessageStore(dir.resolve("sent-messages.log"), Duration.ofHours(60));
+		store.load();
+		return store;
+	}
+
+	@Test
+	void indexesByJobAndNumberAndSurvivesRestart() {
+		SentMessageStore store = newStore();
+		Path profile = dir.resolve("whatsapp_session");
+		store.record("job-1", "911111111111", "true_911111111111@c.us_A", profile);
+		store.record("job-1", "912222222222", "true_912222222222@c.us_B", profile);
+		store.record("job-2", "911111111111", "true_911111111111@c.us_C", profile);
+		store.markDeleted("true_912222222222@c.us_B");
+
+		SentMessageStore reloaded = newStore();
+
+		assertThat(reloaded.forJob("job-1")).extracting(SentMessageStore.SentMessage::messageId)
+				.containsExactly("true_911111111111@c.us_A");
+		assertThat(reloaded.forNumber("911111111111")).extracting(SentMessageStore.SentMessage::jobId)
+				.containsExactly("job-1", "job-2");
+		assertThat(reloaded.find("true_911111111111@c.us_C").profile()).isEqualTo(profile.toString());
+		assertThat(reloaded.find("true_912222222222@c.us_B")).isNull();
+	}
+
+	@Test
+	void dropsExpiredMessagesAndCompacts() throws IOException {
+		long old = System.currentTimeMillis() - Duration.ofHours(61).toMillis();
+		long recent = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+		Files.writeString(dir.resolve("sent-messages.log"),
+				"S|job-1|911111111111|old-id|" + old + "|/tmp/a|b\n"
+						+ "S|job-1|911111111111|new-id|" + recent + "|/tmp/a|b\n"
+						+ "garbage\n",
+				StandardCharsets.UTF_8);
+
+		SentMessageStore store = newStore();
+
+		assertThat(store.size()).isEqualTo(1);
+		assertThat(store.find("new-id").profile()).isEqualTo("/tmp/a|b");
+		assertThat(Files.readAllLines(dir.resolve("sent-messages.log"))).hasSize(1);
+	}
+}
@@ -0,0 +1,248 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriverException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionLeaseManagerTests {
+
+	private static final Path PROFILE = Path.of("profile-0");
+
+	private final AtomicInteger borrowed = new AtomicInteger();
+	private final AtomicInteger broken = new AtomicInteger();
+	private final SessionLeaseManager manager = manager("12:00");
+
+	@AfterEach
+	void shutdown() {
+		manager.shutdown();
+	}
+
+	@Test
+	void overlappingJobsShareOneSessionInTurn() throws Exception {
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch secondJoined = new CountDownLatch(1);
+		Job first = new Job(Job.Type.SEND, 3);
+		Job second = new Job(Job.Type.DELETE, 2);
+
+		CompletableFuture<Integer> firstLease = manager.lease(PROFILE, first, 0, source("a1", "a2", "a3"), (session, item) -> {
+			if (item.equals("a1")) {
+				await(secondJoined);
+			}
+			order.add(item);
+			return true;
+		});
+		CompletableFuture<Integer> secondLease = manager.lease(PROFILE, second, 0, source("b1", "b2"), (session, item) -> {
+			order.add(item);
+			return !item.equals("b2");
+		});
+		secondJoined.countDown();
+
+		assertThat(firstLease.get(5, TimeUnit.SECONDS)).isEqualTo(3);
+		assertThat(secondLease.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+		assertThat(order).containsExactly("a1", "b1", "a2", "b2", "a3");
+		assertThat(borrowed).hasValue(1);
+		assertThat(second.getSucceeded()).isEqualTo(1);
+		assertThat(second.getFailed()).isEqualTo(1);
+	}
+
+	@Test
+	void lostBrowserRetriesTheItemOnAFreshSessionThenGivesUp() throws Exception {
+		Job job = new Job(Job.Type.SEND, 2);
+		SessionLeaseManager.WorkSource<String> work = source("ok", "crash");
+
+		CompletableFuture<Integer> lease = manager.lease(PROFILE, job, 0, work, (session, item) -> {
+			if (item.equals("crash")) {
+				throw new WebDriverException("chrome not reachable");
+			}
+			return true;
+		});
+
+		assertThat(lease.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+		// One session per attempt: the first plus two restarts
+		assertThat(borrowed).hasValue(3);
+		assertThat(broken).hasValue(3);
+		assertThat(work.remaining()).isEqualTo(1);
+	}
+
+	@Test
+	void givingUpOnAJobThatKeepsLosingTheBrowserLeavesTheOtherJobsRunning() throws Exception {
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch otherJoined = new CountDownLatch(1);
+		SessionLeaseManager.WorkSource<String> failing = source("x1", "crash");
+
+		CompletableFuture<Integer> failingLease = manager.lease(PROFILE, new Job(Job.Type.SEND, 2), 0, failing, (session, item) -> {
+			if (item.equals("crash")) {
+				throw new WebDriverException("chrome not reachable");
+			}
+			await(otherJoined);
+			order.add(item);
+			return true;
+		});
+		CompletableFuture<Integer> otherLease = manager.lease(PROFILE, new Job(Job.Type.SEND, 3), 0,
+				source("b1", "b2", "b3"), recordTo(order));
+		otherJoined.countDown();
+
+		assertThat(failingLease.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+		assertThat(otherLease.get(5, TimeUnit.SECONDS)).isEqualTo(3);
+		assertThat(order).containsExactly("x1", "b1", "b2", "b3");
+		assertThat(failing.remaining()).isEqualTo(1);
+		assertThat(broken).hasValue(3);
+	}
+
+	@Test
+	void urgentAndNormalJobsGoOutBetweenRecipientsOfABulkJob() throws Exception {
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch campaignSending = new CountDownLatch(1);
+		CountDownLatch othersJoined = new CountDownLatch(1);
+		Job campaign = new Job(Job.Type.SEND, 3, Job.Priority.BULK, "marketing");
+
+		CompletableFuture<Integer> campaignLease = manager.lease(PROFILE, campaign, 0, source("c1", "c2", "c3"), (session, item) -> {
+			if (item.equals("c1")) {
+				campaignSending.countDown();
+				await(othersJoined);
+			}
+			order.add(item);
+			return true;
+		});
+		await(campaignSending);
+		CompletableFuture<Integer> normalLease = manager.lease(PROFILE, new Job(Job.Type.SEND, 1, Job.Priority.NORMAL, "ops"),
+				0, source("n1"), recordTo(order));
+		CompletableFuture<Integer> urgentLease = manager.lease(PROFILE, new Job(Job.Type.SEND, 1, Job.Priority.URGENT, "support"),
+				0, source("u1"), recordTo(order));
+		othersJoined.countDown();
+
+		CompletableFuture.allOf(campaignLease, normalLease, urgentLease).get(5, TimeUnit.SECONDS);
+		assertThat(order).containsExactly("c1", "u1", "n1", "c2", "c3");
+		assertThat(borrowed).hasValue(1);
+	}
+
+	@Test
+	void submittersShareTheSessionEvenlyWhateverTheirNumberOfJobs() throws Exception {
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch othersJoined = new CountDownLatch(1);
+
+		CompletableFuture<Integer> first = manager.lease(PROFILE, new Job(Job.Type.SEND, 3, Job.Priority.NORMAL, "alice"), 0,
+				source("a1", "a2", "a3"), (session, item) -> {
+					if (item.equals("a1")) {
+						await(othersJoined);
+					}
+					order.add(item);
+					return true;
+				});
+		CompletableFuture<Integer> second = manager.lease(PROFILE, new Job(Job.Type.SEND, 2, Job.Priority.NORMAL, "alice"), 0,
+				source("A1", "A2"), recordTo(order));
+		CompletableFuture<Integer> third = manager.lease(PROFILE, new Job(Job.Type.SEND, 3, Job.Priority.NORMAL, "bob"), 0,
+				source("b1", "b2", "b3"), recordTo(order));
+		othersJoined.countDown();
+
+		CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+		assertThat(order).containsExactly("a1", "b1", "A1", "b2", "a2", "b3", "A2", "a3");
+	}
+
+	@Test
+	void jobsOutsideTheirWindowWaitWithoutHoldingTheBrowser() throws Exception {
+		SessionLeaseManager evening = manager("21:00");
+		try {
+			List<String> order = new CopyOnWriteArrayList<>();
+			Job campaign = new Job(Job.Type.SEND, 2, Job.Priority.BULK, "marketing");
+
+			CompletableFuture<Integer> campaignLease = evening.lease(PROFILE, campaign, 0, source("c1", "c2"), recordTo(order));
+			CompletableFuture<Integer> urgentLease = evening.lease(PROFILE, new Job(Job.Type.SEND, 1, Job.Priority.URGENT, "support"),
+					0, source("u1"), recordTo(order));
+
+			assertThat(urgentLease.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+			assertThat(campaignLease).isNotDone();
+
+			// A paused job can still be cancelled
+			campaign.requestCancel();
+			assertThat(campaignLease.get(10, TimeUnit.SECONDS)).isZero();
+			assertThat(order).containsExactly("u1");
+			assertThat(borrowed).hasValue(1);
+		} finally {
+			evening.shutdown();
+		}
+	}
+
+	private SessionLeaseManager manager(String timeOfDay) {
+		Clock clock = Clock.fixed(Instant.parse("2024-05-06T" + timeOfDay + ":00Z"), ZoneOffset.UTC);
+		return new SessionLeaseManager(new SessionLeaseManager.SessionSource() {
+			@Override
+			public WhatsappSession borrow(Path profileDir, Duration timeout) {
+				borrowed.incrementAndGet();
+				return new WhatsappSession(null, profileDir);
+			}
+
+			@Override
+			public void release(WhatsappSession session, boolean wasBroken) {
+				if (wasBroken) {
+					broken.incrementAndGet();
+				}
+			}
+		}, unlimitedPacer(), new SendSchedule(clock, "", "10:00-20:00"), 2, Duration.ofSeconds(5));
+	}
+
+	private static SessionLeaseManager.ItemTask<String> recordTo(List<String> order) {
+		return (session, item) -> {
+			order.add(item);
+			return true;
+		};
+	}
+
+	private static SessionLeaseManager.WorkSource<String> source(String... items) {
+		Deque<String> queue = new ArrayDeque<>(List.of(items));
+		return new SessionLeaseManager.WorkSource<>() {
+			@Override
+			public synchronized String poll(int shard) {
+				return queue.pollFirst();
+			}
+
+			@Override
+			public synchronized void pushBack(int shard, String item) {
+				queue.addFirst(item);
+			}
+
+			@Override
+			public synchronized boolean hasWork() {
+				return !queue.isEmpty();
+			}
+
+			@Override
+			public synchronized int remaining() {
+				return queue.size();
+			}
+		};
+	}
+
+	private static SendPacer unlimitedPacer() {
+		SendPacer pacer = new SendPacer();
+		ReflectionTestUtils.setField(pacer, "ratePerMinute", 1_000_000.0);
+		ReflectionTestUtils.setField(pacer, "burst", 1_000);
+		return pacer;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
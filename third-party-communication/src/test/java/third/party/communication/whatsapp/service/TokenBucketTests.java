@@ -0,0 +1,22 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+	@Test
+	void allowsBurstThenSpacesOutAtRefillRate() {
+		TokenBucket bucket = new TokenBucket(2, 60);
+
+		assertThat(bucket.tryAcquire()).isZero();
+		assertThat(bucket.tryAcquire()).isZero();
+
+		long waitNanos = bucket.tryAcquire();
+		assertThat(waitNanos).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+	}
+
+}
@@ -0,0 +1,204 @@
+package third.party.communication.whatsapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends and deletes through the real pipeline (session pool, send engine, pacing, history) in
+ * headless Chrome against {@link WhatsappWebStandIn}, and prints messages per second and the
+ * per-phase latencies from {@link PipelineMetrics}. Needs Chrome, so it only runs on request:
+ * <pre>
+ * ./mvnw test -Dtest=WhatsappLoadTests -Dloadtest.browser=true [-Dloadtest.numbers=200 -Dloadtest.profiles=2
+ *     -Dloadtest.chat-latency-ms=300 -Dloadtest.confirm-latency-ms=200 -Dloadtest.invalid-percent=5
+ *     -Dloadtest.unconfirmed-percent=2 -Dloadtest.automation=CDP -Dbenchmark.browser.no-sandbox=true]
+ * </pre>
+ * Run it once with {@code -Dloadtest.automation=WEBDRIVER} (the default) and once with {@code CDP}
+ * to compare the two transports phase by phase.
+ * History and sent-message ids are written to the working directory as in a normal run.
+ */
+@SpringBootTest
+class WhatsappLoadTests {
+
+	private static final WhatsappWebStandIn STAND_IN = startStandIn();
+	private static final String MESSAGE = "Load test message with enough text to look like a real campaign line.";
+
+	@Autowired
+	private WhatsappService whatsappService;
+	@Autowired
+	private RunJournalService runJournalService;
+	@Autowired
+	private SentMessageStore sentMessageStore;
+	@Autowired
+	private MeterRegistry meterRegistry;
+	@Autowired
+	private BrowserAutomation automation;
+
+	@DynamicPropertySource
+	static void pointAtStandIn(DynamicPropertyRegistry registry) throws IOException {
+		Path dir = Files.createTempDirectory("whatsapp-load");
+		List<String> profiles = new ArrayList<>();
+		for (int i = 0; i < Integer.getInteger("loadtest.profiles", 1); i++) {
+			profiles.add(dir.resolve("profile-" + i).toString());
+		}
+		registry.add("whatsapp.web.base-url", STAND_IN::baseUrl);
+		registry.add("whatsapp.session.profiles", () -> String.join(",", profiles));
+		registry.add("whatsapp.browser.mode", () -> "HEADLESS");
+		registry.add("whatsapp.browser.no-sandbox", () -> Boolean.getBoolean("benchmark.browser.no-sandbox"));
+		registry.add("whatsapp.browser.automation", () -> System.getProperty("loadtest.automation", "WEBDRIVER"));
+		registry.add("whatsapp.send.rate-per-minute", () -> 1_000_000);
+		registry.add("whatsapp.send.burst", () -> 1_000);
+		registry.add("whatsapp.send.confirm-timeout-seconds", () -> 5);
+		registry.add("whatsapp.runs.dir", () -> dir.resolve("runs").toString());
+		registry.add("whatsapp.runs.resume-on-startup", () -> false);
+	}
+
+	@AfterAll
+	static void stopStandIn() {
+		STAND_IN.close();
+	}
+
+	@Test
+	void standInServesTheMarkupThePipelineDependsOn() throws Exception {
+		HttpClient client = HttpClient.newHttpClient();
+		String chat = client.send(HttpRequest.newBuilder(URI.create(STAND_IN.baseUrl() + "/send/?phone=911234567890&text=")).build(),
+				HttpResponse.BodyHandlers.ofString()).body();
+		assertThat(chat).contains("id=\"pane-side\"", "data-lexical-editor", "popup-controls-ok", "data-icon=\"clip\"",
+				"message-out", "menu-down", "message-menu-delete", "popup-controls-delete-for-everyone",
+				"accept=\"image/*,video/mp4,video/3gpp,video/quicktime\"");
+
+		String bubbles = client.send(HttpRequest.newBuilder(URI.create(STAND_IN.baseUrl() + "/api/send?phone=911234567890&files=2"))
+				.POST(HttpRequest.BodyPublishers.ofString("Hi \"there\"")).build(), HttpResponse.BodyHandlers.ofString()).body();
+		assertThat(bubbles).startsWith("[[\"true_911234567890@c.us_").contains("\"Hi \\\"there\\\"\"");
+		assertThat(STAND_IN.messagesTo("911234567890")).hasSize(2);
+		assertThat(STAND_IN.isInvalid("911234567899")).isFalse();
+
+		// As Chrome's proxy, the stand-in takes uploads meant for WhatsApp's media host
+		HttpClient proxied = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).proxy(ProxySelector.of(
+				new InetSocketAddress("127.0.0.1", URI.create(STAND_IN.baseUrl()).getPort()))).build();
+		HttpResponse<Void> upload = proxied.send(HttpRequest.newBuilder(URI.create("http://mmg.whatsapp.net/upload?phone=911234567890&files=1"))
+				.POST(HttpRequest.BodyPublishers.ofString("media")).build(), HttpResponse.BodyHandlers.discarding());
+		assertThat(upload.statusCode()).isEqualTo(204);
+		assertThat(upload.headers().firstValue("Access-Control-Allow-Origin")).hasValue("*");
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "loadtest.browser", matches = "true")
+	void sendAndDeleteAgainstStandIn() throws Exception {
+		STAND_IN.setSettings(new WhatsappWebStandIn.Settings(
+				Long.getLong("loadtest.chat-latency-ms", 300), Long.getLong("loadtest.confirm-latency-ms", 200),
+				Integer.getInteger("loadtest.invalid-percent", 5), Integer.getInteger("loadtest.unconfirmed-percent", 2)));
+		int count = Integer.getInteger("loadtest.numbers", 100);
+		List<String> numbers = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			numbers.add(Long.toString(919_000_000_000L + i * 7_919L));
+		}
+		long invalid = numbers.stream().filter(STAND_IN::isInvalid).count();
+
+		Job send = new Job(Job.Type.SEND, count);
+		long start = System.nanoTime();
+		whatsappService.runSeleniumLogic(send, MESSAGE, numbers, List.of(),
+				runJournalService.create(RunSpec.send(RunSpec.Kind.SEND, MESSAGE, List.of()), numbers));
+		double sendSeconds = (System.nanoTime() - start) / 1e9;
+
+		List<SentMessageStore.SentMessage> sent = sentMessageStore.forJob(send.getId());
+		Job delete = new Job(Job.Type.DELETE, sent.size());
+		start = System.nanoTime();
+		whatsappService.runSeleniumDeleteSentLogic(delete, sent,
+				runJournalService.create(RunSpec.deleteSent(send.getId()), List.of()));
+		double deleteSeconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println();
+		System.out.printf("automation: %s%n", System.getProperty("loadtest.automation", "WEBDRIVER"));
+		System.out.printf("sent %d of %d (%d invalid) in %.1f s: %.2f messages/s%n",
+				send.getSucceeded(), count, invalid, sendSeconds, send.getSucceeded() / sendSeconds);
+		System.out.printf("deleted %d of %d in %.1f s: %.2f deletes/s%n",
+				STAND_IN.deletedCount(), sent.size(), deleteSeconds, STAND_IN.deletedCount() / deleteSeconds);
+		System.out.printf("%-18s %8s %10s %10s %10s%n", "phase", "count", "mean ms", "p99 ms", "max ms");
+		for (PipelineMetrics.Phase phase : PipelineMetrics.Phase.values()) {
+			Timer timer = meterRegistry.find("whatsapp.phase").tag("phase", phase.name().toLowerCase()).timer();
+			if (timer != null && timer.count() > 0) {
+				HistogramSnapshot snapshot = timer.takeSnapshot();
+				System.out.printf("%-18s %8d %10.1f %10.1f %10.1f%n", phase.name().toLowerCase(), timer.count(),
+						timer.mean(TimeUnit.MILLISECONDS), p99Millis(snapshot), timer.max(TimeUnit.MILLISECONDS));
+			}
+		}
+
+		assertThat(send.getProcessed()).isEqualTo(count);
+		assertThat(STAND_IN.sentCount()).isGreaterThanOrEqualTo(send.getSucceeded());
+		assertThat(send.getSucceeded()).isLessThanOrEqualTo(count - (int) invalid);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "loadtest.browser", matches = "true")
+	void trimmedProfileStillSendsAnAttachment() throws Exception {
+		// The upload goes to WhatsApp's real media host, which Chrome reaches through the stand-in as its proxy
+		STAND_IN.setSettings(WhatsappWebStandIn.Settings.FAST);
+		STAND_IN.setMediaHost("http://mmg.whatsapp.net");
+		Path dir = Files.createTempDirectory("whatsapp-trimmed");
+		Path image = Files.write(dir.resolve("image.png"), new byte[] {(byte) 0x89, 'P', 'N', 'G'});
+		BrowserProfile trimmed = new BrowserProfile(BrowserProfile.Mode.HEADLESS, true, List.of(), "1366,900",
+				Boolean.getBoolean("benchmark.browser.no-sandbox"));
+		WhatsappSession session = new WhatsappSession(
+				trimmed.start(dir.resolve("profile"), List.of("--proxy-server=" + STAND_IN.baseUrl())), dir.resolve("profile"));
+		int uploadsBefore = STAND_IN.uploadCount();
+		try {
+			automation.navigate(session, STAND_IN.baseUrl() + "/send/?phone=919000000099&text=");
+			assertThat(automation.awaitChat(session, Duration.ofSeconds(10))).isEqualTo(ChatStateProbe.State.READY);
+			String previous = automation.lastOutgoingId(session);
+			automation.attach(session, WhatsappLocators.MEDIA_FILE_INPUT_XPATH, List.of(image), "Trimmed profile caption");
+
+			assertThat(automation.awaitConfirmation(session, previous)).isNotNull();
+			assertThat(STAND_IN.uploadCount()).isEqualTo(uploadsBefore + 1);
+		} finally {
+			session.getDriver().quit();
+			STAND_IN.setMediaHost(null);
+		}
+	}
+
+	/**
+	 * Upper bound of the histogram bucket holding the 99th percentile.
+	 */
+	private static double p99Millis(HistogramSnapshot snapshot) {
+		double target = snapshot.count() * 0.99;
+		for (CountAtBucket bucket : snapshot.histogramCounts()) {
+			if (bucket.count() >= target) {
+				return bucket.bucket(TimeUnit.MILLISECONDS);
+			}
+		}
+		return snapshot.max(TimeUnit.MILLISECONDS);
+	}
+
+	private static WhatsappWebStandIn startStandIn() {
+		try {
+			return new WhatsappWebStandIn(WhatsappWebStandIn.Settings.FAST);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,392 @@
+package third.party.communication.whatsapp.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for WhatsApp Web with just the markup {@link WhatsappLocators} relies on:
+ * the chat list, chat links that open an editor or the invalid-number popup, attachments with a
+ * preview, outgoing bubbles that go from pending to sent, and the delete-for-everyone menu.
+ * Sent messages are kept per number, so deletes find them after a reload. Attachments are
+ * uploaded before their bubbles appear, to the stand-in itself or to a {@link #setMediaHost media
+ * host} that Chrome reaches through the stand-in as its proxy; a failed upload leaves the bubble
+ * pending, as WhatsApp's clock icon does.
+ *
+ * <p>Latency and failures are configurable: how long a chat takes to open and a send takes to be
+ * confirmed, the share of numbers that are not on WhatsApp, and the share of sends that are
+ * never confirmed.
+ */
+class WhatsappWebStandIn implements AutoCloseable {
+
+	/**
+	 * @param chatLatencyMillis    delay before an opened chat shows its editor or popup
+	 * @param confirmLatencyMillis delay before a sent bubble gets its tick
+	 * @param invalidPercent       numbers whose last two digits are below this are not on WhatsApp
+	 * @param unconfirmedPercent   share of sends that stay pending forever
+	 */
+	record Settings(long chatLatencyMillis, long confirmLatencyMillis, int invalidPercent, int unconfirmedPercent) {
+
+		static final Settings FAST = new Settings(0, 0, 0, 0);
+	}
+
+	record Message(String id, String text, boolean confirmed) {
+	}
+
+	private final HttpServer server;
+	private volatile Settings settings;
+	private final Map<String, List<Message>> chats = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicInteger sent = new AtomicInteger();
+	private final AtomicInteger deleted = new AtomicInteger();
+	private final AtomicInteger uploads = new AtomicInteger();
+	private volatile String mediaHost; // null = same origin
+
+	WhatsappWebStandIn(Settings settings) throws IOException {
+		this.settings = settings;
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "whatsapp-stand-in");
+			t.setDaemon(true);
+			return t;
+		}));
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	String baseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	void setSettings(Settings settings) {
+		this.settings = settings;
+	}
+
+	int sentCount() {
+		return sent.get();
+	}
+
+	int deletedCount() {
+		return deleted.get();
+	}
+
+	int uploadCount() {
+		return uploads.get();
+	}
+
+	/**
+	 * Where pages upload attachments, e.g. {@code http://mmg.whatsapp.net}; null for the stand-in's own address.
+	 */
+	void setMediaHost(String mediaHost) {
+		this.mediaHost = mediaHost;
+	}
+
+	List<Message> messagesTo(String number) {
+		return List.copyOf(chats.getOrDefault(number, List.of()));
+	}
+
+	boolean isInvalid(String number) {
+		int lastTwo = Integer.parseInt(number.substring(Math.max(0, number.length() - 2)));
+		return lastTwo < settings.invalidPercent();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String path = exchange.getRequestURI().getPath();
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			switch (path) {
+				case "/", "/send", "/send/" -> respond(exchange, 200, "text/html", page(query.get("phone")));
+				case "/api/send" -> respond(exchange, 200, "application/json", send(query.get("phone"), readBody(exchange), query));
+				case "/upload" -> {
+					// Cross-origin when it arrives as a proxy request for the media host
+					uploads.incrementAndGet();
+					exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+					respond(exchange, 204, "text/plain", "");
+				}
+				case "/api/delete" -> {
+					delete(query.get("phone"), query.get("id"));
+					respond(exchange, 204, "text/plain", "");
+				}
+				default -> respond(exchange, 404, "text/plain", "Not found");
+			}
+		}
+	}
+
+	/**
+	 * Records a send of {@code files} attachments (one bubble each, the caption on the first) or of
+	 * a text message, and returns the new bubbles as {@code [[id, text, confirmed], ...]}.
+	 */
+	private String send(String phone, String text, Map<String, String> query) {
+		int bubbles = Math.max(1, Integer.parseInt(query.getOrDefault("files", "1")));
+		List<Message> chat = chats.computeIfAbsent(phone, p -> new ArrayList<>());
+		StringBuilder json = new StringBuilder("[");
+		synchronized (chat) {
+			for (int i = 0; i < bubbles; i++) {
+				boolean confirmed = ThreadLocalRandom.current().nextInt(100) >= settings.unconfirmedPercent();
+				Message message = new Message("true_" + phone + "@c.us_" + nextId.getAndIncrement(), i == 0 ? text : "", confirmed);
+				chat.add(message);
+				json.append(i == 0 ? "" : ",").append('[').append(jsString(message.id())).append(',')
+						.append(jsString(message.text())).append(',').append(confirmed).append(']');
+			}
+		}
+		sent.incrementAndGet();
+		return json.append(']').toString();
+	}
+
+	private void delete(String phone, String id) {
+		List<Message> chat = chats.get(phone);
+		if (chat != null) {
+			synchronized (chat) {
+				if (chat.removeIf(m -> m.id().equals(id))) {
+					deleted.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	private String page(String phone) {
+		Settings current = settings;
+		StringBuilder existing = new StringBuilder("[");
+		if (phone != null) {
+			List<Message> chat = chats.getOrDefault(phone, List.of());
+			synchronized (chat) {
+				for (Message m : chat) {
+					existing.append(existing.length() > 1 ? "," : "").append('[').append(jsString(m.id())).append(',')
+							.append(jsString(m.text())).append(',').append(m.confirmed()).append(']');
+				}
+			}
+		}
+		existing.append(']');
+		String chatState = phone == null ? "null" : isInvalid(phone) ? "'invalid'" : "'ready'";
+		return PAGE
+				.replace("%PHONE%", phone == null ? "" : phone)
+				.replace("%STATE%", chatState)
+				.replace("%CHAT_LATENCY%", Long.toString(current.chatLatencyMillis()))
+				.replace("%CONFIRM_LATENCY%", Long.toString(current.confirmLatencyMillis()))
+				.replace("%MEDIA_URL%", mediaHost == null ? "" : mediaHost)
+				.replace("%MESSAGES%", existing);
+	}
+
+	private static String readBody(HttpExchange exchange) throws IOException {
+		return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, status == 204 ? -1 : bytes.length);
+		if (status != 204) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return query;
+	}
+
+	private static String jsString(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"' -> sb.append("\\\"");
+				case '\\' -> sb.append("\\\\");
+				case '\n' -> sb.append("\\n");
+				case '<' -> sb.append("\\u003c");
+				default -> {
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private static final String PAGE = """
+			<!DOCTYPE html>
+			<html><head><meta charset="utf-8"><title>WhatsApp stand-in</title>
+			<style>
+			  .bubble { margin: 4px; padding: 4px; border: 1px solid #ccc; }
+			  #overlay { position: fixed; top: 20%; left: 20%; background: #fff; border: 1px solid #000; padding: 8px; }
+			</style></head>
+			<body>
+			<div id="pane-side">Chats</div>
+			<div id="main"><div id="messages"></div></div>
+			<script>
+			const phone = '%PHONE%', chatState = %STATE%, confirmLatency = %CONFIRM_LATENCY%, mediaUrl = '%MEDIA_URL%';
+			const messages = document.getElementById('messages');
+
+			function post(url, body) {
+			  const xhr = new XMLHttpRequest();
+			  xhr.open('POST', url, false); // synchronous, so the bubble exists when the click returns
+			  xhr.send(body);
+			  return xhr.responseText ? JSON.parse(xhr.responseText) : null;
+			}
+
+			function addBubble(id, text, confirmed, delay) {
+			  const holder = document.createElement('div');
+			  holder.setAttribute('data-id', id);
+			  holder.innerHTML = '<div class="message-out bubble"><span class="text"></span>'
+			      + ' <span class="tick" data-icon="msg-time"></span>'
+			      + ' <div role="button" class="menu"><span data-icon="menu-down">v</span></div></div>';
+			  holder.querySelector('.text').textContent = text;
+			  holder.querySelector('.menu').addEventListener('click', () => openMenu(holder));
+			  messages.appendChild(holder);
+			  if (confirmed) {
+			    const tick = () => holder.querySelector('.tick').setAttribute('data-icon', 'msg-check');
+			    delay > 0 ? setTimeout(tick, delay) : tick();
+			  }
+			}
+
+			function sendText(text, files) {
+			  for (const [id, body, confirmed] of post('/api/send?phone=' + phone + '&files=' + files, text)) {
+			    addBubble(id, body, confirmed, confirmLatency);
+			  }
+			}
+
+			function upload(files) {
+			  try {
+			    post(mediaUrl + '/upload?phone=' + phone + '&files=' + files, 'media');
+			    return true;
+			  } catch (e) {
+			    return false; // blocked or unreachable
+			  }
+			}
+
+			function popup(html) {
+			  closeOverlay();
+			  const overlay = document.createElement('div');
+			  overlay.id = 'overlay';
+			  overlay.innerHTML = html;
+			  document.body.appendChild(overlay);
+			  return overlay;
+			}
+
+			function closeOverlay() {
+			  const overlay = document.getElementById('overlay');
+			  if (overlay) { overlay.remove(); }
+			}
+
+			function openMenu(holder) {
+			  const menu = popup('<div data-testid="message-menu-delete" role="button">Delete</div>');
+			  menu.firstChild.addEventListener('click', () => {
+			    const confirm = popup('<button data-testid="popup-controls-delete-for-everyone">Delete for everyone</button>'
+			        + '<button data-testid="popup-controls-cancel">Cancel</button>');
+			    confirm.querySelector('[data-testid=popup-controls-cancel]').addEventListener('click', closeOverlay);
+			    confirm.firstChild.addEventListener('click', () => {
+			      const ok = popup('<button data-testid="popup-controls-ok">OK</button>');
+			      ok.firstChild.addEventListener('click', () => {
+			        post('/api/delete?phone=' + phone + '&id=' + encodeURIComponent(holder.getAttribute('data-id')), '');
+			        holder.remove();
+			        closeOverlay();
+			      });
+			    });
+			  });
+			}
+
+			function editor() {
+			  const box = document.createElement('div');
+			  box.setAttribute('data-lexical-editor', 'true');
+			  box.setAttribute('role', 'textbox');
+			  box.setAttribute('contenteditable', 'true');
+			  box.style.minHeight = '20px';
+			  return box;
+			}
+
+			function openPreview(input) {
+			  const files = input.files.length;
+			  const footerEditor = document.querySelector('footer [data-lexical-editor]');
+			  footerEditor.remove(); // the caption box must be the only editor while the preview is open
+			  const preview = popup('<div class="caption"></div><button aria-label="Send">Send</button>'
+			      + '<button aria-label="Close">Close</button>');
+			  const caption = editor();
+			  preview.querySelector('.caption').appendChild(caption);
+			  const restore = () => { closeOverlay(); document.querySelector('footer').prepend(editor()); bindEditor(); };
+			  preview.querySelector('[aria-label=Send]').addEventListener('click', () => {
+			    const text = caption.innerText.trim();
+			    if (upload(files)) {
+			      sendText(text, files);
+			    } else {
+			      addBubble('pending_' + Date.now(), text, false, 0);
+			    }
+			    restore();
+			  });
+			  preview.querySelector('[aria-label=Close]').addEventListener('click', restore);
+			  input.value = '';
+			}
+
+			function bindEditor() {
+			  const box = document.querySelector('footer [data-lexical-editor]');
+			  box.addEventListener('keydown', e => {
+			    if (e.key === 'Enter' && !e.shiftKey) {
+			      e.preventDefault();
+			      const text = box.innerText.trim();
+			      box.textContent = '';
+			      if (text) { sendText(text, 1); }
+			    }
+			  });
+			}
+
+			function openChat() {
+			  if (chatState === 'invalid') {
+			    const ok = popup('<div data-testid="popup-controls-ok" role="button">OK</div>');
+			    ok.firstChild.addEventListener('click', closeOverlay);
+			    return;
+			  }
+			  for (const [id, text, confirmed] of %MESSAGES%) { addBubble(id, text, confirmed, 0); }
+			  const footer = document.createElement('footer');
+			  footer.appendChild(editor());
+			  footer.insertAdjacentHTML('beforeend', '<span data-icon="clip" role="button">+</span>'
+			      + '<div id="attach-menu" style="display:none">'
+			      + '<input type="file" multiple accept="image/*,video/mp4,video/3gpp,video/quicktime">'
+			      + '<input type="file" multiple accept="*"></div>');
+			  footer.querySelector('[data-icon=clip]').addEventListener('click', () => {
+			    footer.querySelector('#attach-menu').style.display = 'block';
+			  });
+			  footer.querySelectorAll('input[type=file]').forEach(input => input.addEventListener('change', () => openPreview(input)));
+			  document.getElementById('main').appendChild(footer);
+			  bindEditor();
+			}
+
+			if (chatState) {
+			  const latency = %CHAT_LATENCY%;
+			  latency > 0 ? setTimeout(openChat, latency) : openChat();
+			}
+			</script>
+			</body></html>
+			""";
+}
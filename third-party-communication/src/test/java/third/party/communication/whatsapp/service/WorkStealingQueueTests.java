@@ -0,0 +1,36 @@
+package third.party.communication.whatsapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkStealingQueueTests {
+
+	@Test
+	void ownerTakesFromHeadAndThiefFromTail() {
+		WorkStealingQueue<String> queue = new WorkStealingQueue<>(2);
+		queue.distribute(List.of("a", "b", "c", "d"));
+
+		assertThat(queue.poll(0)).isEqualTo("a");
+		assertThat(queue.poll(1)).isEqualTo("c");
+		assertThat(queue.poll(1)).isEqualTo("d");
+		// Shard 1 is empty now and steals the last item of shard 0.
+		assertThat(queue.poll(1)).isEqualTo("b");
+		assertThat(queue.poll(0)).isNull();
+	}
+
+	@Test
+	void pushedBackItemIsRetriedFirst() {
+		WorkStealingQueue<String> queue = new WorkStealingQueue<>(1);
+		queue.distribute(List.of("a", "b"));
+
+		String first = queue.poll(0);
+		queue.pushBack(0, first);
+
+		assertThat(queue.poll(0)).isEqualTo("a");
+		assertThat(queue.size()).isEqualTo(1);
+	}
+
+}